@@ -0,0 +1,73 @@
+package benchmarks;
+
+import client.game.Audio;
+import client.game.Bomb;
+import client.game.Player;
+import client.resource.ResourceManager;
+import common.GridBitSet;
+import common.MapLayout;
+import common.TileGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a bomb exploding on a headless {@link TileGrid}, and the check of whether a
+ * player is standing in the explosion. The bomb explodes next to player one, destroying
+ * terrain the first time, so the measured explosions are of the board once that terrain
+ * has gone.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BombBenchmark {
+
+    private Player player, otherPlayer;
+    private Bomb bomb;
+
+    @Setup
+    public void setUp(){
+        TileGrid grid = MapLayout.createGrid();
+        Audio audio = new Audio(new ResourceManager());
+
+        player = new Player(grid, 0, 0, 1, audio);
+        otherPlayer = new Player(grid, grid.getSize() - 1, grid.getSize() - 1, 2, audio);
+
+        bomb = new Bomb(grid, player, otherPlayer, audio);
+        bomb.setPositionX(2);
+        bomb.setPositionY(0);
+        bomb.explode();
+    }
+
+    /**
+     * An explosion and clearing it, as run by the bomb timer for every bomb.
+     *
+     */
+    @Benchmark
+    public GridBitSet explodeAndClear(){
+        bomb.explode();
+        bomb.clearExplosion();
+        return bomb.getExplodedCells();
+    }
+
+    /**
+     * Checks both players against the cells of an explosion.
+     *
+     */
+    @Benchmark
+    public boolean isPlayerHit(){
+        GridBitSet explodedCells = bomb.getExplodedCells();
+        int[] position = player.getPosition();
+        int[] otherPosition = otherPlayer.getPosition();
+
+        return explodedCells.get(position[0], position[1])
+                | explodedCells.get(otherPosition[0], otherPosition[1]);
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import common.FlushPolicy;
+import common.FrameCodec;
+import common.FrameWriter;
+import common.GameConstants;
+import common.PlayerQuitException;
+import org.openjdk.jmh.annotations.*;
+import server.session.Session;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding the frames of four ints sent between the client and
+ * the server, in each version of the protocol, see {@link FrameCodec}. Encoding writes a
+ * frame with a {@link FrameWriter}, as the client's {@code ServerConnection} does, into a
+ * stream that discards it. Decoding reads the frame with the {@link FrameCodec} and checks
+ * it with {@link Session#getPlayerInput(int[])}, as the server does for every frame received.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBenchmark {
+
+    @Param({"1", "2"})
+    private int version;
+
+    private FrameCodec codec;
+    private FrameWriter frameWriter;
+    private ByteArrayInputStream frameBytes;
+    private Session session;
+    private int[] frame;
+
+    @Setup
+    public void setUp() throws IOException {
+        frameWriter = new FrameWriter(new OutputStream() {
+            public void write(int b) {
+            }
+
+            public void write(byte[] b, int off, int len) {
+            }
+        }, FlushPolicy.PERFRAME, FrameWriter.FRAMESIZE);
+
+        codec = FrameCodec.forVersion(version);
+        frameWriter.setCodec(codec);
+        frame = new int[]{4, 7, GameConstants.NOBOMB, GameConstants.NOBOMB};
+
+        ByteBuffer bytes = ByteBuffer.allocate(codec.getMaxFrameSize());
+        codec.encode(bytes, frame);
+
+        frameBytes = new ByteArrayInputStream(Arrays.copyOf(bytes.array(), bytes.position()));
+        session = new Session(null, 0);
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        frameWriter.writeFrame(frame);
+    }
+
+    @Benchmark
+    public int[] decode() throws IOException, PlayerQuitException {
+        frameBytes.reset();
+
+        return session.getPlayerInput(codec.read(frameBytes));
+    }
+}
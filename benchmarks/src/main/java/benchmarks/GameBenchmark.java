@@ -0,0 +1,54 @@
+package benchmarks;
+
+import client.game.Audio;
+import client.game.Game;
+import client.resource.ResourceManager;
+import common.GameConstants;
+import common.MapLayout;
+import common.TileGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks applying an update from the server to a headless {@link TileGrid} with
+ * {@link Game#updateCells(int[], client.game.Bomb, client.game.Player)}, as done for every
+ * frame received. The network player moves back and forth between two tiles.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    private Game game;
+    private int[][] updates;
+    private int update;
+
+    @Setup
+    public void setUp(){
+        TileGrid grid = MapLayout.createGrid();
+        int last = grid.getSize() - 1;
+
+        game = new Game(new Audio(new ResourceManager()));
+        game.createPlayer(0, 0, 1, grid);
+        game.createOtherPlayer(last, last, 2, grid);
+
+        updates = new int[][]{
+                {last, last - 1, GameConstants.NOBOMB, GameConstants.NOBOMB},
+                {last, last, GameConstants.NOBOMB, GameConstants.NOBOMB}
+        };
+    }
+
+    @Benchmark
+    public boolean updateCells(){
+        update ^= 1;
+        return game.updateCells(updates[update], game.getOtherPlayerBomb(), game.getOtherPlayer());
+    }
+}
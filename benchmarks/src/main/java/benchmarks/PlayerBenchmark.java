@@ -0,0 +1,73 @@
+package benchmarks;
+
+import client.game.Audio;
+import client.game.Player;
+import client.resource.ResourceManager;
+import common.ImageName;
+import common.MapLayout;
+import common.TileGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks moving a player on a headless {@link TileGrid}, as done for every keypress of
+ * the local player and every update of the network player. Each move checks the tile being
+ * moved into, i.e. {@code canMove}, and updates both tiles.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+
+    private TileGrid grid;
+    private Player player;
+
+    @Setup
+    public void setUp(){
+        grid = MapLayout.createGrid();
+        player = new Player(grid, 0, 0, 1, new Audio(new ResourceManager()));
+    }
+
+    /**
+     * Two legal moves, from the start position right and back again.
+     *
+     */
+    @Benchmark
+    public ImageName moveRightAndLeft(){
+        player.movePlayerRight();
+        player.movePlayerLeft();
+        return grid.getImageName(0, 0);
+    }
+
+    /**
+     * Two moves refused by {@code canMove}, off the edge of the grid and into terrain.
+     *
+     */
+    @Benchmark
+    public ImageName moveBlocked(){
+        player.movePlayerUP();
+        player.movePlayerRight();
+        player.movePlayerDown();
+        player.movePlayerLeft();
+        return grid.getImageName(0, 0);
+    }
+
+    /**
+     * A move of the network player, which works out the direction from the new position.
+     *
+     */
+    @Benchmark
+    public ImageName setPosition(){
+        player.setPosition(1, 0);
+        player.setPosition(0, 0);
+        return grid.getImageName(0, 0);
+    }
+}
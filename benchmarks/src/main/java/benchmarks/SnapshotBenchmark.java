@@ -0,0 +1,84 @@
+package benchmarks;
+
+import common.GridBitSet;
+import common.MapLayout;
+import common.SnapshotCodec;
+import common.TileGrid;
+import common.WorldSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding the world sent to clients with {@link SnapshotCodec}, as the server
+ * does each tick the world changes, and rebuilding it on the client. A delta holds one
+ * player moving and the terrain destroyed by one explosion, the usual change in a tick,
+ * and is compared with sending the whole world.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private TileGrid grid;
+    private SnapshotCodec snapshotCodec;
+    private GridBitSet allTiles, changedTiles, decodedTiles;
+    private int[] entities, baselineEntities;
+    private int[] body;
+    private int deltaLength;
+    private WorldSnapshot snapshot;
+
+    @Setup
+    public void setUp(){
+        grid = MapLayout.createGrid();
+        snapshotCodec = new SnapshotCodec(grid.getSize());
+
+        allTiles = new GridBitSet(grid.getSize());
+        allTiles.setAll();
+
+        changedTiles = new GridBitSet(grid.getSize());
+        changedTiles.set(0, 2);
+        changedTiles.set(2, 0);
+
+        baselineEntities = new int[WorldSnapshot.ENTITIES * WorldSnapshot.ENTITYSIZE];
+        baselineEntities[WorldSnapshot.PLAYERTWO * WorldSnapshot.ENTITYSIZE] = 10;
+        baselineEntities[WorldSnapshot.PLAYERTWO * WorldSnapshot.ENTITYSIZE + 1] = 10;
+
+        entities = baselineEntities.clone();
+        entities[WorldSnapshot.PLAYERTWO * WorldSnapshot.ENTITYSIZE + 1] = 9;
+
+        int frames = snapshotCodec.encode(2, 1, changedTiles, grid, entities, baselineEntities);
+        deltaLength = snapshotCodec.getFrame(0)[3];
+        body = new int[(frames - 1) * 4];
+
+        for (int i = 1; i < frames; i++) {
+            System.arraycopy(snapshotCodec.getFrame(i), 0, body, (i - 1) * 4, 4);
+        }
+
+        snapshot = new WorldSnapshot(grid.getSize());
+        decodedTiles = new GridBitSet(grid.getSize());
+    }
+
+    @Benchmark
+    public int encodeDelta(){
+        return snapshotCodec.encode(2, 1, changedTiles, grid, entities, baselineEntities);
+    }
+
+    @Benchmark
+    public int encodeWhole(){
+        return snapshotCodec.encode(2, 0, allTiles, grid, entities, null);
+    }
+
+    @Benchmark
+    public WorldSnapshot decodeDelta() throws Exception {
+        SnapshotCodec.decode(body, deltaLength, snapshot, decodedTiles);
+        return snapshot;
+    }
+}
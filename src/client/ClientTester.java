@@ -5,12 +5,17 @@ import client.window.ClientFrame;
 import client.window.ClientFrameController;
 import client.window.ClientFrameView;
 
+import javax.swing.*;
+
 /**
  * Run to test client.
  */
 public class ClientTester {
 
     public static void main(String[] args) {
+        //Menus must be drawn over the heavyweight canvas of the game loop.
+        JPopupMenu.setDefaultLightWeightPopupEnabled(false);
+
         ClientMenuBar clientControlView = new ClientMenuBar();
         new ClientFrameController(new ClientFrameView(),
                 new ClientFrame(clientControlView), clientControlView);
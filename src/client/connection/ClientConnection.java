@@ -1,11 +1,11 @@
 package client.connection;
 
 import client.MessageBox;
+import common.FrameWriter;
 import common.GameConstants;
 import common.ServerShutDownException;
 
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.Socket;
@@ -23,7 +23,7 @@ import java.net.UnknownHostException;
 public class ClientConnection implements ClientConnectionModel, GameConstants {
     private Socket socket;
     private DataInputStream fromServer;
-    private DataOutputStream toServer;
+    private FrameWriter toServer;
     private boolean connected;
 
     /**
@@ -68,12 +68,10 @@ public class ClientConnection implements ClientConnectionModel, GameConstants {
     public void disconnectFromServer() throws IOException {
 
          if (toServer == null)
-            toServer = new DataOutputStream(socket.getOutputStream());
+            toServer = new FrameWriter(socket.getOutputStream());
 
-        toServer.writeInt(PLAYERLEFTSESSION);
-        toServer.writeInt(PLAYERLEFTSESSION);
-        toServer.writeInt(PLAYERLEFTSESSION);
-        toServer.writeInt(PLAYERLEFTSESSION);
+        toServer.writeFrame(PLAYERLEFTSESSION, PLAYERLEFTSESSION,
+                PLAYERLEFTSESSION, PLAYERLEFTSESSION);
         toServer.flush();
 
     }
@@ -1,17 +1,27 @@
 package client.game;
 
+import client.resource.ResourceManager;
 import common.GameConstants;
-import sun.audio.AudioPlayer;
-import sun.audio.AudioStream;
 
-import javax.sound.sampled.*;
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
  * Class that holds the audio used throughout the game. Audio files contained within
- * ./Audio folder. The methods are synchronised because they are accessed through a number of
- * threads.
+ * ./Audio folder, or the Audio folder of the resource archive.
+ *
+ * Each sound is read and decoded once, in the background through a {@link ResourceManager},
+ * into a {@link SoundEffect} with its own pool of voices. A sound that has not finished
+ * loading is not played.
+ *
+ * The play and stop methods are called by the game, bomb timer and network threads, so they
+ * never touch the sound system themselves. Each one adds a {@link Command} to the lock-free
+ * queue {@link #commands} and wakes the single audio thread, which runs the commands in order.
+ * A slow sound device can therefore delay other sounds but never movement or network reads.
  *
  * @author Robert Wells
  * @version 1.0
@@ -19,145 +29,170 @@ import java.io.*;
  */
 public class Audio {
 
-    private AudioStream backgroundMusic;
-    private AudioStream bombSound;
-
-    private AudioStream hitByBombSound;
-    private AudioStream gameStartSound;
-    private AudioStream gameOverSound;
-    private AudioStream winnerSound;
-    private InputStream in;
-
-    private boolean useMoveClip;
-
-    public Audio(){
-        useMoveClip = true;
+    private Future<SoundEffect> backgroundMusic;
+    private Future<SoundEffect> bombSound;
+    private Future<SoundEffect> moveSound;
+    private Future<SoundEffect> hitByBombSound;
+    private Future<SoundEffect> gameStartSound;
+    private Future<SoundEffect> gameOverSound;
+    private Future<SoundEffect> winnerSound;
+
+    private Command playBackgroundMusic, stopBackgroundMusic, playBombSound, playMoveSound,
+        playHitByBombSound, playGameStartSound, playGameOverSound, playWinnerSound;
+
+    private ResourceManager resourceManager;
+    private ConcurrentLinkedQueue<Command> commands;
+    private Thread audioThread;
+
+    /**
+     * Starts loading every sound and starts the audio thread if audio is enabled. Sounds that
+     * can be heard several times at once, such as bombs and footsteps, are given more voices.
+     *
+     * @param resourceManager used to read and decode the sounds.
+     */
+    public Audio(ResourceManager resourceManager){
+        this.resourceManager = resourceManager;
+
+        if (GameConstants.PLAYAUDIO) {
+            backgroundMusic = load("background", 1);
+            bombSound = load("bomb", 4);
+            moveSound = load("walk", 2);
+            hitByBombSound = load("hitByBomb", 2);
+            gameStartSound = load("start", 1);
+            gameOverSound = load("gameOver", 1);
+            winnerSound = load("winner", 1);
+
+            playBackgroundMusic = new Command(backgroundMusic, false);
+            stopBackgroundMusic = new Command(backgroundMusic, true);
+            playBombSound = new Command(bombSound, false);
+            playMoveSound = new Command(moveSound, false);
+            playHitByBombSound = new Command(hitByBombSound, false);
+            playGameStartSound = new Command(gameStartSound, false);
+            playGameOverSound = new Command(gameOverSound, false);
+            playWinnerSound = new Command(winnerSound, false);
+
+            commands = new ConcurrentLinkedQueue<Command>();
+
+            audioThread = new Thread(new Runnable() {
+                public void run() {
+                    runCommands();
+                }
+            }, "Audio");
+            audioThread.setDaemon(true);
+            audioThread.start();
+        }
     }
 
-    public synchronized void playBackgroundMusic(){
-        if (GameConstants.PLAYAUDIO){
-            try {
-                in = new FileInputStream("Audio//background.wav");
-                backgroundMusic = new AudioStream(in);
-
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * Reads and decodes a sound on a loading thread.
+     *
+     * @param name the name of the sound e.g. "bomb".
+     * @param numOfVoices the number of times the sound can play at once.
+     * @return the sound, which fails if it cannot be loaded.
+     */
+    private Future<SoundEffect> load(String name, final int numOfVoices){
+        final Future<ByteBuffer> data = resourceManager.getData("Audio/" + name + ".wav");
+
+        return resourceManager.load(new Callable<SoundEffect>() {
+            public SoundEffect call() throws Exception {
+                return new SoundEffect(data.get(), numOfVoices);
             }
-
-            AudioPlayer.player.start(backgroundMusic);
-        }
+        });
     }
 
-    public synchronized void stopBackgroundMusic(){
-        if (GameConstants.PLAYAUDIO){
-            AudioPlayer.player.stop(backgroundMusic);
-        }
+    /**
+     * Queues a command for the audio thread. Does not block.
+     *
+     */
+    private void send(Command command){
+        if (command == null) return;
+
+        commands.offer(command);
+        LockSupport.unpark(audioThread);
     }
 
-    public synchronized void playGameStartSound(){
-        if (GameConstants.PLAYAUDIO){
-            try {
-                in =  new FileInputStream("Audio//start.wav");
-                gameStartSound = new AudioStream(in);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * Runs on the audio thread, playing or stopping sounds as commands arrive and
+     * parking while the queue is empty.
+     *
+     */
+    private void runCommands(){
+        while (true) {
+            Command command = commands.poll();
+
+            if (command == null) {
+                LockSupport.park(this);
+                continue;
             }
 
-            AudioPlayer.player.start(gameStartSound);
-        }
-    }
-
-    public synchronized void playGameOverSound(){
-        if (GameConstants.PLAYAUDIO){
             try {
-                in =  new FileInputStream("Audio//gameOver.wav");
-                gameOverSound = new AudioStream(in);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
+                command.run();
+            } catch (RuntimeException e) {
                 e.printStackTrace();
             }
-
-            AudioPlayer.player.start(gameOverSound);
         }
     }
 
-    public synchronized void playWinnerSound(){
-        if (GameConstants.PLAYAUDIO){
-            try {
-                in =  new FileInputStream("Audio//winner.wav");
-                winnerSound = new AudioStream(in);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
-            AudioPlayer.player.start(winnerSound);
-        }
+    public void playBackgroundMusic(){
+        send(playBackgroundMusic);
     }
 
-    public synchronized void playBombSound(){
-        if (GameConstants.PLAYAUDIO){
-            try {
-                in =  new FileInputStream("Audio//bomb.wav");
-                bombSound = new AudioStream(in);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    public void stopBackgroundMusic(){
+        send(stopBackgroundMusic);
+    }
 
-            AudioPlayer.player.start(bombSound);
-        }
+    public void playGameStartSound(){
+        send(playGameStartSound);
     }
 
-    public void playMoveSound(){
+    public void playGameOverSound(){
+        send(playGameOverSound);
+    }
 
-        if (useMoveClip && GameConstants.PLAYAUDIO){
-            try {
-                File file = new File("Audio//walk.wav");
+    public void playWinnerSound(){
+        send(playWinnerSound);
+    }
 
-                AudioInputStream temp = AudioSystem.getAudioInputStream(file);
+    public void playBombSound(){
+        send(playBombSound);
+    }
 
-                Clip clip = AudioSystem.getClip();
+    public void playMoveSound(){
+        send(playMoveSound);
+    }
 
-                clip.open(temp);
-                clip.start();
+    public void playHitByBombSound(){
+        send(playHitByBombSound);
+    }
 
-            } catch (FileNotFoundException ffe) {
-                useMoveClip = false;
-            } catch (IOException ioe) {
-                useMoveClip = false;
-            } catch (LineUnavailableException lue) {
-                useMoveClip = false;
-            } catch (UnsupportedAudioFileException uafe) {
-                useMoveClip = false;
-            }
+    /**
+     * Inner class holding a sound and whether to play or stop it. One is created for each
+     * method when audio is enabled and reused, so sending a command creates no objects
+     * other than its place in the queue.
+     *
+     */
+    private static class Command implements Runnable {
+        private Future<SoundEffect> sound;
+        private boolean isStop;
+
+        public Command(Future<SoundEffect> sound, boolean isStop){
+            this.sound = sound;
+            this.isStop = isStop;
         }
 
+        /**
+         * Plays or stops the sound if it has loaded.
+         *
+         */
+        public void run(){
+            if (!sound.isDone()) return;
 
+            SoundEffect soundEffect = ResourceManager.await(sound);
 
-    }
-
-    public synchronized void playHitByBombSound(){
-        if (GameConstants.PLAYAUDIO){
-            try {
-                in =  new FileInputStream("Audio//hitByBomb.wav");
-                hitByBombSound = new AudioStream(in);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            if (soundEffect == null) return;
 
-            AudioPlayer.player.start(hitByBombSound);
+            if (isStop) soundEffect.stop();
+            else soundEffect.play();
         }
     }
-
-
 }
@@ -0,0 +1,172 @@
+package client.game;
+
+import common.ImageName;
+import common.TileFlags;
+import common.TileGrid;
+
+import java.awt.*;
+
+/**
+ * Paints a {@link TileGrid} onto a single component in one pass, copying pre-scaled
+ * tiles from the packed image of a {@link TileAtlas}. The cost of a frame depends only on the number of
+ * tiles painted, not on the number of components on screen.
+ *
+ * A tile is painted over the image it held before if that makes sense, so a player
+ * stays visible when standing in an explosion and a bomb is drawn over the player
+ * who placed it.
+ *
+ * When the board is drawn by a {@link GameLoop}, players can be left out of the tiles and
+ * drawn separately with {@link #paintSprite(Graphics, ImageName, double, double)} at positions
+ * between tiles.
+ *
+ * Nothing is painted until {@link Image} has finished loading, so painting never waits
+ * for a file to be read.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class BoardRenderer {
+
+    private Image image;
+    private TileAtlas tileAtlas;
+
+    public BoardRenderer(Image image){
+        this.image = image;
+        tileAtlas = new TileAtlas(image);
+    }
+
+    /**
+     * Paints the tiles of the grid within the clip of the graphics, scaled to fill
+     * the area given.
+     *
+     * @param g the graphics of the component.
+     * @param grid the grid to be painted.
+     * @param width the width of the area in pixels.
+     * @param height the height of the area in pixels.
+     * @param graphicsConfiguration the configuration of the component, may be null.
+     */
+    public void paintBoard(Graphics g, TileGrid grid, int width, int height,
+                           GraphicsConfiguration graphicsConfiguration){
+        paintBoard(g, grid, width, height, graphicsConfiguration, true);
+    }
+
+    /**
+     * Paints the tiles of the grid within the clip of the graphics, scaled to fill
+     * the area given.
+     *
+     * @param g the graphics of the component.
+     * @param grid the grid to be painted.
+     * @param width the width of the area in pixels.
+     * @param height the height of the area in pixels.
+     * @param graphicsConfiguration the configuration of the component, may be null.
+     * @param isPlayerShown false to paint only what is under each player.
+     */
+    public void paintBoard(Graphics g, TileGrid grid, int width, int height,
+                           GraphicsConfiguration graphicsConfiguration, boolean isPlayerShown){
+        int size = grid.getSize();
+        int tileWidth = width / size;
+        int tileHeight = height / size;
+
+        if (tileWidth <= 0 || tileHeight <= 0 || !image.isLoaded()) return;
+
+        tileAtlas.setTileSize(tileWidth, tileHeight, graphicsConfiguration);
+
+        int firstRow = 0, lastRow = size - 1, firstColumn = 0, lastColumn = size - 1;
+        Rectangle clip = g.getClipBounds();
+
+        if (clip != null) {
+            firstRow = Math.max(0, clip.y / tileHeight);
+            lastRow = Math.min(size - 1, (clip.y + clip.height - 1) / tileHeight);
+            firstColumn = Math.max(0, clip.x / tileWidth);
+            lastColumn = Math.min(size - 1, (clip.x + clip.width - 1) / tileWidth);
+        }
+
+        for (int i = firstRow; i <= lastRow; i++)
+            for (int j = firstColumn; j <= lastColumn; j++) {
+                paintTile(g, grid, i, j, j * tileWidth, i * tileHeight, isPlayerShown);
+            }
+    }
+
+    /**
+     * Paints a single tile at the position given.
+     *
+     */
+    private void paintTile(Graphics g, TileGrid grid, int row, int column, int x, int y,
+                           boolean isPlayerShown){
+        ImageName imageName = grid.getImageName(row, column);
+
+        if (imageName == ImageName.EMPTY) return;
+
+        ImageName previousImageName = grid.getPreviousImageName(row, column);
+
+        if (!isPlayerShown && isPlayer(imageName)) {
+            if (isExplosion(previousImageName)) {
+                drawTile(g, previousImageName, x, y);
+            }
+
+            return;
+        }
+
+        if (isPlayerShown && ((isPlayer(imageName) && isExplosion(previousImageName))
+                || (imageName == ImageName.BOMB && isPlayer(previousImageName)))) {
+            drawTile(g, previousImageName, x, y);
+        }
+
+        drawTile(g, imageName, x, y);
+    }
+
+    private void drawTile(Graphics g, ImageName imageName, int x, int y){
+        tileAtlas.drawTile(g, imageName, x, y);
+    }
+
+    /**
+     * Paints an image at a position on the grid that need not be a whole tile, using
+     * the tile size of the last board painted.
+     *
+     * @param g the graphics of the component.
+     * @param imageName the image to be painted.
+     * @param positionX the X position on the grid, the row.
+     * @param positionY the Y position on the grid, the column.
+     */
+    public void paintSprite(Graphics g, ImageName imageName, double positionX, double positionY){
+        if (!image.isLoaded()) return;
+
+        drawTile(g, imageName, (int) Math.round(positionY * tileAtlas.getTileWidth()),
+                (int) Math.round(positionX * tileAtlas.getTileHeight()));
+    }
+
+    /**
+     * Paints the logo shown before the player connects to a server.
+     *
+     */
+    public void paintTitle(Graphics g){
+        if (!image.isTitleLoaded()) return;
+
+        g.drawImage(image.getTitle(), 100, 120, 560, 240, null);
+    }
+
+    public static boolean isPlayer(ImageName imageName){
+        return TileFlags.has(imageName, TileFlags.PLAYER);
+    }
+
+    /**
+     * @return 1 or 2 if the image is of that player, otherwise 0.
+     */
+    public static int getPlayerNum(ImageName imageName){
+        int flags = TileFlags.get(imageName);
+
+        if ((flags & TileFlags.PLAYERONE) != 0) return 1;
+        if ((flags & TileFlags.PLAYERTWO) != 0) return 2;
+
+        return 0;
+    }
+
+    public static boolean isExplosion(ImageName imageName){
+        return TileFlags.has(imageName, TileFlags.EXPLOSION);
+    }
+
+    public TileAtlas getTileAtlas(){
+        return tileAtlas;
+    }
+}
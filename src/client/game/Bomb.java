@@ -1,11 +1,16 @@
 package client.game;
 
-import java.util.ArrayList;
-import java.util.List;
+import common.GameConstants;
+import common.GridBitSet;
+import common.ImageName;
+import common.TileFlags;
+import common.TileGrid;
 
 /**
  * Represents the bomb object used in the game. Handles initial image placement for both players.
- * Runs a thread to animate the explosion and clearing of explosion and tracks if a player is hit.
+ * The fuse and the clearing of the explosion are scheduled on the {@link BombTimer} shared by
+ * every bomb, so a bomb does not need a thread of its own. Whether a player is hit is decided
+ * by the server.
  *
  * @author Robert Wells
  * @version 1.0
@@ -14,40 +19,44 @@ import java.util.List;
 public class Bomb extends GameObject implements Runnable  {
 
     private ImageName image;
-    private Cell[][] cells;
+    private TileGrid grid;
 
-    private boolean isActive;
-    private List<Integer[]> explodedCells;
-    private List<Integer[]> explodedCellsHitPlayerCheck;
-    private boolean isPlaced;
-    private boolean hitPlayer;
+    private volatile boolean isActive;
+    private GridBitSet explodedCells;
+    private volatile boolean isPlaced;
+    private Runnable clearTask;
     private Player player, otherPlayer;
     private boolean isGameOver;
 
     /**
      * Initialises variables.
      * Sets {@link #isGameOver} to false, {@link #isPlaced} to false,
-     * {@link #isActive} to false, and {@link #hitPlayer} to false.
+     * and {@link #isActive} to false.
      *
-     * @param cells the environment of Bomberman, updated with bomb position and explosion.
-     * @param player the local players position is used for
-     *                initial placement and deciding whether a player has been hit.
-     * @param otherPlayer the network players position is used for
-     *                initial placement and deciding whether a player has been hit.
+     * @param grid the environment of Bomberman, updated with bomb position and explosion.
+     * @param player the local players position is used for initial placement.
+     * @param otherPlayer the network players position is used for initial placement.
      * @param audio used for explosion sound.
      */
-    public Bomb(Cell[][] cells, Player player, Player otherPlayer, Audio audio){
+    public Bomb(TileGrid grid, Player player, Player otherPlayer, Audio audio){
         super(audio);
         isGameOver = false;
         isPlaced = false;
         isActive = false;
-        hitPlayer = false;
-        this.cells = cells;
+        this.grid = grid;
         this.image = ImageName.BOMB;
+        explodedCells = new GridBitSet(grid.getSize());
 
         this.player = player;
         this.otherPlayer = otherPlayer;
 
+        clearTask = new Runnable() {
+            public void run() {
+                clearExplosion();
+                isActive = false;
+            }
+        };
+
     }
 
     /**
@@ -55,8 +64,7 @@ public class Bomb extends GameObject implements Runnable  {
      * places bomb in initial position based on {@link client.game.Player#getPosition()}.
      * This ensures that the player can place one bomb at any onetime.
      * This method is invoked when setting a bomb placed by the local player.
-     * isPlaced and isActive is set to true and a new thread is created using
-     * this object.
+     * isPlaced and isActive is set to true and the fuse is started.
      *
      * @param player the local player.
      * @param otherPlayer the network player.
@@ -70,11 +78,11 @@ public class Bomb extends GameObject implements Runnable  {
             positionX = tempPosition[0];
             positionY = tempPosition[1];
 
-            cells[positionX][positionY].setImageName(image);
+            grid.setImageName(positionX, positionY, image);
 
             this.otherPlayer = otherPlayer;
 
-            new Thread(this).start();
+            BombTimer.schedule(this, GameConstants.BOMBFUSEMILLIS);
         }
 
     }
@@ -84,8 +92,7 @@ public class Bomb extends GameObject implements Runnable  {
      * places bomb in initial position based on position.
      * This ensures that the player can place one bomb at any onetime.
      * This method is invoked when setting a bomb placed by the networked player.
-     * isPlaced and isActive is set to true and a new thread is created using
-     * this object.
+     * isPlaced and isActive is set to true and the fuse is started.
      *
      * @param position the position of the other player i.e. where the bomb should be placed.
      */
@@ -95,80 +102,57 @@ public class Bomb extends GameObject implements Runnable  {
             isActive = true;
             positionX = position[0];
             positionY = position[1];
-            cells[position[0]][position[1]].setImageName(image);
+            grid.setImageName(position[0], position[1], image);
 
-            new Thread(this).start();
+            BombTimer.schedule(this, GameConstants.BOMBFUSEMILLIS);
         }
 
     }
 
 
     /**
-     * This method handles the bombs explosion. Before this method is invoked
-     *  the bomb has already been placed therefore the three sleeps. This simulates
+     * This method handles the bombs explosion. It is run by {@link BombTimer}
+     *  {@link GameConstants#BOMBFUSEMILLIS} after the bomb has been placed. This simulates
      *  a bomb countdown i.e. the comb does not explode straight away, then
      *  {@link #isPlaced} is set to false, {@link client.game.Audio#playBombSound()} is
-     *  invoked, and {@link #explode()} is invoked. The thread then sleeps again before
-     *  clearing the explosion ({@link #clearExplosion()}), setting {@link #isActive} to false
-     *  and {@link #hitPlayer} to false.
+     *  invoked, and {@link #explode()} is invoked. Clearing the explosion
+     *  ({@link #clearExplosion()}) and setting {@link #isActive} to false is scheduled
+     *  {@link GameConstants#EXPLOSIONMILLIS} later.
+     *  The same durations are used by the server to decide when players are hit.
      *
      */
     public void run(){
-
-       try {
-           Thread.sleep(1000);
-       } catch (InterruptedException ie){
-           ie.printStackTrace();
-       }
-
         isPlaced = false;
 
         super.getAudio().playBombSound();
         explode();
 
-
-
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException ie){
-            ie.printStackTrace();
-        }
-
-
-
-        clearExplosion();
-
-        isActive = false;
-        hitPlayer = false;
-
-
-
+        BombTimer.schedule(clearTask, GameConstants.EXPLOSIONMILLIS);
     }
 
     /**
-     * Updates {@link #cells} with explosion images and saves location of
+     * Updates {@link #grid} with explosion images and marks the
      * cells changed in {@link #explodedCells} so they can be set to empty
      * when explosion is cleared using {@link #clearExplosion()}.
      *
      */
-    private void explode(){
-        explodedCells = new ArrayList<Integer[]>();
-        explodedCellsHitPlayerCheck = new ArrayList<Integer[]>();
+    public void explode(){
+        explodedCells.clear();
 
-        cells[positionX][positionY].setImageName(ImageName.EXPLOSIONCENTRE);
-        explodedCells.add(new Integer[]{positionX, positionY});
+        grid.setImageName(positionX, positionY, ImageName.EXPLOSIONCENTRE);
+        explodedCells.set(positionX, positionY);
 
-        for (int i = 1; i < 3; i++){
+        for (int i = 1; i <= GameConstants.EXPLOSIONRANGE; i++){
             int tempPositionX = positionX-i;
 
             if(tempPositionX >= 0 && !containsPermTerrain(tempPositionX, positionY)){
 
                 if (i > 1)
-                    cells[tempPositionX][positionY].setImageName(ImageName.EXPLOSIONTOPTWO);
+                    grid.setImageName(tempPositionX, positionY, ImageName.EXPLOSIONTOPTWO);
                 else
-                    cells[tempPositionX][positionY].setImageName(ImageName.EXPLOSIONTOPONE);
+                    grid.setImageName(tempPositionX, positionY, ImageName.EXPLOSIONTOPONE);
 
-                explodedCells.add(new Integer[]{tempPositionX, positionY});
+                explodedCells.set(tempPositionX, positionY);
 
 
             } else {
@@ -177,19 +161,19 @@ public class Bomb extends GameObject implements Runnable  {
 
         }
 
-        for (int i = 1; i < 3; i++){
+        for (int i = 1; i <= GameConstants.EXPLOSIONRANGE; i++){
             int tempPositionX = positionX+i;
 
 
-            if(tempPositionX < cells.length && !containsPermTerrain(tempPositionX, positionY)){
+            if(tempPositionX < grid.getSize() && !containsPermTerrain(tempPositionX, positionY)){
 
 
                 if (i > 1)
-                    cells[tempPositionX][positionY].setImageName(ImageName.EXPLOSIONBOTTOMTWO);
+                    grid.setImageName(tempPositionX, positionY, ImageName.EXPLOSIONBOTTOMTWO);
                 else
-                    cells[tempPositionX][positionY].setImageName(ImageName.EXPLOSIONBOTTOMONE);
+                    grid.setImageName(tempPositionX, positionY, ImageName.EXPLOSIONBOTTOMONE);
 
-                explodedCells.add(new Integer[]{tempPositionX, positionY});
+                explodedCells.set(tempPositionX, positionY);
 
 
             } else {
@@ -198,7 +182,7 @@ public class Bomb extends GameObject implements Runnable  {
 
         }
 
-        for (int i = 1; i < 3; i++){
+        for (int i = 1; i <= GameConstants.EXPLOSIONRANGE; i++){
             int tempPositionY = positionY-i;
 
 
@@ -206,11 +190,11 @@ public class Bomb extends GameObject implements Runnable  {
             if(tempPositionY >= 0 && !containsPermTerrain(positionX, tempPositionY)){
 
                 if (i > 1)
-                    cells[positionX][tempPositionY].setImageName(ImageName.EXPLOSIONLEFTTWO);
+                    grid.setImageName(positionX, tempPositionY, ImageName.EXPLOSIONLEFTTWO);
                 else
-                    cells[positionX][tempPositionY].setImageName(ImageName.EXPLOSIONLEFTONE);
+                    grid.setImageName(positionX, tempPositionY, ImageName.EXPLOSIONLEFTONE);
 
-                explodedCells.add(new Integer[]{positionX, tempPositionY});
+                explodedCells.set(positionX, tempPositionY);
 
 
 
@@ -221,20 +205,20 @@ public class Bomb extends GameObject implements Runnable  {
 
         }
 
-        for (int i = 1; i < 3; i++){
+        for (int i = 1; i <= GameConstants.EXPLOSIONRANGE; i++){
             int tempPositionY = positionY+i;
 
 
 
-            if(tempPositionY < cells.length && !containsPermTerrain(positionX, tempPositionY)){
+            if(tempPositionY < grid.getSize() && !containsPermTerrain(positionX, tempPositionY)){
 
 
                 if (i > 1)
-                    cells[positionX][tempPositionY].setImageName(ImageName.EXPLOSIONRIGHTTWO);
+                    grid.setImageName(positionX, tempPositionY, ImageName.EXPLOSIONRIGHTTWO);
                 else
-                    cells[positionX][tempPositionY].setImageName(ImageName.EXPLOSIONRIGHTONE);
+                    grid.setImageName(positionX, tempPositionY, ImageName.EXPLOSIONRIGHTONE);
 
-                explodedCells.add(new Integer[]{positionX, tempPositionY});
+                explodedCells.set(positionX, tempPositionY);
 
 
 
@@ -246,56 +230,26 @@ public class Bomb extends GameObject implements Runnable  {
 
     }
 
-    /**
-     * Checks if players position is contained within the {@link #explodedCells}
-     * list and therefore has been hit by the bomb.
-     *
-     * @return true if player hit or else false if {@link #explodedCells} is null or size == 0
-     *  or players position not contained within the list.
-     *
-     */
-    public boolean isPlayerHit(int[] playerLocation){
-
-
-        if (explodedCells == null || explodedCells.size() == 0) {
-            return false;
-        }
-
-        explodedCellsHitPlayerCheck.clear();
-        explodedCellsHitPlayerCheck.addAll(explodedCells);
-
-        for (Integer[] tempPosition : explodedCellsHitPlayerCheck) {
-            if (tempPosition[0] == playerLocation[0] &&
-                    tempPosition[1] == playerLocation[1]) {
-                explodedCellsHitPlayerCheck.clear();
-                return true;
-            }
-        }
-
-        explodedCellsHitPlayerCheck.clear();
-        return false;
-    }
-
-
     /**
      * Clears the cells set to the explosion image. Iterates through
      * {@link #explodedCells} and if {@link #isGameOver} is false, sets them to empty,
      * and then restores the players images in case they were overwritten by the explosion.
      *
      */
-    private void clearExplosion(){
-        for (Integer[] tempPosition : explodedCells) {
-            if (!isGameOver)
-                cells[tempPosition[0]][tempPosition[1]].setImageName(ImageName.EMPTY);
+    public void clearExplosion(){
+        if (!isGameOver) {
+            for (int i = explodedCells.nextSetBit(0); i >= 0; i = explodedCells.nextSetBit(i + 1)) {
+                grid.setImageName(explodedCells.getX(i), explodedCells.getY(i), ImageName.EMPTY);
+            }
         }
 
         if (!isGameOver){
             int[] playerPosition = player.getPosition();
-            cells[playerPosition[0]][playerPosition[1]].setImageName(player.getCurrentImage());
+            grid.setImageName(playerPosition[0], playerPosition[1], player.getCurrentImage());
 
             if (otherPlayer != null){
                 playerPosition = otherPlayer.getPosition();
-                cells[playerPosition[0]][playerPosition[1]].setImageName(otherPlayer.getCurrentImage());
+                grid.setImageName(playerPosition[0], playerPosition[1], otherPlayer.getCurrentImage());
             }
         }
 
@@ -303,17 +257,17 @@ public class Bomb extends GameObject implements Runnable  {
     }
 
     /**
-     * Checks whether a specific cell contains the {@link ImageName#PERMTERRAIN} image.
+     * Checks whether a specific tile contains the {@link ImageName#PERMTERRAIN} image.
      *
      * @param positionX X position of cell being tested.
      * @param positionY Y position of cell being tested.
      * @return returns true if cell contains {@link ImageName#PERMTERRAIN}.
      */
     private boolean containsPermTerrain(int positionX, int positionY){
-        return cells[positionX][positionY].getImageName().equals(ImageName.PERMTERRAIN);
+        return grid.hasFlag(positionX, positionY, TileFlags.BLOCKSBLAST);
     }
 
-    public List<Integer[]> getExplodedCells(){
+    public GridBitSet getExplodedCells(){
         return explodedCells;
     }
 
@@ -329,14 +283,6 @@ public class Bomb extends GameObject implements Runnable  {
         return isPlaced;
     }
 
-    public boolean isHitPlayer(){
-        return hitPlayer;
-    }
-
-    public void setHitPlayer(boolean hitPlayer){
-        this.hitPlayer = hitPlayer;
-    }
-
     public void setGameOver(boolean gameOver){
         isGameOver = gameOver;
     }
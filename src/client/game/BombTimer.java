@@ -0,0 +1,59 @@
+package client.game;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the timer shared by every {@link Bomb} in the process. Fuses and explosions are
+ * scheduled as tasks on a single daemon thread rather than each bomb sleeping on a thread
+ * of its own, so any number of bombs can be counting down at once without costing a
+ * thread each. Tasks fire in deadline order and should return quickly, as a slow task
+ * delays the tasks due after it.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public final class BombTimer {
+
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private BombTimer(){
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer(){
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BombTimer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        timer.setRemoveOnCancelPolicy(true);
+
+        return timer;
+    }
+
+    /**
+     * Runs a task once the delay has passed.
+     *
+     * @param task the task to run.
+     * @param delayMillis the delay in milliseconds.
+     * @return the scheduled task, which can be used to cancel it.
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis){
+        return TIMER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the number of tasks waiting to run.
+     *
+     * @return the number of bombs counting down or exploding.
+     */
+    public static int getPendingTasks(){
+        return TIMER.getQueue().size();
+    }
+}
@@ -2,11 +2,17 @@ package client.game;
 
 import client.MessageBox;
 import common.GameConstants;
+import common.GridBitSet;
+import common.ImageName;
 import common.ServerShutDownException;
+import common.ThreadMode;
+import common.TileGrid;
 import common.PlayerQuitException;
+import common.WorldSnapshot;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -23,20 +29,22 @@ public class Game implements GameModel {
     private Socket socket;
     private Player player, otherPlayer;
     private Bomb bomb, otherPlayerBomb;
-    private DataInputStream fromServer;
-    private DataOutputStream toServer;
+    private TileGrid grid;
+    private ServerConnection connection;
+    private Executor connectionExecutor;
     //private int otherPlayerLives;
     private  Audio audio;
 
     public Game(Audio audio){
         this.audio = audio;
+        connectionExecutor = ThreadMode.fromSystemProperties().createExecutor("ServerConnection-");
        // otherPlayerLives =  GameConstants.PLAYERLIVES;
     }
 
     /**
-     * Adds socket to this object and initialises new Datainputstreams {@link #fromServer}
-     * and Dataoutputsteams {@link #toServer} based on this socket. These are used to
-     * communicate the game state with the server.
+     * Adds socket to this object and opens a {@link ServerConnection} {@link #connection}
+     * on it, which reads and writes frames on its own threads. This is used to communicate
+     * the game state with the server.
      *
      * @param socket the socket to be stored in this object.
      */
@@ -44,8 +52,7 @@ public class Game implements GameModel {
         this.socket = socket;
 
         try {
-            fromServer = new DataInputStream(socket.getInputStream());
-            toServer = new DataOutputStream(socket.getOutputStream());
+            connection = new ServerConnection(socket, connectionExecutor);
         } catch (IOException e) {
             new MessageBox("Problem with game, please restart menuBar");
         }
@@ -57,9 +64,10 @@ public class Game implements GameModel {
      * Initialises local player objects {@link #player} and {@link #bomb}.
      *
      */
-    public void createPlayer(int x, int y, int playerNum, Cell[][] cells){
-        player = new Player(cells, x, y, playerNum, audio);
-        bomb = new Bomb(cells, player, otherPlayer, audio);
+    public void createPlayer(int x, int y, int playerNum, TileGrid grid){
+        this.grid = grid;
+        player = new Player(grid, x, y, playerNum, audio);
+        bomb = new Bomb(grid, player, otherPlayer, audio);
 
 
     }
@@ -68,9 +76,9 @@ public class Game implements GameModel {
      * Initialises network player objects {@link #otherPlayer} and {@link #otherPlayerBomb}.
      *
      */
-    public void createOtherPlayer(int x, int y, int playerNum, Cell[][] cells){
-        otherPlayer = new Player(cells, x, y, playerNum, audio);
-        otherPlayerBomb = new Bomb(cells, otherPlayer, player, audio);
+    public void createOtherPlayer(int x, int y, int playerNum, TileGrid grid){
+        otherPlayer = new Player(grid, x, y, playerNum, audio);
+        otherPlayerBomb = new Bomb(grid, otherPlayer, player, audio);
     }
 
 
@@ -101,11 +109,8 @@ public class Game implements GameModel {
      */
     public void sendDisconnect(){
         try{
-            toServer.writeInt(GameConstants.PLAYERLEFTSESSION);
-            toServer.writeInt(GameConstants.PLAYERLEFTSESSION);
-            toServer.writeInt(GameConstants.PLAYERLEFTSESSION);
-            toServer.writeInt(GameConstants.PLAYERLEFTSESSION);
-            toServer.flush();
+            connection.send(new int[]{GameConstants.PLAYERLEFTSESSION, GameConstants.PLAYERLEFTSESSION,
+                    GameConstants.PLAYERLEFTSESSION, GameConstants.PLAYERLEFTSESSION});
         } catch (IOException ioe){
             //new MessageBox("Problem disconnecting from server, server may need restarting");
         }
@@ -114,11 +119,9 @@ public class Game implements GameModel {
     }
 
     /**
-     * Receives and returns an update from server. Four ints are
-     * read and stored in an array. Checks if first int equals
-     * {@link GameConstants#PLAYERLEFTSESSION} (other player left game) or
-     * {@link GameConstants#KICKED} (server shutdown) and throws the exception.
-     *
+     * Receives and returns an update from server, waiting for one if none has arrived.
+     * Checks if first int equals {@link GameConstants#PLAYERLEFTSESSION} (other player
+     * left game) or {@link GameConstants#KICKED} (server shutdown) and throws the exception.
      *
      * @return array of ints containing the server update.
      *
@@ -127,13 +130,26 @@ public class Game implements GameModel {
      */
     public int[] getUpdateFromServer() throws PlayerQuitException,
             IOException, ServerShutDownException, EOFException {
-        int playerData[] = new int[4];
+        return getUpdateFromServer(0);
+    }
 
-        playerData[0] = fromServer.readInt();
-        playerData[1] = fromServer.readInt();
-        playerData[2] = fromServer.readInt();
-        playerData[3] = fromServer.readInt();
+    /**
+     * Receives and returns an update from server, as {@link #getUpdateFromServer()}, waiting
+     * no longer than the time given. The update is taken from those already read by
+     * {@link #connection}, so only this thread waits, not the socket.
+     *
+     * @param timeoutMillis the longest time to wait, zero to wait until an update arrives,
+     *                      or less than zero not to wait.
+     * @return array of ints containing the server update, or null if none arrived in time.
+     *
+     * @throws PlayerQuitException when other player has left the game.
+     * @throws ServerShutDownException when server is shutdown.
+     */
+    public int[] getUpdateFromServer(long timeoutMillis) throws PlayerQuitException,
+            IOException, ServerShutDownException {
+        int[] playerData = connection.take(timeoutMillis);
 
+        if (playerData == null) return null;
 
         if(playerData[0] == GameConstants.PLAYERLEFTSESSION){
             throw new PlayerQuitException();
@@ -157,65 +173,47 @@ public class Game implements GameModel {
      * is sent. This stops the player from sending a large number of bomb positions
      * over the network.
      *
+     * The frame is queued in {@link #connection} and the method returns straight away.
+     *
      */
     public void sendPlayerData() throws IOException {
 
         int[] playerPos = getPlayerPosition();
 
-        toServer.writeInt(playerPos[0]);
-        toServer.writeInt(playerPos[1]);
-
         if(!bomb.isActive() || !bomb.isPlaced()){
-            toServer.writeInt(GameConstants.NOBOMB);
-            toServer.writeInt(GameConstants.NOBOMB);
+            sendPlayerData(new int[]{playerPos[0], playerPos[1],
+                    GameConstants.NOBOMB, GameConstants.NOBOMB});
 
         } else {
             int[] bombPosition = bomb.getPosition();
-            toServer.writeInt(bombPosition[0]);
-            toServer.writeInt(bombPosition[1]);
+            sendPlayerData(new int[]{playerPos[0], playerPos[1], bombPosition[0], bombPosition[1]});
         }
 
     }
 
     /**
-     * Sends player data to server.
+     * Sends player data to server. The frame is always queued, however far the
+     * connection has fallen behind, so messages such as {@link GameConstants#OTHERPLAYERREADY}
+     * and {@link GameConstants#SNAPSHOTACK} are never dropped.
      *
      * @param playerData the data to be sent.
      *
      */
     public void sendPlayerData(int[] playerData) throws IOException, NullPointerException {
-        toServer.writeInt(playerData[0]);
-        toServer.writeInt(playerData[1]);
-        toServer.writeInt(playerData[2]);
-        toServer.writeInt(playerData[3]);
-
-    }
-
-    /**
-     * Sends {@link GameConstants#PLAYERWON} to server. This informs the other player
-     * that this player has won.
-     *
-     */
-    public void sendPlayerWon() throws IOException{
-        toServer.writeInt(GameConstants.PLAYERWON);
-        toServer.writeInt(GameConstants.PLAYERWON);
-        toServer.writeInt(GameConstants.PLAYERWON);
-        toServer.writeInt(GameConstants.PLAYERWON);
+        connection.send(playerData);
 
     }
 
     /**
-     * Sends {@link GameConstants#PLAYERHIT} to server. This informs the other player
-     * that this player has been hit by a bomb..
+     * Sends an input event to the server, see {@link InputChannel}. Unlike
+     * {@link #sendPlayerData(int[])} the event is dropped if the connection has fallen
+     * behind, as the input channel sends it again at its next sample.
      *
+     * @param event the event to be sent.
+     * @return false if the event was dropped as the connection has fallen behind.
      */
-    public void sendPlayerHit() throws IOException{
-        toServer.writeInt(GameConstants.PLAYERHIT);
-        toServer.writeInt(GameConstants.PLAYERHIT);
-        toServer.writeInt(GameConstants.PLAYERHIT);
-        toServer.writeInt(GameConstants.PLAYERHIT);
-
-
+    public boolean sendInput(int[] event) throws IOException {
+        return connection.offer(event);
     }
 
     /**
@@ -228,34 +226,15 @@ public class Game implements GameModel {
     }
 
     /**
-     * Checks if local player has been hit by own bomb or other players bomb.
-     *
-     * Checks if both bombs are active and calls {@link Bomb#isPlayerHit(int[])}.
-     *
-     * If the player has been hit, there life is removed, and {@link client.game.Audio#playHitByBombSound()}
-     * is played.
+     * Invoked when the server reports the local player has been hit by a bomb.
+     * The players lives are set to those reported by the server and
+     * {@link client.game.Audio#playHitByBombSound()} is played.
      *
-     * @return returns true if player hit by bomb.
+     * @param livesLeft the players lives after the hit.
      */
-    public boolean checkIfPlayerHit(){
-        if (bomb.isActive() && bomb.isPlayerHit(player.getPosition()) &&
-                !bomb.isHitPlayer()){
-            bomb.setHitPlayer(true);
-            player.removeLife();
-            audio.playHitByBombSound();
-            return true;
-        }
-
-        if (otherPlayerBomb.isActive()
-                && otherPlayerBomb.isPlayerHit(player.getPosition()) &&
-                !otherPlayerBomb.isHitPlayer()) {
-            otherPlayerBomb.setHitPlayer(true);
-            player.removeLife();
-            audio.playHitByBombSound();
-            return true;
-        }
-
-        return false;
+    public void playerHit(int livesLeft){
+        player.setLives(livesLeft);
+        audio.playHitByBombSound();
     }
 
     /**
@@ -298,13 +277,60 @@ public class Game implements GameModel {
         return bombSet;
     }
 
+    /**
+     * Removes the terrain the server reports destroyed, so both players see the same map
+     * whatever the timing of the bombs on each client. Terrain is never put back, as the
+     * local copy of a bomb may explode before the server's.
+     *
+     * @param snapshot the world received from the server.
+     * @param changedTiles the tiles changed by the snapshot.
+     */
+    public void updateTerrain(WorldSnapshot snapshot, GridBitSet changedTiles){
+        if (grid == null) return;
+
+        byte empty = (byte) ImageName.EMPTY.ordinal();
+
+        for (int i = changedTiles.nextSetBit(0); i >= 0; i = changedTiles.nextSetBit(i + 1)) {
+            int positionX = changedTiles.getX(i);
+            int positionY = changedTiles.getY(i);
+
+            if (snapshot.getTile(i) == empty && grid.is(positionX, positionY, ImageName.TERRAIN)) {
+                grid.setImageName(positionX, positionY, ImageName.EMPTY);
+            }
+        }
+    }
+
+    /**
+     * Creates the update describing a player from a snapshot, the same as the server sends
+     * to clients not receiving snapshots, so it can be passed to {@link #updateCells(int[], Bomb, Player)}.
+     *
+     * @param snapshot the world received from the server.
+     * @param playerNum {@link GameConstants#PLAYER1} or {@link GameConstants#PLAYER2}.
+     * @return X, Y, bomb X, bomb Y ({@link GameConstants#NOBOMB} unless the bomb is lit).
+     */
+    public int[] getPlayerState(WorldSnapshot snapshot, int playerNum){
+        int playerEntity = WorldSnapshot.getPlayerEntity(playerNum);
+        int bombEntity = WorldSnapshot.getBombEntity(playerNum);
+        int[] state = {snapshot.getEntity(playerEntity, 0), snapshot.getEntity(playerEntity, 1),
+                GameConstants.NOBOMB, GameConstants.NOBOMB};
+
+        if (snapshot.getEntity(bombEntity, 0) == WorldSnapshot.BOMBLIT) {
+            state[2] = snapshot.getEntity(bombEntity, 1);
+            state[3] = snapshot.getEntity(bombEntity, 2);
+        }
+
+        return state;
+    }
+
     /**
      * Moves player based on move received from {@link client.game.GameController.InputListener}.
      *
+     * Synchronised with {@link #placePlayer(int, int)}, which is called by the game thread.
+     *
      * @param move {@link Moves} holds the possible moves.
      *
      */
-    public void movePlayer(Moves move){
+    public synchronized void movePlayer(Moves move){
 
         switch (move){
             case RIGHT:
@@ -327,24 +353,16 @@ public class Game implements GameModel {
         }
     }
 
+    /**
+     * Closes {@link #connection} once the frames already sent have been written.
+     *
+     */
     public void closeSocket(){
-        try {
-            socket.close();
-            fromServer.close();
-            toServer.close();
-        } catch (IOException e) {
-            new MessageBox("Problem disconnecting, please restart menuBar");
-        }
+        if (connection != null)
+            connection.close();
 
     }
 
-    public void flushStreams(){
-        try {
-            toServer.flush();
-        } catch (IOException ignored) {
-        }
-    }
-
     public void resetPlayerLives(){
         otherPlayer.setLives(GameConstants.PLAYERLIVES);
     }
@@ -365,10 +383,36 @@ public class Game implements GameModel {
         return otherPlayerBomb;
     }
 
-    public int[] getPlayerPosition(){
+    public synchronized int[] getPlayerPosition(){
         return player.getPosition();
     }
 
+    /**
+     * Puts the local player into a cell, see {@link Player#placeAt(int, int)}, unless they
+     * are already in it.
+     *
+     * @param positionX X position of the cell.
+     * @param positionY Y position of the cell.
+     */
+    public synchronized void placePlayer(int positionX, int positionY){
+        int[] position = player.getPosition();
+
+        if (position[0] != positionX || position[1] != positionY) {
+            player.placeAt(positionX, positionY);
+        }
+    }
+
+    /**
+     * @return true if the local bomb has been placed and has not yet been cleared.
+     */
+    public boolean isBombPlaced(){
+        return bomb.isActive() && bomb.isPlaced();
+    }
+
+    public int[] getBombPosition(){
+        return bomb.getPosition();
+    }
+
     public int getPlayerLives(){
         return player.getLives();
     }
@@ -382,8 +426,13 @@ public class Game implements GameModel {
         otherPlayerBomb.setGameOver(gameOver);
     }
 
-    public void otherPlayerHit(){
-        otherPlayer.removeLife();
+    /**
+     * Invoked when the server reports the other player has been hit by a bomb.
+     *
+     * @param livesLeft the other players lives after the hit.
+     */
+    public void otherPlayerHit(int livesLeft){
+        otherPlayer.setLives(livesLeft);
     }
 
 
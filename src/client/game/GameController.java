@@ -11,6 +11,7 @@ import java.awt.event.KeyListener;
 import java.io.EOFException;
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 /**
  * Class that acts as the controller for {@link Game}
@@ -18,6 +19,12 @@ import java.net.Socket;
  * the server, and updating the GUI in response to the server updates
  * (player moves, bombs, and changes in environment).
  *
+ * Frames are sent and received through the {@link ServerConnection} of {@link Game}.
+ * During a game the local player is sampled at a fixed rate by an {@link InputChannel},
+ * which sends only what has changed, and the server sends updates as they happen, so
+ * neither waits for the other. The world is received as snapshots of what has changed,
+ * rebuilt by a {@link SnapshotReceiver}.
+ *
  * @author Robert Wells
  * @version 1.0
  *
@@ -25,14 +32,18 @@ import java.net.Socket;
 public class GameController implements Runnable {
     private GamePanel gameView;
     private Game game;
-    private boolean isGameStarted;
+    private volatile boolean isGameStarted;
     private ClientController clientController;
     private int playerNum;
     private InputListener inputListener;
     private StatusBarView statusBarView;
     private boolean isThreadRunning;
-    private boolean clientDisconnected;
+    private volatile boolean clientDisconnected;
     private Audio audio;
+    private Executor gameExecutor;
+    private boolean isResetPending;
+    private InputChannel inputChannel;
+    private SnapshotReceiver snapshotReceiver;
 
     /**
      * Initialises variables. Sets {@link #isGameStarted} to false, {@link #isThreadRunning}
@@ -41,11 +52,13 @@ public class GameController implements Runnable {
      * @param gameView the window of the MVC.
      * @param game the model of the MVC.
      * @param statusBarView updated with information for players i.e. number of lives.
+     * @param gameExecutor runs this object each time the player connects to a server.
      *
      */
     public GameController(GamePanel gameView, Game game,
-                          StatusBarView statusBarView, Audio audio){
+                          StatusBarView statusBarView, Audio audio, Executor gameExecutor){
         this.audio = audio;
+        this.gameExecutor = gameExecutor;
         this.gameView = gameView;
         this.game = game;
         this.statusBarView = statusBarView;
@@ -53,6 +66,8 @@ public class GameController implements Runnable {
         isThreadRunning = true;
         inputListener = new InputListener();
         clientDisconnected = false;
+        inputChannel = new InputChannel(game);
+        snapshotReceiver = new SnapshotReceiver();
 
     }
 
@@ -111,19 +126,20 @@ public class GameController implements Runnable {
      *
      */
     private void resetGame(){
+        isResetPending = false;
         audio.stopBackgroundMusic();
 
         gameView.createEnvironment();
 
-        int xy = gameView.getCells().length - 1;
+        int xy = gameView.getGrid().getSize() - 1;
 
         if(playerNum == GameConstants.PLAYER1){
-            game.createPlayer(0, 0, 1, gameView.getCells());
-            game.createOtherPlayer(xy,xy, 2, gameView.getCells());
+            game.createPlayer(0, 0, 1, gameView.getGrid());
+            game.createOtherPlayer(xy,xy, 2, gameView.getGrid());
         } else if (playerNum == GameConstants.PLAYER2) {
 
-            game.createPlayer(xy, xy, 2, gameView.getCells());
-            game.createOtherPlayer(0, 0, 1, gameView.getCells());
+            game.createPlayer(xy, xy, 2, gameView.getGrid());
+            game.createOtherPlayer(0, 0, 1, gameView.getGrid());
         }
 
 
@@ -139,8 +155,8 @@ public class GameController implements Runnable {
      * (as not connected with another player yet), {@link GamePanel#createEnvironment()}
      * is invoked, the player put in starting position based on playerNum, the socket is passed to
      * {@link Game#addSocket(java.net.Socket)}, input listener is created and added,
-     * player waiting status is created, background music is started, and lastly a thread is
-     * created using this object.
+     * player waiting status is created, background music is started, and lastly this object
+     * is run on a new thread using {@link #gameExecutor}.
      *
      * @param socket the players socket, used to communicate with server.
      * @param playerNum the player number, used to place in correct position and paint correct
@@ -155,10 +171,10 @@ public class GameController implements Runnable {
         gameView.createEnvironment();
 
         if(playerNum == GameConstants.PLAYER1){
-            game.createPlayer(0, 0, 1, gameView.getCells());
+            game.createPlayer(0, 0, 1, gameView.getGrid());
         } else  {
-            int xy = gameView.getCells().length - 1;
-            game.createPlayer(xy, xy, 2, gameView.getCells());
+            int xy = gameView.getGrid().getSize() - 1;
+            game.createPlayer(xy, xy, 2, gameView.getGrid());
         }
 
         this.playerNum = playerNum;
@@ -172,7 +188,7 @@ public class GameController implements Runnable {
         audio.playBackgroundMusic();
 
 
-        new Thread(this).start();
+        gameExecutor.execute(this);
 
 
     }
@@ -212,7 +228,9 @@ public class GameController implements Runnable {
      * {@link #isGameStarted} set to false as the game is no longer being played.
      * {@link #isThreadRunning} set to false so that while loop in the thread is exited.
      * The {@link StatusBarView} text is cleared.
-     * A disconnect message is sent to the server by invoking {@link Game#sendDisconnect()}.
+     * A disconnect message is queued for the server by invoking {@link Game#sendDisconnect()}, and
+     * the connection closed once it has been written, which also wakes the thread if it is waiting
+     * for the server.
      * {@link GamePanel#resetEnvironment()} is invoked to clear the GUI.
      * {@link client.game.Game#setPlayerToNull()} is invoked to clear the players. Lastly,
      * the input listeners are removed.
@@ -223,11 +241,12 @@ public class GameController implements Runnable {
 
         audio.stopBackgroundMusic();
         statusBarView.clearText();
-       // game.sendDisconnect();
+
+        game.sendDisconnect();
+        game.closeSocket();
+
         gameView.resetEnvironment();
         game.setPlayerToNull();
-        //game.flushStreams();
-        //game.closeSocket();
         removeListeners();
 
 
@@ -236,12 +255,19 @@ public class GameController implements Runnable {
     /**
      * Invoked by {@link #run()} when the thread is running and {@link #isGameStarted} is set to false.
      *
-     * The message {@link GameConstants#OTHERPLAYERREADY} is sent to the server to signify
-     * that this is menuBar is ready to play. An update is received from the server and it is checked
-     * if the update equals {@link GameConstants#OTHERPLAYERREADY} to signify another player has connected.
-     * If true, then {@link #isGameStarted} is set to true and another update is sent and received. This
-     * is done to ensure that message passing is done in the correct order. Lastly, {@link #resetGame()}
-     * is invoked.
+     * If a game has just ended, the board is not reset until the ending animation has finished.
+     * The thread simply waits for the animation using {@link GamePanel#waitForEndingAnimation()}.
+     *
+     * The message {@link GameConstants#OTHERPLAYERREADY} is then sent to the server to signify
+     * that this is menuBar is ready to play, with {@link GameConstants#INPUTEVENTS} as the second
+     * int to signify that it sends its input as events, see {@link InputChannel}, and
+     * {@link GameConstants#SNAPSHOTS} as the third to receive the world as snapshots, see
+     * {@link SnapshotReceiver}, and the thread blocks until the server replies. The
+     * server only replies once the other player is ready too, with {@link GameConstants#OTHERPLAYERREADY},
+     * or if the other player leaves, so no messages are exchanged while waiting. When the game
+     * starts, {@link #isGameStarted} is set to true, another update is sent, {@link #resetGame()}
+     * is invoked and the reply received, applying any snapshot received before it. This is done
+     * to ensure that message passing is done in the correct order.
      *
      */
     private void waitForOtherPlayer() throws PlayerQuitException,
@@ -249,16 +275,26 @@ public class GameController implements Runnable {
 
         int[] serverUpdate;
 
+        if (isResetPending){
+            gameView.waitForEndingAnimation();
+
+            if (clientDisconnected){
+                return;
+            }
+
+            updateWaitingStatus();
+            resetGame();
+        }
+
         game.clearOtherPlayerImage();
 
         game.sendPlayerData(new int[]{GameConstants.OTHERPLAYERREADY,
-                GameConstants.OTHERPLAYERREADY, GameConstants.OTHERPLAYERREADY,
+                GameConstants.INPUTEVENTS, GameConstants.SNAPSHOTS,
                 GameConstants.OTHERPLAYERREADY});
 
         serverUpdate = game.getUpdateFromServer();
 
         if (clientDisconnected) {
-            game.sendDisconnect();
             isGameStarted = false;
             isThreadRunning = false;
         } else if (serverUpdate[0] == GameConstants.OTHERPLAYERREADY){
@@ -269,33 +305,104 @@ public class GameController implements Runnable {
                     GameConstants.OTHERPLAYERREADY, GameConstants.OTHERPLAYERREADY,
                     GameConstants.OTHERPLAYERREADY});
 
-            game.getUpdateFromServer();
+            resetGame();
 
+            inputChannel.reset();
 
-            resetGame();
+            snapshotReceiver.reset();
+
+            while (receiveSnapshot(game.getUpdateFromServer())) {
+                //The reply follows the snapshots sent as the game started.
+            }
 
         }
 
     }
 
     /**
-     * Invoked when win conditions have been met, performs necessary steps to
-     * inform players, play ending animation and reset the game.
+     * Passes an update to {@link #snapshotReceiver} if it is part of a snapshot. Once the
+     * whole snapshot has been received, it is acknowledged, terrain destroyed on the server
+     * is removed, the other player updated, see {@link #updateOtherPlayer(int[])}, and the
+     * local player corrected if the server rejected their move, see
+     * {@link InputChannel#correct(int, int, int)}.
+     *
+     * @param serverUpdate the update received from the server.
+     * @return true if the update was part of a snapshot.
+     */
+    private boolean receiveSnapshot(int[] serverUpdate) throws IOException {
+        if (!snapshotReceiver.isReceiving() && serverUpdate[0] != GameConstants.SNAPSHOT) {
+            return false;
+        }
+
+        WorldSnapshot snapshot = snapshotReceiver.receive(serverUpdate);
+
+        if (snapshot != null) {
+            game.sendPlayerData(new int[]{GameConstants.SNAPSHOTACK, snapshot.getSequence(),
+                    GameConstants.SNAPSHOTACK, GameConstants.SNAPSHOTACK});
+
+            game.updateTerrain(snapshot, snapshotReceiver.getChangedTiles());
+
+            int otherPlayerNum = playerNum == GameConstants.PLAYER1
+                    ? GameConstants.PLAYER2 : GameConstants.PLAYER1;
+
+            updateOtherPlayer(game.getPlayerState(snapshot, otherPlayerNum));
+
+            int playerEntity = WorldSnapshot.getPlayerEntity(playerNum);
+
+            inputChannel.correct(snapshot.getEntity(playerEntity, 0),
+                    snapshot.getEntity(playerEntity, 1), snapshot.getEntity(playerEntity, 3));
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves the other player to the position given and places their bomb if they have placed one.
+     *
+     * @param state X, Y, bomb X, bomb Y ({@link GameConstants#NOBOMB} if not placed).
+     */
+    private void updateOtherPlayer(int[] state) throws ArrayIndexOutOfBoundsException {
+        if (game.updateCells(state, game.getOtherPlayerBomb(), game.getOtherPlayer())){
+            game.setOtherPlayerBomb(state[2], state[3]);
+        }
+    }
+
+    /**
+     * Invoked when the server reports the game has been won, performs necessary steps to
+     * inform players and start the ending animation. The game is reset by
+     * {@link #waitForOtherPlayer()} once the animation has finished.
      *
      */
     private void gameEnded(String message) throws IOException{
         game.setGameOverInBomb(true);
         isGameStarted = false;
         new MessageBox(message);
-        game.sendPlayerWon();
         gameView.runEndingAnimation();
-        updateWaitingStatus();
-        resetGame();
+        isResetPending = true;
+    }
+
+    /**
+     * Invoked when the server reports the result of a game, the winner is
+     * {@link GameConstants#DRAW} if both players lost their last life at once.
+     *
+     * @param winner the player number of the winner.
+     */
+    private void playerWon(int winner) throws IOException{
+        if (winner == GameConstants.DRAW){
+            gameEnded("Draw!");
+        } else if (winner == playerNum){
+            audio.playWinnerSound();
+            gameEnded("You Won!");
+        } else {
+            audio.playGameOverSound();
+            gameEnded("You Lost");
+        }
     }
 
     /**
      * Thread started when a menuBar connects to the server, performs the necessary steps
-     * to send and receive updates, update the GUI, and perform win checking.
+     * to send and receive updates and update the GUI. Hits and the winner are decided
+     * by the server, which reports them in place of the other players update.
      *
      * <pre>
      * Pseudo code:
@@ -309,38 +416,28 @@ public class GameController implements Runnable {
      *     play game start sound ({@link client.game.Audio#playGameStartSound()}.
      *
      *     while (other player is connected) {
-     *         update players lives.
+     *         if (time for the next input sample) {
+     *             update players lives.
      *
-     *         if (local player hit) {
-     *
-     *             if (local players lives = 0) {
-     *                  local player lost.
-     *                 play game over sound.
-     *                 call {@link #gameEnded(String)}
-     *                 break from loop.
-     *             } else {
-     *                 send player hit data to server.
-     *             }
+     *             send any change to the local player ({@link InputChannel#sample()}).
      *         }
      *
-     *         get update from server.
+     *         take an update received from the server, waiting no later than the next sample.
      *
-     *         update other players lives.
+     *         if (update is part of a snapshot) {
+     *             call {@link #receiveSnapshot(int[])}.
+     *         }
      *
      *         if (first int from server update = {@link GameConstants#PLAYERWON}){
-     *               if (other plays lives = 0) {
-     *                  Draw.
-     *                  call {@link #gameEnded(String)}
-     *               } else {
-     *                   local player won.
-     *                   play game won sound.
-     *
-     *               }
-     *
+     *               call {@link #playerWon(int)} with the winner.
      *               break from loop.
      *         } else if (first int from server update = {@link GameConstants#PLAYERHIT}) {
-     *             call {@link Game#otherPlayerHit()}.
-     *             update other players lives.
+     *             if (local player hit) {
+     *                 call {@link Game#playerHit(int)}.
+     *             } else {
+     *                 call {@link Game#otherPlayerHit(int)}.
+     *             }
+     *             update players lives.
      *         } else if (first int from server greater than 0) {
      *              update gameview with server update ({@link Game#updateCells(int[], Bomb, Player)}
      *
@@ -362,67 +459,78 @@ public class GameController implements Runnable {
 
         int[] serverUpdate;// = new int[4];
 
-        while (isThreadRunning){
+        while (isThreadRunning && !clientDisconnected){
             try {
 
                 while (!isGameStarted && !clientDisconnected){
                     waitForOtherPlayer();
                 }
 
-                if (!isThreadRunning){
+                if (!isThreadRunning || clientDisconnected){
                     break;
                 }
                 audio.playGameStartSound();
 
+                long sampleNanos = inputChannel.getSampleNanos();
+                long nextSampleTime = System.nanoTime();
 
                 while (isGameStarted){
 
                     if (clientDisconnected) {
-                        game.sendDisconnect();
                         isGameStarted = false;
                         isThreadRunning = false;
                         break;
-                    } else {
+                    }
+
+                    long now = System.nanoTime();
+
+                    if (now - nextSampleTime >= 0) {
                         updatePlayerLives();
 
-                        if (game.checkIfPlayerHit()){
-                            updatePlayerLives();
-                            if (game.getPlayerLives() == 0) {
-                                audio.playGameOverSound();
-                                gameEnded("You Lost");
-                                break;
-                            } else
-                                game.sendPlayerHit();
-                        } else {
-                            game.sendPlayerData();
+                        inputChannel.sample();
+
+                        nextSampleTime += sampleNanos;
+
+                        if (nextSampleTime - now <= 0) {
+                            nextSampleTime = now + sampleNanos;
                         }
                     }
 
 
-                    serverUpdate = game.getUpdateFromServer();
+                    serverUpdate = game.getUpdateFromServer(
+                            Math.max(1, (nextSampleTime - System.nanoTime() + 999999) / 1000000L));
+
+                    if (serverUpdate == null){
+                        continue;
+                    }
+
+                    try {
+                        if (receiveSnapshot(serverUpdate)) {
+                            continue;
+                        }
+                    } catch (ArrayIndexOutOfBoundsException ai){
+                        break;
+                    }
 
                     updateOtherPlayerLives();
 
 
                         if (serverUpdate[0] == GameConstants.PLAYERWON ){
-                            if (game.getOtherPlayerLives() == 0){
-                                gameEnded("Draw!");
-                            } else {
-                                audio.playWinnerSound();
-                                gameEnded("You Won!");
-                            }
+                            playerWon(serverUpdate[1]);
                             break;
 
                         } else if(serverUpdate[0] == GameConstants.PLAYERHIT){
-                            game.otherPlayerHit();
-                            updateOtherPlayerLives();
+                            if (serverUpdate[1] == playerNum){
+                                game.playerHit(serverUpdate[2]);
+                                updatePlayerLives();
+                            } else {
+                                game.otherPlayerHit(serverUpdate[2]);
+                                updateOtherPlayerLives();
+                            }
                         } else {
                             if (serverUpdate[0] >= 0) {
                                 try{
-                                    if (game.updateCells(serverUpdate,
-                                            game.getOtherPlayerBomb(), game.getOtherPlayer())){
-                                        game.setOtherPlayerBomb(serverUpdate[2], serverUpdate[3]);
-                                    }
+                                    updateOtherPlayer(serverUpdate);
                                 } catch (ArrayIndexOutOfBoundsException ai){
                                     break;
 
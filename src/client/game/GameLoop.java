@@ -0,0 +1,324 @@
+package client.game;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Actively renders a {@link Scene} onto a {@link Canvas} using a {@link BufferStrategy},
+ * on its own thread, so the frame rate no longer depends on key events or network updates.
+ *
+ * The scene is advanced in fixed steps of {@link #stepNanos}, however long each frame takes,
+ * and is then drawn with how far the current time is between the last step and the next,
+ * so movement can be interpolated smoothly between steps. A slow frame is limited to
+ * {@link #MAXFRAMENANOS} of steps so the loop cannot fall ever further behind.
+ *
+ * A frame is only drawn if {@link Scene#isChanged()}, or the canvas has been resized or
+ * its buffer lost, otherwise the frame last shown stays on screen.
+ *
+ * The frame rate is capped at {@link #FPS_PROPERTY} frames a second, or uncapped if it is
+ * zero, and can be changed while running. Frame times are recorded and, if
+ * {@link #STATISTICS_PROPERTY} is true, printed every {@link #STATISTICSMILLIS} milliseconds:
+ *
+ * <pre>
+ * java -Dbomberman.client.fps=0 -Dbomberman.client.frameStatistics=true client.ClientTester
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class GameLoop implements Runnable {
+
+    public static final String FPS_PROPERTY = "bomberman.client.fps";
+    public static final String STATISTICS_PROPERTY = "bomberman.client.frameStatistics";
+
+    public static final int DEFAULTFPS = 60;
+    public static final int STEPSPERSECOND = 30;
+    public static final long MAXFRAMENANOS = 250000000L;
+    public static final long STATISTICSMILLIS = 5000;
+
+    private Canvas canvas;
+    private Scene scene;
+    private long stepNanos;
+    private volatile long frameNanos;
+    private volatile boolean isRunning;
+    private boolean isStatisticsPrinted;
+    private Thread thread;
+
+    private int drawnWidth, drawnHeight;
+
+    private volatile long frames, framesDrawn, steps, totalFrameNanos, maxFrameNanos;
+
+    /**
+     * Creates a loop with the frame rate cap and statistics set in the system properties.
+     *
+     * @param canvas the canvas to be drawn on, must be displayable before {@link #start()}.
+     * @param scene the scene to be advanced and drawn.
+     */
+    public GameLoop(Canvas canvas, Scene scene){
+        this.canvas = canvas;
+        this.scene = scene;
+        stepNanos = 1000000000L / STEPSPERSECOND;
+        isStatisticsPrinted = Boolean.getBoolean(STATISTICS_PROPERTY);
+
+        setFrameRateCap(Integer.getInteger(FPS_PROPERTY, DEFAULTFPS));
+    }
+
+    /**
+     * Starts the loop on a new thread, unless it is already running.
+     *
+     */
+    public synchronized void start(){
+        if (isRunning) return;
+
+        isRunning = true;
+        thread = new Thread(this, "GameLoop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop and waits for the current frame to finish.
+     *
+     */
+    public synchronized void stop(){
+        if (!isRunning) return;
+
+        isRunning = false;
+
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * Pseudo code:
+     *
+     * While (running) {
+     *     add the time since the last frame, up to {@link #MAXFRAMENANOS}, to the accumulator.
+     *
+     *     while (accumulator holds a whole step) {
+     *         {@link Scene#update()}.
+     *         take a step from the accumulator.
+     *     }
+     *
+     *     if (scene changed) {
+     *         draw the scene with alpha = accumulator / step ({@link #render(double, boolean)}).
+     *     }
+     *
+     *     if (frame rate capped) {
+     *         wait for the start of the next frame.
+     *     }
+     * }
+     * </pre>
+     *
+     */
+    public void run(){
+        long previousTime = System.nanoTime();
+        long nextFrameTime = previousTime;
+        long nextStatisticsTime = previousTime + STATISTICSMILLIS * 1000000L;
+        long accumulator = 0;
+
+        while (isRunning) {
+            long frameStart = System.nanoTime();
+            long elapsed = Math.min(frameStart - previousTime, MAXFRAMENANOS);
+            previousTime = frameStart;
+            accumulator += elapsed;
+
+            while (accumulator >= stepNanos) {
+                scene.update();
+                accumulator -= stepNanos;
+                steps++;
+            }
+
+            boolean isChanged = scene.isChanged();
+
+            try {
+                render((double) accumulator / stepNanos, isChanged);
+            } catch (IllegalStateException e) {
+                //The canvas is no longer displayable, try again next frame.
+                drawnWidth = -1;
+            }
+
+            recordFrame(System.nanoTime() - frameStart);
+
+            if (isStatisticsPrinted && frameStart >= nextStatisticsTime) {
+                System.out.println(getStatistics());
+                nextStatisticsTime = frameStart + STATISTICSMILLIS * 1000000L;
+            }
+
+            long frameNanos = this.frameNanos;
+
+            if (frameNanos > 0) {
+                nextFrameTime = Math.max(nextFrameTime + frameNanos, System.nanoTime() - frameNanos);
+
+                long wait;
+
+                while (isRunning && (wait = nextFrameTime - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Draws a frame into the back buffer of the canvas and shows it, drawing again if the
+     * buffer was lost while drawing. Nothing is drawn if the scene has not changed and the
+     * frame last shown is still on screen.
+     *
+     * @param alpha how far the time is between the last step and the next, 0 to 1.
+     * @param isChanged true if the scene has changed since it was last drawn.
+     */
+    private void render(double alpha, boolean isChanged){
+        BufferStrategy bufferStrategy = canvas.getBufferStrategy();
+
+        if (bufferStrategy == null) {
+            canvas.createBufferStrategy(2);
+            drawnWidth = -1;
+            return;
+        }
+
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+
+        if (!isChanged && width == drawnWidth && height == drawnHeight
+                && !bufferStrategy.contentsLost()) {
+            return;
+        }
+
+        drawnWidth = width;
+        drawnHeight = height;
+        framesDrawn++;
+
+        do {
+            do {
+                Graphics2D g = (Graphics2D) bufferStrategy.getDrawGraphics();
+
+                try {
+                    scene.render(g, width, height, alpha);
+                } finally {
+                    g.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void recordFrame(long nanos){
+        frames++;
+        totalFrameNanos += nanos;
+
+        if (nanos > maxFrameNanos) {
+            maxFrameNanos = nanos;
+        }
+    }
+
+    /**
+     * Sets the maximum frame rate.
+     *
+     * @param framesPerSecond the frame rate, or zero or less to draw as fast as possible.
+     */
+    public void setFrameRateCap(int framesPerSecond){
+        frameNanos = framesPerSecond > 0 ? 1000000000L / framesPerSecond : 0;
+    }
+
+    public int getFrameRateCap(){
+        long frameNanos = this.frameNanos;
+        return frameNanos > 0 ? (int) (1000000000L / frameNanos) : 0;
+    }
+
+    public long getFrames(){
+        return frames;
+    }
+
+    /**
+     * @return the number of frames drawn, the rest were skipped as nothing had changed.
+     */
+    public long getFramesDrawn(){
+        return framesDrawn;
+    }
+
+    public long getSteps(){
+        return steps;
+    }
+
+    /**
+     * @return the average time taken to update and draw a frame in nanoseconds.
+     */
+    public long getAverageFrameNanos(){
+        long frames = this.frames;
+        return frames == 0 ? 0 : totalFrameNanos / frames;
+    }
+
+    public long getMaxFrameNanos(){
+        return maxFrameNanos;
+    }
+
+    /**
+     * Clears the frame statistics.
+     *
+     */
+    public void resetStatistics(){
+        frames = 0;
+        framesDrawn = 0;
+        steps = 0;
+        totalFrameNanos = 0;
+        maxFrameNanos = 0;
+    }
+
+    /**
+     * @return a summary of the frame statistics since they were last reset.
+     */
+    public String getStatistics(){
+        return "Frames: " + frames + ", drawn: " + framesDrawn + ", steps: " + steps
+                + ", average frame: " + getAverageFrameNanos() / 1000 + "us"
+                + ", max frame: " + maxFrameNanos / 1000 + "us"
+                + ", cap: " + (getFrameRateCap() > 0 ? getFrameRateCap() + "fps" : "none");
+    }
+
+    public boolean isRunning(){
+        return isRunning;
+    }
+
+    /**
+     * Implemented by the view drawn by a {@link GameLoop}.
+     *
+     */
+    public interface Scene {
+
+        /**
+         * Advances the scene by one fixed step. Invoked on the loop thread.
+         *
+         */
+        public void update();
+
+        /**
+         * Invoked on the loop thread once a frame, before it is drawn.
+         *
+         * @return true if the scene must be drawn again, i.e. it has changed since it
+         * was last asked.
+         */
+        public boolean isChanged();
+
+        /**
+         * Draws the scene. Invoked on the loop thread.
+         *
+         * @param g the graphics of the back buffer.
+         * @param width the width of the canvas.
+         * @param height the height of the canvas.
+         * @param alpha how far the time is between the last step and the next, 0 to 1.
+         */
+        public void render(Graphics2D g, int width, int height, double alpha);
+    }
+}
@@ -1,7 +1,10 @@
 package client.game;
 
+import common.GridBitSet;
 import common.ServerShutDownException;
 import common.PlayerQuitException;
+import common.TileGrid;
+import common.WorldSnapshot;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -20,9 +23,9 @@ public interface GameModel {
 
     public void addSocket(Socket socket);
 
-    public void createPlayer(int x, int y, int playerNum, Cell[][] cells);
+    public void createPlayer(int x, int y, int playerNum, TileGrid grid);
 
-    public void createOtherPlayer(int x, int y, int playerNum, Cell[][] cells);
+    public void createOtherPlayer(int x, int y, int playerNum, TileGrid grid);
 
     public void setPlayerToNull();
 
@@ -33,16 +36,27 @@ public interface GameModel {
     public int[] getUpdateFromServer() throws PlayerQuitException,
             IOException, ServerShutDownException, EOFException;
 
+    public int[] getUpdateFromServer(long timeoutMillis) throws PlayerQuitException,
+            IOException, ServerShutDownException;
+
     public void sendPlayerData() throws IOException;
 
     public void sendPlayerData(int[] playerData) throws IOException, NullPointerException;
 
+    public boolean sendInput(int[] event) throws IOException;
+
     public void setOtherPlayerBomb(int positionX, int positionY);
 
-    public boolean checkIfPlayerHit();
+    public void playerHit(int livesLeft);
+
+    public void otherPlayerHit(int livesLeft);
 
     public boolean updateCells(int[] update, Bomb bomb, Player player) throws ArrayIndexOutOfBoundsException;
 
+    public void updateTerrain(WorldSnapshot snapshot, GridBitSet changedTiles);
+
+    public int[] getPlayerState(WorldSnapshot snapshot, int playerNum);
+
     public void movePlayer(Moves move);
 
     public void closeSocket();
@@ -2,444 +2,469 @@ package client.game;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyListener;
+import java.util.ArrayList;
+import java.util.List;
 
+import client.resource.ResourceManager;
 import common.GameConstants;
+import common.GridBitSet;
+import common.ImageName;
+import common.MapLayout;
+import common.TileGrid;
 
 /**
  * Class that acts as the window for {@link GameController}.
  * This class creates the main window for the player. This includes the initial screen
- * with the bomberman logo and the game screen. It also runs the game over animation.
+ * with the bomberman logo and the game screen. It also runs the game over animation, which
+ * is driven by a timer so the thread that starts it is not held up.
+ *
+ * The state of the game screen is held in {@link #grid}, which is painted onto this
+ * panel in a single pass by {@link #boardRenderer}; resetting the game only resets the grid.
+ *
+ * Tiles are changed by the game, network and bomb timer threads. Each change only marks the
+ * tile in {@link #dirtyTiles}; the first change after a repaint queues a task on the event
+ * dispatch thread, which repaints the area covering every tile marked since, so a move or an
+ * explosion touching several tiles is painted once and only the changed area is painted.
+ *
+ * When a screen is available the board is instead drawn onto a {@link Canvas} by a
+ * {@link GameLoop}, which steps {@link #playerSprites} at a fixed rate and draws each
+ * player part way between its last two tiles, so players slide between tiles at a steady
+ * frame rate whatever the timing of key presses and network updates. The sprites follow
+ * the tiles showing each player as they change, so no step searches the grid. Tile
+ * changes still mark {@link #dirtyTiles}, and the loop only draws a frame if a tile has
+ * changed, a player is sliding or the canvas needs to be redrawn, so an idle board costs
+ * no drawing.
  *
  * @author Robert Wells
  * @version 1.0
  *
  */
-public class GamePanel extends JPanel implements GameView, GameConstants {
-
-    private Cell[][] cells = new Cell[MAPSIZE][MAPSIZE];
-    private Cell startingCell;
-    private Image image;
+public class GamePanel extends JPanel implements GameView, GameConstants, TileGrid.TileListener {
+
+    private TileGrid grid;
+    private BoardRenderer boardRenderer;
+    private volatile boolean isBoardShown;
+    private final Object dirtyLock = new Object();
+    private GridBitSet dirtyTiles, repaintTiles;
+    private boolean isRepaintPending;
+    private boolean isRedrawDue;
+    private Runnable repaintTask;
+    private Canvas canvas;
+    private GameLoop gameLoop;
+    private PlayerSprite[] playerSprites;
+
+    public static final int ANIMATIONMILLIS = 15;
+    private static final int[] ENDINGANIMATION = createEndingAnimation();
+
+    private final Object animationLock = new Object();
+    private Timer animationTimer;
+    private long animationStart;
+    private int animationIndex;
+    private boolean isAnimationRunning;
 
     /**
-     * Calls {@link #createGUI()},
+     * Creates {@link #grid} and registers to repaint when it changes, then calls {@link #createGUI()}.
+     * The images are loaded in the background and the panel is repainted once they are ready.
+     * Unless running headless, the canvas drawn by {@link #gameLoop} is added.
      *
+     * @param resourceManager used to load the images.
      */
-    public GamePanel(){
-        image = new Image();
+    public GamePanel(ResourceManager resourceManager){
+        Image image = new Image(resourceManager);
+        boardRenderer = new BoardRenderer(image);
+        grid = new TileGrid(MAPSIZE);
+        dirtyTiles = new GridBitSet(grid.getSize());
+        repaintTiles = new GridBitSet(grid.getSize());
+        repaintTask = new Runnable() {
+            public void run() {
+                repaintDirtyTiles();
+            }
+        };
+        grid.addTileListener(this);
+
+        animationTimer = new Timer(ANIMATIONMILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                advanceEndingAnimation();
+            }
+        });
+
         createGUI();
 
+        if (!GraphicsEnvironment.isHeadless()) {
+            createCanvas();
+        }
+
+        image.whenLoaded(new Runnable() {
+            public void run() {
+                repaintAll();
+            }
+        });
+
     }
 
     /**
      * Creates the initial game screen seen by clients and {@link #setFocusable(boolean)}
-     * to true so that keyboard input is registered. Initialises {@link #startingCell}
-     * and adds them to the screen and calls {@link #showStartScreen()}.
+     * to true so that keyboard input is registered, then calls {@link #showStartScreen()}.
      *
      */
     private void createGUI(){
         setFocusable(true);
+        setBackground(Color.white);
 
-        setLayout(new GridLayout(1, 1, 0, 0));
+        showStartScreen();
 
+    }
 
-        add(startingCell = new Cell(0, 0, image));
+    /**
+     * Adds a canvas filling the panel, drawn by {@link #gameLoop} while it is on screen.
+     *
+     */
+    private void createCanvas(){
+        playerSprites = new PlayerSprite[]{new PlayerSprite(1), new PlayerSprite(2)};
 
+        canvas = new BoardCanvas();
+        canvas.setFocusable(true);
 
-        showStartScreen();
+        gameLoop = new GameLoop(canvas, new BoardScene());
 
+        setLayout(new BorderLayout());
+        add(canvas, BorderLayout.CENTER);
     }
 
     /**
-     * Creates the game environment. Removes {@link #startingCell} and initialises
-     * {@link #cells} and adds to screen. Calls {@link #setPermanentTerrain()} and
-     * {@link #setTerrain()}.
+     * Creates the game environment. Stops the ending animation if it is still running,
+     * calls {@link #setTerrain()} and shows {@link #grid} in place of the logo.
      *
      */
     public void createEnvironment(){
+        stopEndingAnimation();
+        setTerrain();
 
-        remove(startingCell);
-
+        isBoardShown = true;
 
-        for (int i = 0; i < cells.length; i++)
-            for (int j = 0; j < cells.length; j++) {
-                //   cells[i][j].clearCell();
+        repaintAll();
+    }
 
-                if (cells [i][j] != null)
-                    remove(cells[i][j]);
+    /**
+     * Adds permanent and destroyable terrain to screen, using the layout
+     * shared with the server in {@link MapLayout}.
+     *
+     */
+    private void setTerrain(){
+        MapLayout.resetGrid(grid);
 
+        if (playerSprites == null) return;
 
+        synchronized (dirtyLock) {
+            for (PlayerSprite playerSprite : playerSprites) {
+                playerSprite.hide();
             }
+        }
+    }
 
+    /**
+     * Paints {@link #grid} if the game environment has been created, otherwise the logo.
+     *
+     */
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
 
-        for (int i = 0; i < cells.length; i++)
-            for (int j = 0; j < cells.length; j++) {
-                add(cells[i][j] = new Cell(i, j, image));
-            }
+        if (canvas != null) return;
 
-        setPermanentTerrain();
-        setTerrain();
+        if (isBoardShown)
+            boardRenderer.paintBoard(g, grid, getWidth(), getHeight(), getGraphicsConfiguration());
+        else
+            boardRenderer.paintTitle(g);
+    }
 
-        setLayout(new GridLayout(cells.length, cells.length, 0, 0));
+    /**
+     * Repaints the whole panel, or has {@link #gameLoop} draw its next frame.
+     *
+     */
+    private void repaintAll(){
+        synchronized (dirtyLock) {
+            isRedrawDue = true;
+        }
 
         repaint();
     }
 
     /**
-     * Adds permanent terrain to screen.
+     * Marks a tile of {@link #grid} as changed, and queues {@link #repaintDirtyTiles()}
+     * unless it is already queued. May be invoked from any thread. When {@link #gameLoop}
+     * draws the board the tile is only marked and passed to {@link #playerSprites}, and
+     * the loop draws its next frame.
      *
      */
-    private void setPermanentTerrain(){
-        cells[1][1].setImageName(ImageName.PERMTERRAIN);
-        cells[3][1].setImageName(ImageName.PERMTERRAIN);
-        cells[5][1].setImageName(ImageName.PERMTERRAIN);
-        cells[7][1].setImageName(ImageName.PERMTERRAIN);
-        cells[9][1].setImageName(ImageName.PERMTERRAIN);
-
-        cells[1][3].setImageName(ImageName.PERMTERRAIN);
-        cells[3][3].setImageName(ImageName.PERMTERRAIN);
-        cells[5][3].setImageName(ImageName.PERMTERRAIN);
-        cells[7][3].setImageName(ImageName.PERMTERRAIN);
-        cells[9][3].setImageName(ImageName.PERMTERRAIN);
-
-        cells[1][5].setImageName(ImageName.PERMTERRAIN);
-        cells[3][5].setImageName(ImageName.PERMTERRAIN);
-        cells[5][5].setImageName(ImageName.PERMTERRAIN);
-        cells[7][5].setImageName(ImageName.PERMTERRAIN);
-        cells[9][5].setImageName(ImageName.PERMTERRAIN);
-
-        cells[1][7].setImageName(ImageName.PERMTERRAIN);
-        cells[3][7].setImageName(ImageName.PERMTERRAIN);
-        cells[5][7].setImageName(ImageName.PERMTERRAIN);
-        cells[7][7].setImageName(ImageName.PERMTERRAIN);
-        cells[9][7].setImageName(ImageName.PERMTERRAIN);
-
-        cells[1][9].setImageName(ImageName.PERMTERRAIN);
-        cells[3][9].setImageName(ImageName.PERMTERRAIN);
-        cells[5][9].setImageName(ImageName.PERMTERRAIN);
-        cells[7][9].setImageName(ImageName.PERMTERRAIN);
-        cells[9][9].setImageName(ImageName.PERMTERRAIN);
+    public void tileChanged(int positionX, int positionY){
+        ImageName imageName = grid.getImageName(positionX, positionY);
 
+        synchronized (dirtyLock) {
+            dirtyTiles.set(positionX, positionY);
 
+            if (playerSprites != null) {
+                for (PlayerSprite playerSprite : playerSprites) {
+                    playerSprite.tileChanged(positionX, positionY, imageName);
+                }
+            }
+
+            if (gameLoop != null || isRepaintPending) return;
+
+            isRepaintPending = true;
+        }
+
+        SwingUtilities.invokeLater(repaintTask);
     }
 
     /**
-     * Adds destroyable terrain to screen.
+     * Invoked on the event dispatch thread. Takes the tiles marked in {@link #dirtyTiles}
+     * and repaints the smallest area covering all of them.
      *
      */
-    private void setTerrain(){
-        cells[0][2].setImageName(ImageName.TERRAIN);
-        cells[0][3].setImageName(ImageName.TERRAIN);
-        cells[0][4].setImageName(ImageName.TERRAIN);
-        cells[0][5].setImageName(ImageName.TERRAIN);
-        cells[0][7].setImageName(ImageName.TERRAIN);
-
-        cells[1][2].setImageName(ImageName.TERRAIN);
-        cells[1][4].setImageName(ImageName.TERRAIN);
-
-        cells[2][3].setImageName(ImageName.TERRAIN);
-        cells[2][4].setImageName(ImageName.TERRAIN);
-        cells[2][5].setImageName(ImageName.TERRAIN);
-        cells[2][6].setImageName(ImageName.TERRAIN);
-        cells[2][7].setImageName(ImageName.TERRAIN);
-        cells[2][8].setImageName(ImageName.TERRAIN);
-
-        cells[3][0].setImageName(ImageName.TERRAIN);
-        cells[3][2].setImageName(ImageName.TERRAIN);
-        cells[3][4].setImageName(ImageName.TERRAIN);
-        cells[3][8].setImageName(ImageName.TERRAIN);
-        cells[3][10].setImageName(ImageName.TERRAIN);
-
-        cells[4][2].setImageName(ImageName.TERRAIN);
-        cells[4][4].setImageName(ImageName.TERRAIN);
-        cells[4][5].setImageName(ImageName.TERRAIN);
-        cells[4][6].setImageName(ImageName.TERRAIN);
-        cells[4][7].setImageName(ImageName.TERRAIN);
-        cells[4][8].setImageName(ImageName.TERRAIN);
-
-        cells[5][0].setImageName(ImageName.TERRAIN);
-        cells[5][2].setImageName(ImageName.TERRAIN);
-        cells[5][8].setImageName(ImageName.TERRAIN);
-        cells[5][10].setImageName(ImageName.TERRAIN);
-
-        cells[6][2].setImageName(ImageName.TERRAIN);
-        cells[6][3].setImageName(ImageName.TERRAIN);
-        cells[6][5].setImageName(ImageName.TERRAIN);
-        cells[6][8].setImageName(ImageName.TERRAIN);
-        cells[6][9].setImageName(ImageName.TERRAIN);
-        cells[6][10].setImageName(ImageName.TERRAIN);
-
-        cells[7][0].setImageName(ImageName.TERRAIN);
-        cells[7][2].setImageName(ImageName.TERRAIN);
-        cells[7][4].setImageName(ImageName.TERRAIN);
-        cells[7][6].setImageName(ImageName.TERRAIN);
-        cells[7][8].setImageName(ImageName.TERRAIN);
-        cells[7][10].setImageName(ImageName.TERRAIN);
-
-        cells[8][2].setImageName(ImageName.TERRAIN);
-        cells[8][3].setImageName(ImageName.TERRAIN);
-        cells[8][4].setImageName(ImageName.TERRAIN);
-        cells[8][5].setImageName(ImageName.TERRAIN);
-        cells[8][6].setImageName(ImageName.TERRAIN);
-        cells[8][7].setImageName(ImageName.TERRAIN);
-
-        cells[9][6].setImageName(ImageName.TERRAIN);
-        cells[9][10].setImageName(ImageName.TERRAIN);
-
-        cells[10][3].setImageName(ImageName.TERRAIN);
-        cells[10][5].setImageName(ImageName.TERRAIN);
-        cells[10][6].setImageName(ImageName.TERRAIN);
-        cells[10][7].setImageName(ImageName.TERRAIN);
+    private void repaintDirtyTiles(){
+        GridBitSet tiles;
+
+        synchronized (dirtyLock) {
+            tiles = dirtyTiles;
+            dirtyTiles = repaintTiles;
+            repaintTiles = tiles;
+            isRepaintPending = false;
+        }
+
+        int size = grid.getSize();
+        int tileWidth = getWidth() / size;
+        int tileHeight = getHeight() / size;
+        int minRow = size, maxRow = -1, minColumn = size, maxColumn = -1;
+
+        for (int i = tiles.nextSetBit(0); i >= 0; i = tiles.nextSetBit(i + 1)) {
+            minRow = Math.min(minRow, tiles.getX(i));
+            maxRow = Math.max(maxRow, tiles.getX(i));
+            minColumn = Math.min(minColumn, tiles.getY(i));
+            maxColumn = Math.max(maxColumn, tiles.getY(i));
+        }
+
+        tiles.clear();
 
+        if (maxRow < 0 || !isBoardShown) return;
 
+        repaint(minColumn * tileWidth, minRow * tileHeight,
+                (maxColumn - minColumn + 1) * tileWidth, (maxRow - minRow + 1) * tileHeight);
     }
 
 
     /**
-     * Runs the animation when the win condition has been met.
-     * {@link #cells} is updated with {@link ImageName#ANIMATIONBLOCK} in a spiral pattern.
+     * Starts the animation shown when the win condition has been met and returns straight
+     * away. {@link #grid} is filled with {@link ImageName#ANIMATIONBLOCK} in a spiral pattern,
+     * one tile every {@link #ANIMATIONMILLIS}, by {@link #animationTimer}. The tiles due are
+     * worked out from the time since the animation started, so a late timer catches up rather
+     * than slowing the animation down.
      *
      */
     public void runEndingAnimation(){
+        synchronized (animationLock) {
+            animationStart = System.nanoTime();
+            animationIndex = 0;
+            isAnimationRunning = true;
+        }
 
-        //top right to bottom right
-        int ANIMATIONSLEEP = 15;
+        animationTimer.restart();
+    }
 
-        for (int i = 0; i < GameConstants.MAPSIZE; i++) {
-            cells[i][GameConstants.MAPSIZE-1].setImageName(ImageName.ANIMATIONBLOCK);
+    /**
+     * Invoked on the event dispatch thread by {@link #animationTimer}. Fills every tile of
+     * {@link #ENDINGANIMATION} due by now, stopping once the last is filled.
+     *
+     */
+    private void advanceEndingAnimation(){
+        synchronized (animationLock) {
+            if (!isAnimationRunning) return;
 
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
+            long elapsedMillis = (System.nanoTime() - animationStart) / 1000000L;
+            int tilesDue = (int) Math.min(ENDINGANIMATION.length, elapsedMillis / ANIMATIONMILLIS + 1);
+
+            for (; animationIndex < tilesDue; animationIndex++) {
+                int tile = ENDINGANIMATION[animationIndex];
+                grid.setImageName(tile / MAPSIZE, tile % MAPSIZE, ImageName.ANIMATIONBLOCK);
+            }
+
+            if (animationIndex == ENDINGANIMATION.length) {
+                isAnimationRunning = false;
+                animationTimer.stop();
+                animationLock.notifyAll();
             }
         }
+    }
 
-        //bottom right to bottom left
-        for (int i = GameConstants.MAPSIZE-2; i > -1; i--) {
-            cells[GameConstants.MAPSIZE-1][i].setImageName(ImageName.ANIMATIONBLOCK);
+    /**
+     * Stops the ending animation, leaving the tiles already filled.
+     *
+     */
+    private void stopEndingAnimation(){
+        synchronized (animationLock) {
+            isAnimationRunning = false;
+            animationLock.notifyAll();
+        }
+
+        animationTimer.stop();
+    }
 
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
+    /**
+     * @return true until every tile of the ending animation has been filled, unless
+     * the animation is stopped by the environment being created or reset.
+     */
+    public boolean isEndingAnimationRunning(){
+        synchronized (animationLock) {
+            return isAnimationRunning;
+        }
+    }
+
+    /**
+     * Blocks until the ending animation has finished or been stopped, returning straight
+     * away if it is not running. Must not be invoked on the event dispatch thread, which
+     * runs the animation.
+     *
+     */
+    public void waitForEndingAnimation(){
+        synchronized (animationLock) {
+            while (isAnimationRunning) {
+                try {
+                    animationLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
         }
+    }
+
+    /**
+     * Lists the tiles of the ending animation in the order they are filled, each stored
+     * as {@code X * MAPSIZE + Y}.
+     *
+     */
+    private static int[] createEndingAnimation(){
+        List<Integer> tiles = new ArrayList<Integer>();
+
+        //top right to bottom right
+        for (int i = 0; i < GameConstants.MAPSIZE; i++) {
+            addTile(tiles, i, GameConstants.MAPSIZE-1);
+        }
+
+        //bottom right to bottom left
+        for (int i = GameConstants.MAPSIZE-2; i > -1; i--) {
+            addTile(tiles, GameConstants.MAPSIZE-1, i);
+        }
 
         //bottom left to top left
         for (int i = GameConstants.MAPSIZE-1; i > -1; i--) {
-            cells[i][0].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, 0);
         }
 
         //top left to top right
         for (int i = 1; i < GameConstants.MAPSIZE; i++) {
-            cells[0][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, 0, i);
         }
 
         for (int i = 0; i < GameConstants.MAPSIZE-1; i++) {
-            cells[i][GameConstants.MAPSIZE-2].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, GameConstants.MAPSIZE-2);
         }
 
         for (int i = GameConstants.MAPSIZE-3; i > -1; i--) {
-            cells[GameConstants.MAPSIZE-2][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, GameConstants.MAPSIZE-2, i);
         }
 
         for (int i = GameConstants.MAPSIZE-2; i > -1; i--) {
-            cells[i][1].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, 1);
         }
 
         for (int i = 1; i < GameConstants.MAPSIZE-1; i++) {
-            cells[1][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, 1, i);
         }
 
         for (int i = 1; i < GameConstants.MAPSIZE-1; i++) {
-            cells[i][GameConstants.MAPSIZE-3].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, GameConstants.MAPSIZE-3);
         }
 
         for (int i = GameConstants.MAPSIZE-4; i > 1; i--) {
-            cells[GameConstants.MAPSIZE-3][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, GameConstants.MAPSIZE-3, i);
         }
 
         for (int i = GameConstants.MAPSIZE-3; i > 1; i--) {
-            cells[i][2].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, 2);
         }
 
         for (int i = 3; i < GameConstants.MAPSIZE-2; i++) {
-            cells[2][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, 2, i);
         }
 
         for (int i = 2; i < GameConstants.MAPSIZE-3; i++) {
-            cells[i][GameConstants.MAPSIZE-4].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, GameConstants.MAPSIZE-4);
         }
 
         for (int i = GameConstants.MAPSIZE-3; i > 2; i--) {
-            cells[GameConstants.MAPSIZE-4][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, GameConstants.MAPSIZE-4, i);
         }
 
         for (int i = GameConstants.MAPSIZE-3; i > 2; i--) {
-            cells[i][3].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, 3);
         }
 
         for (int i = 3; i < GameConstants.MAPSIZE-4; i++) {
-            cells[3][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, 3, i);
         }
 
         for (int i = 4; i < GameConstants.MAPSIZE-4; i++) {
-            cells[i][GameConstants.MAPSIZE-5].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, GameConstants.MAPSIZE-5);
         }
 
         for (int i = GameConstants.MAPSIZE-5; i > 3; i--) {
-            cells[GameConstants.MAPSIZE-5][i].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, GameConstants.MAPSIZE-5, i);
         }
 
         //bottom left to top left
         for (int i = GameConstants.MAPSIZE-6; i > 3; i--) {
-            cells[i][4].setImageName(ImageName.ANIMATIONBLOCK);
-
-            try{
-                Thread.sleep(ANIMATIONSLEEP);
-            } catch (InterruptedException ie){
-                ie.printStackTrace();
-            }
+            addTile(tiles, i, 4);
         }
 
-        cells[4][5].setImageName(ImageName.ANIMATIONBLOCK);
+        addTile(tiles, 4, 5);
+
+        addTile(tiles, 5, 5);
+
+        int[] animation = new int[tiles.size()];
 
-        try{
-            Thread.sleep(ANIMATIONSLEEP);
-        } catch (InterruptedException ie){
-            ie.printStackTrace();
+        for (int i = 0; i < animation.length; i++) {
+            animation[i] = tiles.get(i);
         }
 
-        cells[5][5].setImageName(ImageName.ANIMATIONBLOCK);
+        return animation;
+    }
+
+    private static void addTile(List<Integer> tiles, int positionX, int positionY){
+        tiles.add(positionX * MAPSIZE + positionY);
     }
 
     /**
-     * Updates {@link #startingCell} with the images for the logo.
+     * Shows the logo in place of the game environment.
      *
      */
     public void showStartScreen(){
-        startingCell.setImageName(ImageName.TITLE);
+        stopEndingAnimation();
+        isBoardShown = false;
+        repaintAll();
 
     }
 
 
     /**
-     * Removes {@link #cells} from the screen and calls
-     * {@link #createGUI()}. This resets the environment to the
+     * Calls {@link #createGUI()}. This resets the environment to the
      * starting screen.
      *
      */
     public void resetEnvironment(){
-        if(cells != null){
-
-
-            for (int i = 0; i < cells.length; i++)
-                for (int j = 0; j < cells.length; j++) {
-                    remove(cells[i][j]);
-                }
-
-        }
-
         createGUI();
-
-        //repaint();
     }
 
 
@@ -450,6 +475,8 @@ public class GamePanel extends JPanel implements GameView, GameConstants {
      */
     public void addInputListener(KeyListener keyListener){
         addKeyListener(keyListener);
+
+        if (canvas != null) canvas.addKeyListener(keyListener);
     }
 
     /**
@@ -460,17 +487,196 @@ public class GamePanel extends JPanel implements GameView, GameConstants {
      */
     public void removeInputListener(KeyListener keyListener){
         removeKeyListener(keyListener);
+
+        if (canvas != null) canvas.removeKeyListener(keyListener);
     }
 
-    public Cell[][] getCells(){
-        return cells;
+    public TileGrid getGrid(){
+        return grid;
     }
 
-    public void setCells(Cell[][] cells){
-        this.cells = cells;
-        repaint();
+    /**
+     * @return the loop drawing the board, or null if running headless.
+     */
+    public GameLoop getGameLoop(){
+        return gameLoop;
+    }
+
+    /**
+     * Inner class that starts {@link #gameLoop} when it is shown on screen and
+     * stops it when removed. The canvas is only drawn by the loop, so a request to
+     * paint it, e.g. once it has been uncovered, has the loop draw its next frame.
+     *
+     */
+    private class BoardCanvas extends Canvas {
+        private static final long serialVersionUID = 1L;
+
+        public void paint(Graphics g) {
+            repaintAll();
+        }
+
+        public void update(Graphics g) {
+            repaintAll();
+        }
+
+        public void addNotify() {
+            super.addNotify();
+            gameLoop.start();
+        }
+
+        public void removeNotify() {
+            gameLoop.stop();
+            super.removeNotify();
+        }
     }
 
+    /**
+     * Inner class drawn by {@link #gameLoop}. Each step moves the players to the tiles
+     * last reported by {@link #tileChanged(int, int)}, and each frame draws the board
+     * without them, then the players between their last two positions. A frame is only
+     * drawn if {@link #dirtyTiles} holds a tile, a redraw is due or a player is sliding
+     * between tiles.
+     *
+     */
+    private class BoardScene implements GameLoop.Scene {
+        public void update() {
+            synchronized (dirtyLock) {
+                boolean isMoved = false;
+
+                for (PlayerSprite playerSprite : playerSprites) {
+                    isMoved |= playerSprite.step();
+                }
+
+                if (isMoved) {
+                    isRedrawDue = true;
+                }
+            }
+        }
+
+        public boolean isChanged() {
+            boolean isChanged;
+
+            synchronized (dirtyLock) {
+                isChanged = isRedrawDue || !dirtyTiles.isEmpty();
+                isRedrawDue = false;
+                dirtyTiles.clear();
+            }
+
+            for (PlayerSprite playerSprite : playerSprites) {
+                isChanged |= playerSprite.isSliding();
+            }
+
+            return isChanged;
+        }
+
+        public void render(Graphics2D g, int width, int height, double alpha) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, width, height);
+
+            if (isBoardShown) {
+                boardRenderer.paintBoard(g, grid, width, height,
+                        canvas.getGraphicsConfiguration(), false);
+
+                for (PlayerSprite playerSprite : playerSprites) {
+                    playerSprite.paint(g, alpha);
+                }
+            } else {
+                boardRenderer.paintTitle(g);
+            }
+        }
+    }
+
+    /**
+     * Inner class holding the position of a player at the last two steps of {@link #gameLoop}.
+     * A player that moves more than one tile in a step, i.e. is placed at the start of a game,
+     * is not slid across the board. The tile the player is moving to is kept in the next
+     * fields, which are guarded by {@link #dirtyLock}.
+     *
+     */
+    private class PlayerSprite {
+        private int playerNum;
+        private int previousX, previousY, positionX, positionY;
+        private ImageName imageName;
+        private boolean isShown, isOnBomb;
+        private int nextX, nextY;
+        private ImageName nextImageName;
+        private boolean isNextShown, isNextOnBomb;
+
+        public PlayerSprite(int playerNum){
+            this.playerNum = playerNum;
+            nextX = -1;
+        }
+
+        /**
+         * Follows the tile showing the player. A player who places a bomb stays on its
+         * tile, drawn under the bomb, until they move off it. Any other image replacing
+         * the player, e.g. an explosion, hides them.
+         *
+         */
+        public void tileChanged(int positionX, int positionY, ImageName imageName){
+            if (BoardRenderer.getPlayerNum(imageName) == playerNum) {
+                nextX = positionX;
+                nextY = positionY;
+                nextImageName = imageName;
+                isNextShown = true;
+                isNextOnBomb = false;
+            } else if (positionX == nextX && positionY == nextY) {
+                isNextOnBomb = imageName == ImageName.BOMB;
+                isNextShown = isNextOnBomb;
+            }
+        }
+
+        public void hide(){
+            nextX = -1;
+            isNextShown = false;
+            isNextOnBomb = false;
+        }
+
+        /**
+         * Moves to the tile the player was last shown on.
+         *
+         * @return true if the sprite is drawn differently from the last step.
+         */
+        public boolean step(){
+            boolean isAdjacent = isShown && isNextShown
+                    && Math.abs(nextX - positionX) + Math.abs(nextY - positionY) <= 1;
+            int lastX = previousX, lastY = previousY;
+            int lastPositionX = positionX, lastPositionY = positionY;
+            ImageName lastImageName = imageName;
+            boolean wasShown = isShown, wasOnBomb = isOnBomb;
+
+            previousX = isAdjacent ? positionX : nextX;
+            previousY = isAdjacent ? positionY : nextY;
+            positionX = nextX;
+            positionY = nextY;
+            imageName = nextImageName;
+            isShown = isNextShown;
+            isOnBomb = isNextOnBomb;
+
+            return previousX != lastX || previousY != lastY || positionX != lastPositionX
+                    || positionY != lastPositionY || imageName != lastImageName
+                    || isShown != wasShown || isOnBomb != wasOnBomb;
+        }
+
+        /**
+         * @return true while the sprite is drawn between two tiles.
+         */
+        public boolean isSliding(){
+            return isShown && (previousX != positionX || previousY != positionY);
+        }
+
+        public void paint(Graphics g, double alpha){
+            if (!isShown) return;
+
+            boardRenderer.paintSprite(g, imageName,
+                    previousX + (positionX - previousX) * alpha,
+                    previousY + (positionY - previousY) * alpha);
+
+            if (isOnBomb) {
+                boardRenderer.paintSprite(g, ImageName.BOMB, positionX, positionY);
+            }
+        }
+    }
 
 }
 
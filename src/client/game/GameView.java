@@ -17,6 +17,10 @@ public interface GameView {
 
     public void runEndingAnimation();
 
+    public boolean isEndingAnimationRunning();
+
+    public void waitForEndingAnimation();
+
     public void showStartScreen();
 
     public void resetEnvironment();
@@ -1,14 +1,20 @@
 package client.game;
 
-import javax.imageio.ImageIO;
-import javax.swing.*;
+import client.MessageBox;
+import client.resource.ResourceManager;
+
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Class that holds the images used throughout the game. Images files contained within
- * ./Sprites folder.
+ * ./Sprites folder, or the Sprites folder of the resource archive.
+ *
+ * Every image starts loading in parallel when this class is created, through a
+ * {@link ResourceManager}, and each getter waits for its image. Use {@link #whenLoaded(Runnable)}
+ * to be told once every image is ready rather than waiting.
  *
  * @author Robert Wells
  * @version 1.0
@@ -16,171 +22,195 @@ import java.io.IOException;
  */
 public class Image {
 
-    private BufferedImage explosionCentre,explosionBottomOne, explosionBottomTwo,
+    private Future<BufferedImage> explosionCentre,explosionBottomOne, explosionBottomTwo,
         explosionRightOne, explosionRightTwo, explosionTopOne, explosionTopTwo,
         explosionLeftOne, explosionLeftTwo, playerOneForward, playerOneLeft,
         playerOneRight, playerOneBack, playerTwoForward, playerTwoLeft,
         playerTwoRight, playerTwoBack, bomb, terrain, permTerrain, animationBlock,
         title, arrow;
 
+    private ResourceManager resourceManager;
+    private List<Future<BufferedImage>> images;
+    private volatile boolean isLoaded;
+
+    /**
+     * Starts loading every image, the title first so it can be shown as soon as possible.
+     * If any image cannot be loaded the player is told once all have finished.
+     *
+     * @param resourceManager used to load the images.
+     */
+    public Image(ResourceManager resourceManager){
+        this.resourceManager = resourceManager;
+        images = new ArrayList<Future<BufferedImage>>();
+
+        title = load("title");
+        arrow = load("arrow");
+        explosionCentre = load("explosionCentre");
+        explosionBottomOne = load("explosionBottomOne");
+        explosionBottomTwo = load("explosionBottomTwo");
+        explosionRightOne = load("explosionRightOne");
+        explosionRightTwo = load("explosionRightTwo");
+        explosionTopOne = load("explosionTopOne");
+        explosionTopTwo = load("explosionTopTwo");
+        explosionLeftOne = load("explosionLeftOne");
+        explosionLeftTwo = load("explosionLeftTwo");
+        playerOneForward = load("playerOneForward");
+        playerOneLeft = load("playerOneLeft");
+        playerOneRight = load("playerOneRight");
+        playerOneBack = load("playerOneBack");
+        playerTwoForward = load("playerTwoForward");
+        playerTwoLeft = load("playerTwoLeft");
+        playerTwoRight = load("playerTwoRight");
+        playerTwoBack = load("playerTwoBack");
+        bomb = load("bomb");
+        terrain = load("terrain");
+        permTerrain = load("permTerrain");
+        animationBlock = load("terrain");
+
+        whenLoaded(new Runnable() {
+            public void run() {
+                for (Future<BufferedImage> image : images) {
+                    if (ResourceManager.await(image) == null) {
+                        new MessageBox("Problem loading file");
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private Future<BufferedImage> load(String name){
+        Future<BufferedImage> image = resourceManager.getImage("Sprites/" + name + ".png");
+        images.add(image);
+        return image;
+    }
+
+    /**
+     * Runs a task once every image has finished loading, successfully or not. The task is
+     * not run on the event dispatch thread.
+     *
+     * @param task the task to run.
+     */
+    public void whenLoaded(final Runnable task){
+        resourceManager.whenDone(images, new Runnable() {
+            public void run() {
+                isLoaded = true;
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * @return true if every image has finished loading.
+     */
+    public boolean isLoaded(){
+        if (!isLoaded) {
+            for (Future<BufferedImage> image : images) {
+                if (!image.isDone()) return false;
+            }
+
+            isLoaded = true;
+        }
 
+        return isLoaded;
+    }
 
-
-    public Image(){
-        try {
-            explosionCentre = ImageIO.read(new File("Sprites//explosionCentre.png"));
-
-            explosionBottomOne
-                    = ImageIO.read(new File("Sprites//explosionBottomOne.png"));
-
-            explosionBottomTwo
-                    = ImageIO.read(new File("Sprites//explosionBottomTwo.png"));
-
-            explosionRightOne
-                    = ImageIO.read(new File("Sprites//explosionRightOne.png"));
-
-            explosionRightTwo
-                    = ImageIO.read(new File("Sprites//explosionRightTwo.png"));
-
-            explosionTopOne
-                    = ImageIO.read(new File("Sprites//explosionTopOne.png"));
-
-            explosionTopTwo
-                    = ImageIO.read(new File("Sprites//explosionTopTwo.png"));
-
-            explosionLeftOne
-                    = ImageIO.read(new File("Sprites//explosionLeftOne.png"));
-
-            explosionLeftTwo
-                    = ImageIO.read(new File("Sprites//explosionLeftTwo.png"));
-
-            playerOneForward = ImageIO.read(new File("Sprites//playerOneForward.png"));
-
-            playerOneLeft = ImageIO.read(new File("Sprites//playerOneLeft.png"));
-
-            playerOneRight = ImageIO.read(new File("Sprites//playerOneRight.png"));
-
-            playerOneBack = ImageIO.read(new File("Sprites//playerOneBack.png"));
-
-            playerTwoForward = ImageIO.read(new File("Sprites//playerTwoForward.png"));
-
-            playerTwoLeft = ImageIO.read(new File("Sprites//playerTwoLeft.png"));
-
-            playerTwoRight = ImageIO.read(new File("Sprites//playerTwoRight.png"));
-
-            playerTwoBack = ImageIO.read(new File("Sprites//playerTwoBack.png"));
-
-            bomb = ImageIO.read(new File("Sprites//bomb.png"));
-
-            terrain = ImageIO.read(new File("Sprites//terrain.png"));
-
-            permTerrain = ImageIO.read(new File("Sprites//permTerrain.png"));
-
-            animationBlock
-                    = ImageIO.read(new File("Sprites//terrain.png"));
-
-            title
-                    = ImageIO.read(new File("Sprites//title.png"));
-
-            arrow
-                    = ImageIO.read(new File("Sprites//arrow.png"));
-
-
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Problem loading file");
-        }
+    /**
+     * @return true if the title has finished loading, it is loaded before the other images.
+     */
+    public boolean isTitleLoaded(){
+        return title.isDone();
     }
 
     public BufferedImage getExplosionCentre() {
-        return explosionCentre;
+        return ResourceManager.await(explosionCentre);
     }
 
     public BufferedImage getExplosionBottomOne() {
-        return explosionBottomOne;
+        return ResourceManager.await(explosionBottomOne);
     }
 
     public BufferedImage getExplosionBottomTwo() {
-        return explosionBottomTwo;
+        return ResourceManager.await(explosionBottomTwo);
     }
 
     public BufferedImage getExplosionRightOne() {
-        return explosionRightOne;
+        return ResourceManager.await(explosionRightOne);
     }
 
     public BufferedImage getExplosionRightTwo() {
-        return explosionRightTwo;
+        return ResourceManager.await(explosionRightTwo);
     }
 
     public BufferedImage getExplosionTopOne() {
-        return explosionTopOne;
+        return ResourceManager.await(explosionTopOne);
     }
 
     public BufferedImage getExplosionTopTwo() {
-        return explosionTopTwo;
+        return ResourceManager.await(explosionTopTwo);
     }
 
     public BufferedImage getExplosionLeftOne() {
-        return explosionLeftOne;
+        return ResourceManager.await(explosionLeftOne);
     }
 
     public BufferedImage getExplosionLeftTwo() {
-        return explosionLeftTwo;
+        return ResourceManager.await(explosionLeftTwo);
     }
 
     public BufferedImage getPlayerOneForward() {
-        return playerOneForward;
+        return ResourceManager.await(playerOneForward);
     }
 
     public BufferedImage getPlayerOneLeft() {
-        return playerOneLeft;
+        return ResourceManager.await(playerOneLeft);
     }
 
     public BufferedImage getPlayerOneRight() {
-        return playerOneRight;
+        return ResourceManager.await(playerOneRight);
     }
 
     public BufferedImage getPlayerOneBack() {
-        return playerOneBack;
+        return ResourceManager.await(playerOneBack);
     }
 
     public BufferedImage getPlayerTwoForward() {
-        return playerTwoForward;
+        return ResourceManager.await(playerTwoForward);
     }
 
     public BufferedImage getPlayerTwoLeft() {
-        return playerTwoLeft;
+        return ResourceManager.await(playerTwoLeft);
     }
 
     public BufferedImage getPlayerTwoRight() {
-        return playerTwoRight;
+        return ResourceManager.await(playerTwoRight);
     }
 
     public BufferedImage getPlayerTwoBack() {
-        return playerTwoBack;
+        return ResourceManager.await(playerTwoBack);
     }
 
     public BufferedImage getBomb() {
-        return bomb;
+        return ResourceManager.await(bomb);
     }
 
     public BufferedImage getTerrain() {
-        return terrain;
+        return ResourceManager.await(terrain);
     }
 
     public BufferedImage getPermTerrain() {
-        return permTerrain;
+        return ResourceManager.await(permTerrain);
     }
 
     public BufferedImage getAnimationBlock() {
-        return animationBlock;
+        return ResourceManager.await(animationBlock);
     }
 
-
     public BufferedImage getTitle() {
-        return title;
+        return ResourceManager.await(title);
     }
 
     public BufferedImage getArrow() {
-        return arrow;
+        return ResourceManager.await(arrow);
     }
 }
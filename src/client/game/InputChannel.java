@@ -0,0 +1,142 @@
+package client.game;
+
+import common.GameConstants;
+
+import java.io.IOException;
+
+/**
+ * Upstream half of the game protocol. Rather than sending the full state of the local
+ * player after every update received, {@link GameController} samples it with
+ * {@link #sample()} at a fixed rate, {@link #INPUTRATE_PROPERTY} times a second, and only
+ * the changes since the last sample are sent to the server as events:
+ *
+ * <pre>
+ * {BOMBPLACED, bomb X, bomb Y, BOMBPLACED}       once when the bomb is placed.
+ * {PLAYERMOVED, X, Y, PLAYERMOVED}               when the player has moved.
+ * </pre>
+ *
+ * Nothing is sent while the player is idle, and at most two events are sent each sample
+ * however fast keys are pressed. The position sent is where the player ended up.
+ *
+ * The player moves locally straight away, so a move the server rejects would leave them
+ * somewhere the server does not have them. Each snapshot counts the moves the server has
+ * received from the player, and once it has received every move sent, a position other
+ * than the last one sent is a rejected move: {@link #correct(int, int, int)} puts the
+ * player back where the server has them.
+ *
+ * The rate must be high enough for the server to accept the moves made between two
+ * samples, see {@link #MININPUTRATE}, for example:
+ *
+ * <pre>
+ * java -Dbomberman.client.inputRate=30 client.ClientTester
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class InputChannel {
+
+    public static final String INPUTRATE_PROPERTY = "bomberman.client.inputRate";
+
+    public static final int DEFAULTINPUTRATE = 20;
+    public static final int MININPUTRATE = 10;
+    public static final int MAXINPUTRATE = 120;
+
+    private Game game;
+    private long sampleNanos;
+    private int sentX, sentY;
+    private boolean isBombSent;
+    private int movesSent;
+
+    /**
+     * Creates a channel sampling at the rate set in the system properties.
+     *
+     * @param game the model holding the local player, and the connection events are sent on.
+     */
+    public InputChannel(Game game){
+        this.game = game;
+
+        int inputRate = Math.max(MININPUTRATE, Math.min(MAXINPUTRATE,
+                Integer.getInteger(INPUTRATE_PROPERTY, DEFAULTINPUTRATE)));
+
+        sampleNanos = 1000000000L / inputRate;
+    }
+
+    /**
+     * Takes the current state of the local player as already known to the server,
+     * e.g. their starting position at the start of a game.
+     *
+     */
+    public void reset(){
+        int[] position = game.getPlayerPosition();
+
+        sentX = position[0];
+        sentY = position[1];
+        isBombSent = false;
+        movesSent = 0;
+    }
+
+    /**
+     * Sends an event for each change to the local player since the last sample. The bomb
+     * is sent first, as it was placed on a cell the player has been in since the last
+     * position sent. An event that cannot be queued is sent at the next sample instead.
+     *
+     * @throws IOException if the connection has failed.
+     */
+    public void sample() throws IOException {
+        boolean isBombPlaced = game.isBombPlaced();
+
+        if (isBombPlaced && !isBombSent) {
+            int[] bombPosition = game.getBombPosition();
+
+            isBombSent = send(GameConstants.BOMBPLACED, bombPosition[0], bombPosition[1]);
+        } else if (!isBombPlaced) {
+            isBombSent = false;
+        }
+
+        int[] position = game.getPlayerPosition();
+
+        if ((position[0] != sentX || position[1] != sentY)
+                && send(GameConstants.PLAYERMOVED, position[0], position[1])) {
+            sentX = position[0];
+            sentY = position[1];
+            movesSent++;
+        }
+    }
+
+    /**
+     * Checks the local player against the state of their entity in a snapshot. Snapshots
+     * taken before the server received the last move sent are ignored, as the move is still
+     * on its way. Otherwise the player is put where the server has them, if that is not the
+     * position last sent, and the next sample sends moves from there.
+     *
+     * @param positionX X position of the player on the server.
+     * @param positionY Y position of the player on the server.
+     * @param movesReceived the moves the server has received from the player this game.
+     * @return true if the player was corrected.
+     */
+    public boolean correct(int positionX, int positionY, int movesReceived){
+        if (movesReceived != movesSent || (positionX == sentX && positionY == sentY)) {
+            return false;
+        }
+
+        game.placePlayer(positionX, positionY);
+
+        sentX = positionX;
+        sentY = positionY;
+
+        return true;
+    }
+
+    private boolean send(int event, int positionX, int positionY) throws IOException {
+        return game.sendInput(new int[]{event, positionX, positionY, event});
+    }
+
+    /**
+     * @return the time between samples in nanoseconds.
+     */
+    public long getSampleNanos(){
+        return sampleNanos;
+    }
+}
@@ -1,6 +1,9 @@
 package client.game;
 
 import common.GameConstants;
+import common.ImageName;
+import common.TileFlags;
+import common.TileGrid;
 
 /**
  * Represents the player, deals with movement and the correct use of images e.g.
@@ -12,7 +15,7 @@ import common.GameConstants;
  */
 public class Player extends GameObject {
 
-    private Cell[][] cells;
+    private TileGrid grid;
     private ImageName imageForward, imageLeft, imageRight, imageBack,
             currentImage;
     private int lives;
@@ -24,7 +27,7 @@ public class Player extends GameObject {
      * {@link #currentImage} is set to {@link #imageForward} and {@link #placePlayer(ImageName)}
      * is called.
      *
-     * @param cells the environment in which the player exists.
+     * @param grid the environment in which the player exists.
      *              Used for movement and updating the players image position.
      * @param positionX X position of player within the cells.
      * @param positionY Y position of player within the cells.
@@ -32,10 +35,10 @@ public class Player extends GameObject {
      * @param audio used to play {@link client.game.Audio#playMoveSound()} when player moves.
      *
      */
-    public Player(Cell[][] cells, int positionX, int positionY,
+    public Player(TileGrid grid, int positionX, int positionY,
                   int playerNum, Audio audio){
         super(audio);
-        this.cells = cells;
+        this.grid = grid;
         this.positionX = positionX;
         this.positionY = positionY;
         lives = GameConstants.PLAYERLIVES;
@@ -60,12 +63,11 @@ public class Player extends GameObject {
     }
 
     /**
-     * Sets the image of the cell of the players position equal to the players image.
+     * Sets the image of the tile of the players position equal to the players image.
      *
      */
     private void placePlayer(ImageName imageName){
-        cells[positionX][positionY].setImageName(imageName);
-        cells[positionX][positionY].repaint();
+        grid.setImageName(positionX, positionY, imageName);
     }
 
 
@@ -79,31 +81,58 @@ public class Player extends GameObject {
      * character has moved up one cell and therefore {@link #movePlayerUP()} is called to update
      * the local image of the player accordingly.
      *
+     * A position further away, e.g. two cells or a move up and right sent together, or a
+     * move the local grid does not allow, is applied with {@link #placeAt(int, int)}.
+     *
      */
     public void setPosition(int positionX, int positionY) {
 
+        if (Math.abs(this.positionX - positionX) + Math.abs(this.positionY - positionY) == 1) {
 
-        if (this.positionX-1 == positionX) {
-
-            movePlayerUP();
+            if (this.positionX-1 == positionX) {
 
-        } else if (this.positionY+1 == positionY) {
+                movePlayerUP();
 
+            } else if (this.positionY+1 == positionY) {
 
-            movePlayerRight();
+                movePlayerRight();
 
-        } else if (this.positionX+1 == positionX) {
+            } else if (this.positionX+1 == positionX) {
 
-            movePlayerDown();
-        } else if (this.positionY-1 == positionY){
+                movePlayerDown();
+            } else {
 
-            movePlayerLeft();
+                movePlayerLeft();
+            }
         }
 
+        if (this.positionX != positionX || this.positionY != positionY) {
+            placeAt(positionX, positionY);
+        }
 
     }
 
 
+    /**
+     * Puts the player straight into a cell, however far away, e.g. where the server has
+     * them after rejecting a move. The cell left is cleared as when moving one cell.
+     *
+     * @param positionX X position of the cell.
+     * @param positionY Y position of the cell.
+     */
+    public void placeAt(int positionX, int positionY){
+        if(!checkForBomb(this.positionX, this.positionY)) {
+            if (!checkForExplosion(this.positionX, this.positionY))
+                grid.setImageName(this.positionX, this.positionY, ImageName.EMPTY);
+        }
+        else
+            grid.setImageName(this.positionX, this.positionY, ImageName.BOMB);
+
+        this.positionX = positionX;
+        this.positionY = positionY;
+        placePlayer(currentImage);
+    }
+
     /**
      * Moves the player up one cell. First checks that the player can move
      * by calling {@link #canMove(int, int)}. If the player can move the players
@@ -118,13 +147,13 @@ public class Player extends GameObject {
         if(tempPositionX >= 0 && canMove(tempPositionX, positionY)){
             if(!checkForBomb(positionX, positionY)) {
                 if (!checkForExplosion(positionX, positionY))
-                    cells[positionX][positionY].setImageName(ImageName.EMPTY);
+                    grid.setImageName(positionX, positionY, ImageName.EMPTY);
             }
             else
-                cells[positionX][positionY].setImageName(ImageName.BOMB);
+                grid.setImageName(positionX, positionY, ImageName.BOMB);
 
             positionX--;
-            cells[positionX][positionY].setImageName(imageBack);
+            grid.setImageName(positionX, positionY, imageBack);
             currentImage = imageBack;
 
         }
@@ -145,12 +174,12 @@ public class Player extends GameObject {
         if(tempPositionY >= 0 && canMove(positionX, tempPositionY)){
             if(!checkForBomb(positionX, positionY)){
                 if (!checkForExplosion(positionX, positionY))
-                    cells[positionX][positionY].setImageName(ImageName.EMPTY);
+                    grid.setImageName(positionX, positionY, ImageName.EMPTY);
             } else
-                cells[positionX][positionY].setImageName(ImageName.BOMB);
+                grid.setImageName(positionX, positionY, ImageName.BOMB);
 
             positionY--;
-            cells[positionX][positionY].setImageName(imageLeft);
+            grid.setImageName(positionX, positionY, imageLeft);
             currentImage = imageLeft;
             //audio.playMoveSound();
         }
@@ -168,15 +197,15 @@ public class Player extends GameObject {
     public void movePlayerDown(){
         int tempPositionX = positionX + 1;
 
-        if(tempPositionX < cells.length && canMove(tempPositionX, positionY)){
+        if(tempPositionX < grid.getSize() && canMove(tempPositionX, positionY)){
             if(!checkForBomb(positionX, positionY)){
                  if (!checkForExplosion(positionX, positionY))
-                    cells[positionX][positionY].setImageName(ImageName.EMPTY);
+                    grid.setImageName(positionX, positionY, ImageName.EMPTY);
             }else
-                cells[positionX][positionY].setImageName(ImageName.BOMB);
+                grid.setImageName(positionX, positionY, ImageName.BOMB);
 
             positionX++;
-            cells[positionX][positionY].setImageName(imageForward);
+            grid.setImageName(positionX, positionY, imageForward);
             currentImage = imageForward;
         }
     }
@@ -193,17 +222,17 @@ public class Player extends GameObject {
     public void movePlayerRight(){
         int tempPositionY = positionY + 1;
 
-        if(tempPositionY < cells.length && canMove(positionX, tempPositionY)){
+        if(tempPositionY < grid.getSize() && canMove(positionX, tempPositionY)){
             if(!checkForBomb(positionX, positionY)) {
                 if (!checkForExplosion(positionX, positionY))
-                    cells[positionX][positionY].setImageName(ImageName.EMPTY);
+                    grid.setImageName(positionX, positionY, ImageName.EMPTY);
             }
             else
-                cells[positionX][positionY].setImageName(ImageName.BOMB);
+                grid.setImageName(positionX, positionY, ImageName.BOMB);
 
 
             positionY++;
-            cells[positionX][positionY].setImageName(imageRight);
+            grid.setImageName(positionX, positionY, imageRight);
             currentImage = imageRight;
 
         }
@@ -216,7 +245,7 @@ public class Player extends GameObject {
      *
      */
     private boolean checkForBomb(int positionX, int positionY){
-        return cells[positionX][positionY].getImageName().equals(ImageName.BOMB);
+        return grid.hasFlag(positionX, positionY, TileFlags.BOMB);
 
     }
 
@@ -227,15 +256,7 @@ public class Player extends GameObject {
      *
      */
     private boolean checkForExplosion(int positionX, int positionY){
-        return cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONLEFTTWO) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONLEFTONE) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONBOTTOMTWO) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONBOTTOMONE) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONRIGHTTWO) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONRIGHTONE) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONTOPONE) ||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONTOPTWO)||
-                cells[positionX][positionY].getImageName().equals(ImageName.EXPLOSIONCENTRE);
+        return grid.hasFlag(positionX, positionY, TileFlags.EXPLOSION);
     }
 
     /**
@@ -249,8 +270,7 @@ public class Player extends GameObject {
      *
      */
     private boolean canMove(int positionX, int positionY){
-        if(cells[positionX][positionY].getImageName().equals(ImageName.EMPTY) ||
-                checkForExplosion(positionX, positionY)) {
+        if(grid.hasFlag(positionX, positionY, TileFlags.WALKABLE)) {
             super.getAudio().playMoveSound();
             return true;
         }
@@ -265,7 +285,7 @@ public class Player extends GameObject {
      *
      */
     public void clear(){
-        cells[positionX][positionY].setImageName(ImageName.EMPTY);
+        grid.setImageName(positionX, positionY, ImageName.EMPTY);
     }
     public ImageName getCurrentImage(){
         return currentImage;
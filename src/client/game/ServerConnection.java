@@ -0,0 +1,307 @@
+package client.game;
+
+import common.FlushPolicy;
+import common.FrameCodec;
+import common.FrameWriter;
+import common.GameConstants;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Full-duplex connection to the server. A reader thread reads frames from the socket as
+ * they arrive and adds them to the lock-free queue {@link #inbound}, and a writer thread
+ * writes the frames added to the queue {@link #outbound}. The game thread only adds
+ * frames to one queue and takes them from the other, so it can send while replies are
+ * still on their way and is never blocked by a slow socket.
+ *
+ * Frames added to {@link #outbound} together are written with a single flush once the
+ * queue is empty. Frames that must arrive, e.g. {@link GameConstants#OTHERPLAYERREADY},
+ * are always queued by {@link #send(int[])}. Frames that a newer frame will replace, i.e.
+ * input events, are sent with {@link #offer(int[])}, which drops the frame rather than
+ * queueing more than {@link #OUTBOUNDCAPACITY} frames once the writer has fallen behind.
+ *
+ * The version of the protocol is agreed before any frame queued is written, see
+ * {@link FrameCodec}: the hello is sent when the connection is opened, and the writer waits
+ * until the reader has the first frame from the server. The version is only switched if
+ * that frame echoes {@link #nonce}. Otherwise the server does not know the hello and the
+ * legacy format is kept: its {@link GameConstants#OTHERPLAYERNOTREADY}, or the hello of the
+ * other player it has passed on, is dropped, and any other frame is received as usual.
+ *
+ * When the connection fails or is closed, both threads stop and the socket is closed.
+ * Frames already received can still be taken, after which the failure is thrown.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class ServerConnection {
+
+    public static final int OUTBOUNDCAPACITY = 32;
+
+    /**
+     * Added to {@link #outbound} to stop the writer once the frames before it are written.
+     */
+    private static final int[] CLOSE = new int[0];
+
+    private Socket socket;
+    private InputStream fromServer;
+    private FrameWriter toServer;
+    private volatile FrameCodec codec;
+    private boolean isHelloSent;
+    private int nonce;
+    private CountDownLatch handshake;
+    private ConcurrentLinkedQueue<int[]> inbound;
+    private LinkedBlockingQueue<int[]> outbound;
+    private volatile Thread consumer;
+    private volatile IOException readFailure, writeFailure;
+
+    /**
+     * Opens the streams of the socket, asks for the highest version of the protocol set
+     * in the system properties, and starts the reader and writer threads.
+     *
+     * @param socket the socket connected to the server.
+     * @param executor runs the reader and the writer, each on its own thread.
+     * @throws IOException if the streams cannot be opened or the hello sent.
+     */
+    public ServerConnection(Socket socket, Executor executor) throws IOException {
+        this.socket = socket;
+
+        fromServer = new BufferedInputStream(socket.getInputStream());
+        toServer = new FrameWriter(socket.getOutputStream(), FlushPolicy.PERTICK,
+                FrameWriter.FRAMESIZE);
+        codec = FrameCodec.LEGACY;
+        handshake = new CountDownLatch(1);
+
+        int version = FrameCodec.getDefaultVersion();
+
+        if (version > FrameCodec.LEGACYVERSION) {
+            nonce = new Random().nextInt(Integer.MAX_VALUE);
+            toServer.writeFrame(FrameCodec.createHello(version, nonce));
+            toServer.flush();
+            isHelloSent = true;
+        }
+
+        inbound = new ConcurrentLinkedQueue<int[]>();
+        outbound = new LinkedBlockingQueue<int[]>();
+
+        executor.execute(new Runnable() {
+            public void run() {
+                readFrames();
+            }
+        });
+
+        executor.execute(new Runnable() {
+            public void run() {
+                writeFrames();
+            }
+        });
+    }
+
+    /**
+     * Queues a frame to be written, however far the writer has fallen behind. Does not block.
+     *
+     * @param frame the four ints of the frame, which must not be changed afterwards.
+     * @throws IOException if the connection has failed.
+     */
+    public void send(int[] frame) throws IOException {
+        IOException failure = writeFailure;
+
+        if (failure != null) throw failure;
+
+        outbound.add(frame);
+    }
+
+    /**
+     * Queues a frame to be written, unless {@link #OUTBOUNDCAPACITY} frames are already
+     * waiting. Does not block. Only used for frames a newer frame will replace.
+     *
+     * @param frame the four ints of the frame, which must not be changed afterwards.
+     * @return false if the frame was dropped as the writer has fallen behind.
+     * @throws IOException if the connection has failed.
+     */
+    public boolean offer(int[] frame) throws IOException {
+        IOException failure = writeFailure;
+
+        if (failure != null) throw failure;
+
+        if (outbound.size() >= OUTBOUNDCAPACITY) return false;
+
+        outbound.add(frame);
+        return true;
+    }
+
+    /**
+     * Takes the next frame received, if there is one. Does not block.
+     *
+     * @return the frame, or null if none is waiting.
+     * @throws IOException if every frame received has been taken and the connection has failed.
+     */
+    public int[] poll() throws IOException {
+        int[] frame = inbound.poll();
+
+        if (frame == null) {
+            IOException failure = readFailure;
+
+            //A frame may have been added just before the reader failed.
+            if (failure != null && (frame = inbound.poll()) == null) {
+                throw failure;
+            }
+        }
+
+        return frame;
+    }
+
+    /**
+     * Takes the next frame received, waiting for one if none has arrived yet. Only one
+     * thread may wait at a time.
+     *
+     * @param timeoutMillis the longest time to wait, zero to wait until a frame arrives,
+     *                      or less than zero not to wait.
+     * @return the frame, or null if none arrived in time.
+     * @throws IOException if the connection fails or the thread is interrupted while waiting.
+     */
+    public int[] take(long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        consumer = Thread.currentThread();
+
+        try {
+            int[] frame;
+
+            while ((frame = poll()) == null) {
+                if (timeoutMillis < 0) {
+                    return null;
+                } else if (timeoutMillis == 0) {
+                    LockSupport.park(this);
+                } else {
+                    long wait = deadline - System.nanoTime();
+
+                    if (wait <= 0) return null;
+
+                    LockSupport.parkNanos(this, wait);
+                }
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            return frame;
+        } finally {
+            consumer = null;
+        }
+    }
+
+    /**
+     * Stops the connection once the frames already queued have been written, then closes
+     * the socket. Does not block.
+     *
+     */
+    public void close(){
+        outbound.add(CLOSE);
+    }
+
+    /**
+     * Runs on the reader thread until the connection fails or is closed.
+     *
+     */
+    private void readFrames(){
+        try {
+            try {
+                if (isHelloSent) {
+                    readHelloReply();
+                }
+            } finally {
+                handshake.countDown();
+            }
+
+            while (true) {
+                inbound.add(codec.read(fromServer));
+                LockSupport.unpark(consumer);
+            }
+        } catch (IOException e) {
+            readFailure = e;
+            LockSupport.unpark(consumer);
+
+            //Stops the writer, which would otherwise wait for frames forever.
+            outbound.clear();
+            close();
+        }
+    }
+
+    /**
+     * Reads the reply to the hello, always in the legacy format, and switches both
+     * directions to the version agreed if it holds {@link #nonce}.
+     *
+     * @throws IOException if the reply could not be read.
+     */
+    private void readHelloReply() throws IOException {
+        int[] reply = FrameCodec.LEGACY.read(fromServer);
+
+        if (FrameCodec.isHelloReply(reply, nonce)) {
+            codec = FrameCodec.forVersion(reply[1]);
+            toServer.setCodec(codec);
+        } else if (reply[0] != GameConstants.OTHERPLAYERNOTREADY && !FrameCodec.isHello(reply)) {
+            inbound.add(reply);
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Runs on the writer thread, once the version has been agreed, until the connection
+     * fails or is closed.
+     *
+     */
+    private void writeFrames(){
+        try {
+            handshake.await();
+
+            while (true) {
+                int[] frame = outbound.take();
+
+                if (frame == CLOSE) break;
+
+                toServer.writeFrame(frame);
+
+                if (outbound.isEmpty()) {
+                    toServer.flush();
+                }
+            }
+
+            toServer.flush();
+        } catch (IOException e) {
+            writeFailure = e;
+        } catch (InterruptedException e) {
+            writeFailure = new InterruptedIOException();
+        } finally {
+            if (writeFailure == null) {
+                writeFailure = new EOFException("Connection closed");
+            }
+
+            closeSocket();
+        }
+    }
+
+    /**
+     * @return the version of the protocol used, once agreed.
+     */
+    public int getVersion(){
+        return codec.getVersion();
+    }
+
+    private void closeSocket(){
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            //The socket is closed anyway.
+        }
+    }
+}
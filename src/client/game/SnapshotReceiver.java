@@ -0,0 +1,157 @@
+package client.game;
+
+import common.GameConstants;
+import common.GridBitSet;
+import common.SnapshotCodec;
+import common.WorldSnapshot;
+
+import java.net.ProtocolException;
+
+/**
+ * Rebuilds the {@link WorldSnapshot}s sent by the server from their frames, see
+ * {@link SnapshotCodec}. Each snapshot is sent as the changes since a baseline the client
+ * has acknowledged, so the last {@link #SIZE} snapshots received are kept to apply them to.
+ *
+ * <pre>
+ * Example, for each update received:
+ *
+ * if (snapshotReceiver.isReceiving() || update[0] == GameConstants.SNAPSHOT) {
+ *     WorldSnapshot snapshot = snapshotReceiver.receive(update);
+ *
+ *     if (snapshot != null) {
+ *         acknowledge snapshot.getSequence() and use the snapshot.
+ *     }
+ * }
+ * </pre>
+ *
+ * A snapshot whose baseline is no longer held is dropped without being acknowledged, and
+ * the server sends the whole world once the baseline has also gone from its own history.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SnapshotReceiver {
+
+    public static final int SIZE = 8;
+
+    /**
+     * The longest body accepted, in ints, more than the whole world needs.
+     */
+    private static final int MAXBODYLENGTH = 1024;
+
+    private WorldSnapshot[] snapshots;
+    private GridBitSet changedTiles;
+    private int[] body;
+    private int bodyLength;
+    private int bodyRead;
+    private int sequence, baseline;
+    private boolean isReceiving;
+
+    public SnapshotReceiver(){
+        snapshots = new WorldSnapshot[SIZE];
+
+        for (int i = 0; i < SIZE; i++) {
+            snapshots[i] = new WorldSnapshot();
+        }
+
+        changedTiles = new GridBitSet();
+        body = new int[0];
+        isReceiving = false;
+    }
+
+    /**
+     * Forgets every snapshot received, e.g. at the start of a game, as the server starts
+     * each game with the whole world.
+     *
+     */
+    public void reset(){
+        for (WorldSnapshot snapshot : snapshots) {
+            snapshot.setSequence(0);
+        }
+
+        isReceiving = false;
+    }
+
+    /**
+     * @return true if a header has been received and the rest of its snapshot has not.
+     */
+    public boolean isReceiving(){
+        return isReceiving;
+    }
+
+    /**
+     * Takes the next frame of a snapshot.
+     *
+     * @param frame a header, {SNAPSHOT, sequence, baseline, length}, or the next frame of the body.
+     * @return the snapshot once its last frame has been received, otherwise null.
+     * @throws ProtocolException if the frames are not a snapshot.
+     */
+    public WorldSnapshot receive(int[] frame) throws ProtocolException {
+        if (!isReceiving) {
+            if (frame[0] != GameConstants.SNAPSHOT || frame[3] < 1 || frame[3] > MAXBODYLENGTH) {
+                throw new ProtocolException("Not a snapshot");
+            }
+
+            sequence = frame[1];
+            baseline = frame[2];
+            bodyLength = frame[3];
+            bodyRead = 0;
+
+            int bodySize = SnapshotCodec.getBodyFrames(bodyLength) * 4;
+
+            if (body.length < bodySize) {
+                body = new int[bodySize];
+            }
+
+            isReceiving = true;
+            return null;
+        }
+
+        System.arraycopy(frame, 0, body, bodyRead, 4);
+        bodyRead += 4;
+
+        if (bodyRead < bodyLength) return null;
+
+        isReceiving = false;
+
+        return apply();
+    }
+
+    /**
+     * Applies the body received to a copy of its baseline, in the slot of the oldest
+     * snapshot held, which may be the baseline itself.
+     *
+     */
+    private WorldSnapshot apply() throws ProtocolException {
+        WorldSnapshot snapshot = snapshots[sequence % SIZE];
+
+        if (baseline > 0) {
+            WorldSnapshot baselineSnapshot = snapshots[baseline % SIZE];
+
+            if (baselineSnapshot.getSequence() != baseline) return null;
+
+            snapshot.copyFrom(baselineSnapshot);
+        } else {
+            snapshot.clear();
+        }
+
+        try {
+            SnapshotCodec.decode(body, bodyLength, snapshot, changedTiles);
+        } catch (ProtocolException e) {
+            snapshot.setSequence(0);
+            throw e;
+        }
+
+        snapshot.setSequence(sequence);
+
+        return snapshot;
+    }
+
+    /**
+     * @return the tiles changed by the last snapshot received, since its baseline.
+     */
+    public GridBitSet getChangedTiles(){
+        return changedTiles;
+    }
+}
@@ -0,0 +1,136 @@
+package client.game;
+
+import client.resource.ResourceManager;
+
+import javax.sound.sampled.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A sound decoded once into memory and played from a fixed pool of {@link Clip} voices,
+ * each opened on the decoded samples when the sound is loaded. Playing the sound only
+ * rewinds and starts a voice, so nothing is read, decoded or allocated while the game
+ * is running.
+ *
+ * If every voice is playing when the sound is played again, the voice started longest
+ * ago is stopped and reused.
+ *
+ * The sound is only played and stopped on the audio thread of {@link Audio}.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SoundEffect {
+
+    private Clip[] voices;
+    private long[] startTimes;
+
+    /**
+     * Decodes a sound to PCM and opens the voices.
+     *
+     * @param data the sound file e.g. a WAV file.
+     * @param numOfVoices the number of times the sound can play at once.
+     * @throws IOException if the sound cannot be decoded.
+     * @throws LineUnavailableException if there are no voices available on the system.
+     */
+    public SoundEffect(ByteBuffer data, int numOfVoices)
+            throws IOException, LineUnavailableException {
+        AudioInputStream stream;
+
+        try {
+            stream = AudioSystem.getAudioInputStream(ResourceManager.openStream(data));
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("Unsupported sound", e);
+        }
+
+        AudioFormat format = stream.getFormat();
+
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                && format.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+            format = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+            stream = AudioSystem.getAudioInputStream(format, stream);
+        }
+
+        byte[] samples = readFully(stream);
+        int length = samples.length - samples.length % Math.max(1, format.getFrameSize());
+
+        voices = new Clip[numOfVoices];
+        startTimes = new long[numOfVoices];
+
+        try {
+            for (int i = 0; i < numOfVoices; i++) {
+                voices[i] = AudioSystem.getClip();
+                voices[i].open(format, samples, 0, length);
+            }
+        } catch (LineUnavailableException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            //No mixer is installed.
+            close();
+            throw new LineUnavailableException(e.getMessage());
+        }
+    }
+
+    /**
+     * Plays the sound from the start on a free voice, or on the voice started longest
+     * ago if none are free.
+     *
+     */
+    public void play(){
+        int voice = 0;
+
+        for (int i = 0; i < voices.length; i++) {
+            if (!voices[i].isActive()) {
+                voice = i;
+                break;
+            }
+
+            if (startTimes[i] < startTimes[voice]) {
+                voice = i;
+            }
+        }
+
+        Clip clip = voices[voice];
+        clip.stop();
+        clip.setFramePosition(0);
+        clip.start();
+
+        startTimes[voice] = System.nanoTime();
+    }
+
+    /**
+     * Stops every voice playing the sound.
+     *
+     */
+    public void stop(){
+        for (Clip voice : voices) {
+            voice.stop();
+        }
+    }
+
+    /**
+     * Releases the voices. The sound cannot be played afterwards.
+     *
+     */
+    public void close(){
+        for (Clip voice : voices) {
+            if (voice != null) voice.close();
+        }
+    }
+
+    private static byte[] readFully(AudioInputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        stream.close();
+        return out.toByteArray();
+    }
+}
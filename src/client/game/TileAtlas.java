@@ -0,0 +1,208 @@
+package client.game;
+
+import common.ImageName;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Holds a copy of each tile image from {@link Image} already scaled to the size tiles are
+ * drawn at, so painting a tile is a single unscaled copy. The tiles are scaled again only
+ * when the tile size changes, i.e. when the window is resized.
+ *
+ * All tiles are packed side by side into one image, {@link #atlas}, in the order of
+ * {@link ImageName}, so drawing a tile copies a region of that image. When the screen
+ * configuration is known the atlas is also copied into a {@link VolatileImage} held in video
+ * memory, which is restored from {@link #atlas} if its contents are lost.
+ *
+ * Each image is placed within its tile as it was designed for a {@link #REFERENCEWIDTH} by
+ * {@link #REFERENCEHEIGHT} cell, e.g. players are drawn centred and terrain fills the tile,
+ * and anything outside the tile is clipped.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class TileAtlas {
+
+    public static final int REFERENCEWIDTH = 70;
+    public static final int REFERENCEHEIGHT = 50;
+
+    private static final ImageName[] IMAGENAMES = ImageName.values();
+
+    private Image image;
+    private BufferedImage atlas;
+    private VolatileImage volatileAtlas;
+    private GraphicsConfiguration graphicsConfiguration;
+    private boolean[] hasTile;
+    private int tileWidth, tileHeight;
+
+    public TileAtlas(Image image){
+        this.image = image;
+        hasTile = new boolean[IMAGENAMES.length];
+    }
+
+    /**
+     * Scales every tile image to the size given and packs them into {@link #atlas},
+     * unless they are already that size.
+     *
+     * @param tileWidth the width of a tile in pixels.
+     * @param tileHeight the height of a tile in pixels.
+     * @param graphicsConfiguration used to create images in the screens format,
+     *                              may be null.
+     */
+    public void setTileSize(int tileWidth, int tileHeight,
+                            GraphicsConfiguration graphicsConfiguration){
+        if (tileWidth == this.tileWidth && tileHeight == this.tileHeight
+                && graphicsConfiguration == this.graphicsConfiguration) return;
+
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.graphicsConfiguration = graphicsConfiguration;
+
+        atlas = createImage(tileWidth * IMAGENAMES.length, tileHeight);
+        volatileAtlas = null;
+
+        Graphics2D g = atlas.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+        for (ImageName imageName : IMAGENAMES) {
+            int x = imageName.ordinal() * tileWidth;
+
+            g.setClip(x, 0, tileWidth, tileHeight);
+            g.translate(x, 0);
+            hasTile[imageName.ordinal()] = drawTile(g, imageName);
+            g.translate(-x, 0);
+        }
+
+        g.dispose();
+    }
+
+    /**
+     * Draws a tile by copying its region of the atlas.
+     *
+     * @param g the graphics to draw on.
+     * @param imageName the image of the tile.
+     * @param x the X position to draw at in pixels.
+     * @param y the Y position to draw at in pixels.
+     */
+    public void drawTile(Graphics g, ImageName imageName, int x, int y){
+        if (atlas == null || !hasTile[imageName.ordinal()]) return;
+
+        int sourceX = imageName.ordinal() * tileWidth;
+
+        g.drawImage(getSourceImage(), x, y, x + tileWidth, y + tileHeight,
+                sourceX, 0, sourceX + tileWidth, tileHeight, null);
+    }
+
+    /**
+     * Returns {@link #volatileAtlas}, creating or restoring it if needed, or {@link #atlas}
+     * if video memory cannot be used.
+     *
+     */
+    private java.awt.Image getSourceImage(){
+        if (graphicsConfiguration == null) return atlas;
+
+        int status = volatileAtlas == null ? VolatileImage.IMAGE_INCOMPATIBLE
+                : volatileAtlas.validate(graphicsConfiguration);
+
+        if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+            volatileAtlas = graphicsConfiguration.createCompatibleVolatileImage(
+                    atlas.getWidth(), atlas.getHeight(), Transparency.TRANSLUCENT);
+        }
+
+        if (status != VolatileImage.IMAGE_OK) {
+            Graphics2D g = volatileAtlas.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(atlas, 0, 0, null);
+            g.dispose();
+        }
+
+        return volatileAtlas.contentsLost() ? atlas : volatileAtlas;
+    }
+
+    /**
+     * Draws an image into a tile sized area of the graphics, scaling it from its place
+     * in the reference cell.
+     *
+     * @return false if nothing is drawn for the image.
+     */
+    private boolean drawTile(Graphics2D g, ImageName imageName){
+        BufferedImage source;
+        int x = 0, width, height = 45;
+
+        switch (imageName){
+            case PLAYERONEFORWARD: source = image.getPlayerOneForward(); break;
+            case PLAYERONELEFT: source = image.getPlayerOneLeft(); break;
+            case PLAYERONERIGHT: source = image.getPlayerOneRight(); break;
+            case PLAYERONEBACK: source = image.getPlayerOneBack(); break;
+            case PLAYERTWOFORWARD: source = image.getPlayerTwoForward(); break;
+            case PLAYERTWOLEFT: source = image.getPlayerTwoLeft(); break;
+            case PLAYERTWORIGHT: source = image.getPlayerTwoRight(); break;
+            case PLAYERTWOBACK: source = image.getPlayerTwoBack(); break;
+            case BOMB: source = image.getBomb(); break;
+            case TERRAIN: source = image.getTerrain(); break;
+            case PERMTERRAIN: source = image.getPermTerrain(); break;
+            case EXPLOSIONCENTRE: source = image.getExplosionCentre(); break;
+            case EXPLOSIONBOTTOMONE: source = image.getExplosionBottomOne(); break;
+            case EXPLOSIONBOTTOMTWO: source = image.getExplosionBottomTwo(); break;
+            case EXPLOSIONRIGHTONE: source = image.getExplosionRightOne(); break;
+            case EXPLOSIONRIGHTTWO: source = image.getExplosionRightTwo(); break;
+            case EXPLOSIONTOPONE: source = image.getExplosionTopOne(); break;
+            case EXPLOSIONTOPTWO: source = image.getExplosionTopTwo(); break;
+            case EXPLOSIONLEFTONE: source = image.getExplosionLeftOne(); break;
+            case EXPLOSIONLEFTTWO: source = image.getExplosionLeftTwo(); break;
+            case ANIMATIONBLOCK: source = image.getAnimationBlock(); break;
+            default: return false;
+        }
+
+        switch (imageName){
+            case PLAYERONEFORWARD: case PLAYERONELEFT: case PLAYERONERIGHT: case PLAYERONEBACK:
+            case PLAYERTWOFORWARD: case PLAYERTWOLEFT: case PLAYERTWORIGHT: case PLAYERTWOBACK:
+            case BOMB:
+                x = 15;
+                width = 45;
+                break;
+            case TERRAIN: case PERMTERRAIN:
+                width = 70;
+                height = 50;
+                break;
+            case EXPLOSIONBOTTOMONE: case EXPLOSIONBOTTOMTWO:
+            case EXPLOSIONTOPONE: case EXPLOSIONTOPTWO:
+                width = 70;
+                break;
+            default:
+                width = 80;
+                break;
+        }
+
+        if (source == null) return false;
+
+        g.drawImage(source, x * tileWidth / REFERENCEWIDTH, 0,
+                width * tileWidth / REFERENCEWIDTH, height * tileHeight / REFERENCEHEIGHT, null);
+
+        return true;
+    }
+
+    private BufferedImage createImage(int width, int height){
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+
+        if (graphicsConfiguration != null) {
+            return graphicsConfiguration.createCompatibleImage(width, height,
+                    Transparency.TRANSLUCENT);
+        }
+
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    public int getTileWidth(){
+        return tileWidth;
+    }
+
+    public int getTileHeight(){
+        return tileHeight;
+    }
+}
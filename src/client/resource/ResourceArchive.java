@@ -0,0 +1,246 @@
+package client.resource;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single file holding every sprite and sound used by the client, so they can be shipped
+ * on the classpath and read without opening a file per resource. The archive is
+ * memory-mapped when it is a plain file, otherwise (e.g. inside a jar) it is read into
+ * memory once. Entries are returned as read-only slices of that buffer, so reading a
+ * resource copies nothing.
+ *
+ * <pre>
+ * Format (big-endian):
+ *
+ * int   {@link #MAGIC}
+ * int   number of entries
+ * for each entry:
+ *     short length of name, name as UTF-8 e.g. "Sprites/bomb.png"
+ *     int   offset of data from the start of the archive
+ *     int   length of data
+ * data of each entry
+ * </pre>
+ *
+ * An archive is built from the game folders with:
+ *
+ * <pre>
+ * java client.resource.ResourceArchive bomberman.pak Sprites Audio
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class ResourceArchive {
+
+    public static final int MAGIC = 0x42504B31;  // "BPK1"
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private ByteBuffer data;
+    private Map<String, ByteBuffer> entries;
+
+    /**
+     * Reads the table of entries of an archive.
+     *
+     * @param data the whole archive.
+     * @throws IOException if the data is not an archive.
+     */
+    public ResourceArchive(ByteBuffer data) throws IOException {
+        this.data = data.asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+        entries = new HashMap<String, ByteBuffer>();
+
+        try {
+            ByteBuffer header = this.data.duplicate();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a resource archive");
+            }
+
+            int numOfEntries = header.getInt();
+
+            for (int i = 0; i < numOfEntries; i++) {
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+
+                int offset = header.getInt();
+                int length = header.getInt();
+
+                ByteBuffer entry = this.data.duplicate();
+                entry.position(offset);
+                entry.limit(offset + length);
+
+                entries.put(new String(name, UTF8), entry.slice());
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt resource archive", e);
+        }
+    }
+
+    /**
+     * Opens an archive from the classpath, or any other URL.
+     *
+     * @param url the location of the archive.
+     * @return the archive.
+     * @throws IOException if the archive cannot be read.
+     */
+    public static ResourceArchive open(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new ResourceArchive(map(new File(url.toURI())));
+            } catch (URISyntaxException ignored) {
+                //Read through the stream instead.
+            }
+        }
+
+        InputStream in = url.openStream();
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+
+            return new ResourceArchive(ByteBuffer.wrap(out.toByteArray()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Maps a file into memory.
+     *
+     * @param file the file to be mapped.
+     * @return a read-only buffer of the whole file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Gets an entry.
+     *
+     * @param name the name of the entry e.g. "Sprites/bomb.png".
+     * @return a new read-only view of the entries data, or null if there is no such entry.
+     */
+    public ByteBuffer get(String name){
+        ByteBuffer entry = entries.get(name);
+
+        return entry == null ? null : entry.duplicate();
+    }
+
+    public boolean contains(String name){
+        return entries.containsKey(name);
+    }
+
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * Writes an archive of every file in the folders given. Entries are named by their
+     * path relative to the root, using "/" as the separator.
+     *
+     * @param archive the file to be written.
+     * @param root the folder the names are relative to.
+     * @param folders the folders to be added, relative to root.
+     * @throws IOException if a file cannot be read or the archive cannot be written.
+     */
+    public static void write(File archive, File root, String... folders) throws IOException {
+        List<String> names = new ArrayList<String>();
+        List<File> files = new ArrayList<File>();
+
+        for (String folder : folders) {
+            File[] folderFiles = new File(root, folder).listFiles();
+
+            if (folderFiles == null) {
+                throw new FileNotFoundException(folder);
+            }
+
+            List<File> sorted = new ArrayList<File>();
+            Collections.addAll(sorted, folderFiles);
+            Collections.sort(sorted);
+
+            for (File file : sorted) {
+                if (file.isFile()) {
+                    names.add(folder + "/" + file.getName());
+                    files.add(file);
+                }
+            }
+        }
+
+        int offset = 8;
+
+        for (String name : names) {
+            offset += 2 + name.getBytes(UTF8).length + 8;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(archive)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(names.size());
+
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i).getBytes(UTF8);
+                int length = (int) files.get(i).length();
+
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(offset);
+                out.writeInt(length);
+
+                offset += length;
+            }
+
+            for (File file : files) {
+                ByteBuffer fileData = map(file);
+                byte[] buffer = new byte[fileData.remaining()];
+                fileData.get(buffer);
+                out.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Builds an archive from the command line.
+     *
+     * @param args the archive to be written, followed by the folders to be added.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ResourceArchive archive folder...");
+            return;
+        }
+
+        String[] folders = new String[args.length - 1];
+        System.arraycopy(args, 1, folders, 0, folders.length);
+
+        write(new File(args[0]), new File("."), folders);
+    }
+}
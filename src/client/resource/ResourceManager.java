@@ -0,0 +1,262 @@
+package client.resource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the sprites and sounds used by the client in parallel on a pool of background
+ * threads, so the window can be shown straight away rather than waiting for every file
+ * to be read on the event dispatch thread.
+ *
+ * Resources are read from the {@link ResourceArchive} {@link #ARCHIVE} on the classpath.
+ * If there is no archive they are read from the Sprites and Audio folders of the working
+ * directory, as before, each file being memory-mapped.
+ *
+ * Each resource is loaded once, when it is first requested, and a {@link Future} of it is
+ * returned so callers can carry on and collect it later. Images are decoded on the pool;
+ * other data is returned as a read-only buffer which is not copied.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class ResourceManager {
+
+    public static final String ARCHIVE = "/bomberman.pak";
+
+    private ResourceArchive archive;
+    private ExecutorService loaders;
+    private ConcurrentHashMap<String, Future<BufferedImage>> images;
+    private ConcurrentHashMap<String, Future<ByteBuffer>> data;
+
+    /**
+     * Opens {@link #ARCHIVE} if it is on the classpath and creates the pool of loading
+     * threads, one per core.
+     *
+     */
+    public ResourceManager(){
+        images = new ConcurrentHashMap<String, Future<BufferedImage>>();
+        data = new ConcurrentHashMap<String, Future<ByteBuffer>>();
+
+        final AtomicInteger threadNum = new AtomicInteger(0);
+
+        loaders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "ResourceLoader-" + threadNum.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        URL url = ResourceManager.class.getResource(ARCHIVE);
+
+        if (url != null) {
+            try {
+                archive = ResourceArchive.open(url);
+            } catch (IOException ignored) {
+                //Resources are read from the folders instead.
+            }
+        }
+    }
+
+    /**
+     * Starts loading an image unless it is already loading.
+     *
+     * @param name the name of the image e.g. "Sprites/bomb.png".
+     * @return the image, which fails with an IOException if it could not be read.
+     */
+    public Future<BufferedImage> getImage(final String name){
+        Future<BufferedImage> image = images.get(name);
+
+        if (image != null) return image;
+
+        FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(
+                new Callable<BufferedImage>() {
+                    public BufferedImage call() throws IOException {
+                        BufferedImage image = ImageIO.read(openStream(readData(name)));
+
+                        if (image == null) {
+                            throw new IOException("Unsupported image " + name);
+                        }
+
+                        return image;
+                    }
+                });
+
+        image = images.putIfAbsent(name, task);
+
+        if (image != null) return image;
+
+        loaders.execute(task);
+        return task;
+    }
+
+    /**
+     * Starts reading a resource unless it is already being read.
+     *
+     * @param name the name of the resource e.g. "Audio/bomb.wav".
+     * @return the data of the resource, which fails with an IOException if it could not be read.
+     */
+    public Future<ByteBuffer> getData(final String name){
+        Future<ByteBuffer> resource = data.get(name);
+
+        if (resource != null) return resource;
+
+        FutureTask<ByteBuffer> task = new FutureTask<ByteBuffer>(
+                new Callable<ByteBuffer>() {
+                    public ByteBuffer call() throws IOException {
+                        return readData(name);
+                    }
+                });
+
+        resource = data.putIfAbsent(name, task);
+
+        if (resource != null) return resource;
+
+        loaders.execute(task);
+        return task;
+    }
+
+    /**
+     * Runs a task on a loading thread, e.g. to decode a resource once it has been read.
+     *
+     * @param task the task to run.
+     * @return the result of the task.
+     */
+    public <T> Future<T> load(Callable<T> task){
+        return loaders.submit(task);
+    }
+
+    /**
+     * Reads a resource from {@link #archive}, or from the working directory if
+     * there is no archive.
+     *
+     */
+    private ByteBuffer readData(String name) throws IOException {
+        if (archive != null) {
+            ByteBuffer resource = archive.get(name);
+
+            if (resource == null) {
+                throw new FileNotFoundException(name);
+            }
+
+            return resource;
+        }
+
+        return ResourceArchive.map(new File(name));
+    }
+
+    /**
+     * Runs a task once every future given has completed, successfully or not.
+     * The task is run on a loading thread.
+     *
+     * @param futures the futures to wait for.
+     * @param task the task to run.
+     */
+    public void whenDone(final List<? extends Future<?>> futures, final Runnable task){
+        final List<Future<?>> waitingFor = new ArrayList<Future<?>>(futures);
+
+        new Thread(new Runnable() {
+            public void run() {
+                for (Future<?> future : waitingFor) {
+                    await(future);
+                }
+
+                task.run();
+            }
+        }, "ResourceWaiter").start();
+    }
+
+    /**
+     * Waits for a resource to load.
+     *
+     * @param future the resource.
+     * @return the resource, or null if it could not be loaded.
+     */
+    public static <T> T await(Future<T> future){
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opens a stream over a resource. The stream reads from a view of the buffer, so the
+     * buffer itself is left unchanged and can be opened again.
+     *
+     * @param resource the data of the resource.
+     * @return a stream supporting mark and reset.
+     */
+    public static InputStream openStream(ByteBuffer resource){
+        return new ByteBufferInputStream(resource.duplicate());
+    }
+
+    public boolean isArchiveLoaded(){
+        return archive != null;
+    }
+
+    /**
+     * Inner class that reads from a buffer without copying it.
+     *
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+        private int mark;
+
+        public ByteBufferInputStream(ByteBuffer buffer){
+            this.buffer = buffer;
+            mark = buffer.position();
+        }
+
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        public int available() {
+            return buffer.remaining();
+        }
+
+        public boolean markSupported() {
+            return true;
+        }
+
+        public synchronized void mark(int readLimit) {
+            mark = buffer.position();
+        }
+
+        public synchronized void reset() {
+            buffer.position(mark);
+        }
+    }
+}
@@ -7,7 +7,9 @@ import client.game.Audio;
 import client.game.Game;
 import client.game.GameController;
 import client.game.GamePanel;
+import client.resource.ResourceManager;
 import client.status.StatusBarView;
+import common.ThreadMode;
 
 /**
  * Class that acts as the model for {@link ClientFrameController}.
@@ -25,15 +27,19 @@ public class ClientFrame implements ClientFrameModel {
 
     /**
      * Creates and initialises initial objects including {@link StatusBarView},
-     * {@link GameController}, and {@link ClientController}.
+     * {@link GameController}, and {@link ClientController}. The game loop runs on a
+     * thread of the {@link ThreadMode} set in the system properties. Images and sounds
+     * are loaded in the background by a shared {@link ResourceManager}.
      *
      */
     public ClientFrame(ClientMenuBar clientControlView){
         statusBarView = new StatusBarView();
 
-        gameView = new GamePanel();
-        Audio audio = new Audio();
-        GameController gameController = new GameController(gameView, new Game(audio), statusBarView, audio);
+        ResourceManager resourceManager = new ResourceManager();
+        gameView = new GamePanel(resourceManager);
+        Audio audio = new Audio(resourceManager);
+        GameController gameController = new GameController(gameView, new Game(audio), statusBarView,
+                audio, ThreadMode.fromSystemProperties().createExecutor("GameController-"));
 
 
         ClientControllerModel clientControllerModel = new ClientControllerModel(gameController);
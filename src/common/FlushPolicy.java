@@ -0,0 +1,37 @@
+package common;
+
+/**
+ * Enumeration of the policies used by {@link FrameWriter} to decide when buffered
+ * frames are written to the network. Flushing less often sends fewer, larger packets
+ * at the cost of latency.
+ *
+ * PERFRAME writes each frame as soon as it is complete, PERTICK waits for the game
+ * loop to flush at the end of its update, and THRESHOLD writes once a given number
+ * of bytes are waiting.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public enum FlushPolicy {
+
+    PERFRAME, PERTICK, THRESHOLD;
+
+    /**
+     * Checks whether buffered frames should be written straight away.
+     *
+     * @param pendingBytes the number of bytes waiting to be written.
+     * @param threshold the number of bytes that triggers a write under {@link #THRESHOLD}.
+     * @return true if the frames should be written now.
+     */
+    public boolean isFlushDue(int pendingBytes, int threshold){
+        switch (this){
+            case PERFRAME:
+                return true;
+            case THRESHOLD:
+                return pendingBytes >= threshold;
+            default:
+                return false;
+        }
+    }
+}
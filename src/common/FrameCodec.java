@@ -0,0 +1,506 @@
+package common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes the frames sent between the client and the server. Both ends work
+ * with frames of four ints, as described by {@link GameConstants}, and a codec turns them
+ * into bytes for one version of the protocol:
+ *
+ * <pre>
+ * Version 1 ({@link #LEGACY}): the four ints, 16 bytes.
+ *
+ * Version 2 ({@link #BINARY}): a one byte header, the message type in the low five bits
+ * and flags in the top bits, followed by the values of the message as varints:
+ *
+ *     STATE       [bomb flag] X, Y (, bomb X, bomb Y)      3 or 5 bytes
+ *     READY       [input events flag, snapshots flag]      1 byte
+ *     NOTREADY, LEFTSESSION, KICKED                        1 byte
+ *     HIT         [player two flag] lives left             2 bytes
+ *     WON         winner (1, 2 or 3 for a draw)            2 bytes
+ *     MOVED       X, Y                                     3 bytes
+ *     BOMBPLACED  X, Y                                     3 bytes
+ *     SNAPSHOT    sequence, baseline, length               4 to 16 bytes
+ *     SNAPSHOTACK sequence                                 2 to 6 bytes
+ *     RAW         the four ints, zigzag encoded            2 to 21 bytes
+ * </pre>
+ *
+ * Any frame that is not one of the messages above is sent as RAW, so every frame decodes
+ * to the frame that was encoded whatever version is in use.
+ *
+ * The version is agreed after the server has sent the player their number, which is always
+ * sent as version 1. A client that supports version 2 sends {@link #createHello(int, int)},
+ * holding a random nonce, and waits for the reply. A server that supports it replies with
+ * {@link #createHelloReply(int[], int)}, which holds the version agreed and the nonce, and
+ * both ends use the version from the next frame. Older servers never reply: they answer
+ * any frame they do not understand with {@link GameConstants#OTHERPLAYERNOTREADY}, or pass
+ * it on to the other player once the session is full, so the client only switches version
+ * if the reply holds its own nonce. Older clients never send the frame, so either end can
+ * be upgraded on its own.
+ *
+ * The highest version used by a process can be lowered with the system property
+ * {@link #PROTOCOL_PROPERTY}, for example:
+ *
+ * <pre>
+ * java -Dbomberman.protocol=1 client.ClientTester
+ * </pre>
+ *
+ * Codecs hold no state, so one instance of each is shared by every connection.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public abstract class FrameCodec {
+
+    public static final String PROTOCOL_PROPERTY = "bomberman.protocol";
+
+    public static final int LEGACYVERSION = 1;
+    public static final int VERSION = 2;
+
+    public static final FrameCodec LEGACY = new LegacyCodec();
+    public static final FrameCodec BINARY = new BinaryCodec();
+
+    /**
+     * @return the version of the protocol encoded.
+     */
+    public abstract int getVersion();
+
+    /**
+     * @return the largest number of bytes a frame can be encoded into.
+     */
+    public abstract int getMaxFrameSize();
+
+    /**
+     * Puts a frame into a buffer.
+     *
+     * @param buffer the buffer, with at least {@link #getMaxFrameSize()} bytes remaining.
+     * @param frame the four ints of the frame.
+     */
+    public abstract void encode(ByteBuffer buffer, int[] frame);
+
+    /**
+     * Takes the next frame from a buffer, if the whole frame has been received.
+     *
+     * @param buffer the bytes received, ready to be read.
+     * @return the frame, or null if the buffer does not yet hold a whole frame, in which
+     * case the position of the buffer is left unchanged.
+     * @throws ProtocolException if the bytes are not a frame of this version.
+     */
+    public int[] decode(ByteBuffer buffer) throws ProtocolException {
+        int start = buffer.position();
+
+        try {
+            return read(new BufferSource(buffer));
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        } catch (ProtocolException e) {
+            throw e;
+        } catch (IOException e) {
+            //Buffers are not read with IO.
+            throw new ProtocolException(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the next frame from a stream, blocking until it has been received. The stream
+     * should be buffered, as version 2 frames are read a byte at a time.
+     *
+     * @param in the stream frames are read from.
+     * @return the frame.
+     * @throws EOFException if the stream ends.
+     * @throws ProtocolException if the bytes are not a frame of this version.
+     * @throws IOException if the frame could not be read.
+     */
+    public int[] read(InputStream in) throws IOException {
+        return read(new StreamSource(in));
+    }
+
+    abstract int[] read(ByteSource source) throws IOException;
+
+    /**
+     * Reads {@link #PROTOCOL_PROPERTY}.
+     *
+     * @return the highest version this process may use, {@link #VERSION} unless lowered.
+     */
+    public static int getDefaultVersion(){
+        return Math.max(LEGACYVERSION, Math.min(VERSION,
+                Integer.getInteger(PROTOCOL_PROPERTY, VERSION)));
+    }
+
+    /**
+     * @return the codec of a version, or {@link #LEGACY} if the version is not supported.
+     */
+    public static FrameCodec forVersion(int version){
+        return version == BINARY.getVersion() ? BINARY : LEGACY;
+    }
+
+    /**
+     * Creates the frame a client sends to ask for a version.
+     *
+     * @param version the version.
+     * @param nonce a random number the server echoes, not negative.
+     * @return {HELLO, version, nonce, HELLO}.
+     */
+    public static int[] createHello(int version, int nonce){
+        return new int[]{GameConstants.HELLO, version, nonce, GameConstants.HELLO};
+    }
+
+    /**
+     * Creates the reply of the server to a hello.
+     *
+     * @param hello the frame received from the client, see {@link #createHello(int, int)}.
+     * @param version the version agreed.
+     * @return {HELLO, version, nonce of the hello, HELLO}.
+     */
+    public static int[] createHelloReply(int[] hello, int version){
+        return new int[]{GameConstants.HELLO, version, hello[2], GameConstants.HELLO};
+    }
+
+    public static boolean isHello(int[] frame){
+        return frame[0] == GameConstants.HELLO && frame[3] == GameConstants.HELLO;
+    }
+
+    /**
+     * Checks a frame is the reply to a hello sent by this client, rather than a hello
+     * the other player sent that an older server has passed on.
+     *
+     * @param frame the frame received from the server.
+     * @param nonce the nonce sent in the hello.
+     * @return true if the frame is a hello holding the nonce.
+     */
+    public static boolean isHelloReply(int[] frame, int nonce){
+        return isHello(frame) && frame[2] == nonce;
+    }
+
+    /**
+     * Agrees a version with a client, the highest supported by both ends.
+     *
+     * @param hello the frame received from the client, see {@link #createHello(int, int)}.
+     * @return the codec to use from the next frame.
+     */
+    public static FrameCodec negotiate(int[] hello){
+        return forVersion(Math.min(hello[1], getDefaultVersion()));
+    }
+
+    /**
+     * Reads bytes for a codec from a buffer or a stream.
+     *
+     */
+    interface ByteSource {
+
+        public int readByte() throws IOException;
+
+        public int readInt() throws IOException;
+    }
+
+    /**
+     * Inner class reading from a buffer, throwing {@link BufferUnderflowException}
+     * if the frame has not been received in full.
+     *
+     */
+    private static class BufferSource implements ByteSource {
+        private ByteBuffer buffer;
+
+        public BufferSource(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        public int readByte() {
+            return buffer.get() & 0xFF;
+        }
+
+        public int readInt() {
+            return buffer.getInt();
+        }
+    }
+
+    /**
+     * Inner class reading from a stream.
+     *
+     */
+    private static class StreamSource implements ByteSource {
+        private InputStream in;
+
+        public StreamSource(InputStream in){
+            this.in = in;
+        }
+
+        public int readByte() throws IOException {
+            int read = in.read();
+
+            if (read < 0) throw new EOFException();
+
+            return read;
+        }
+
+        public int readInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+    }
+
+    /**
+     * Version 1: every frame is four big-endian ints.
+     *
+     */
+    private static class LegacyCodec extends FrameCodec {
+
+        public int getVersion(){
+            return LEGACYVERSION;
+        }
+
+        public int getMaxFrameSize(){
+            return FrameWriter.FRAMESIZE;
+        }
+
+        public void encode(ByteBuffer buffer, int[] frame){
+            buffer.putInt(frame[0]);
+            buffer.putInt(frame[1]);
+            buffer.putInt(frame[2]);
+            buffer.putInt(frame[3]);
+        }
+
+        /**
+         * Reads the whole frame with as few calls as the stream allows.
+         *
+         */
+        public int[] read(InputStream in) throws IOException {
+            byte[] bytes = new byte[FrameWriter.FRAMESIZE];
+            int read = 0;
+
+            while (read < bytes.length) {
+                int count = in.read(bytes, read, bytes.length - read);
+
+                if (count < 0) throw new EOFException();
+
+                read += count;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+            return new int[]{buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()};
+        }
+
+        int[] read(ByteSource source) throws IOException {
+            int[] frame = new int[4];
+
+            frame[0] = source.readInt();
+            frame[1] = source.readInt();
+            frame[2] = source.readInt();
+            frame[3] = source.readInt();
+
+            return frame;
+        }
+    }
+
+    /**
+     * Version 2: a typed header followed by varints, see the class description.
+     *
+     */
+    private static class BinaryCodec extends FrameCodec {
+
+        private static final int RAW = 0;
+        private static final int STATE = 1;
+        private static final int READY = 2;
+        private static final int NOTREADY = 3;
+        private static final int LEFTSESSION = 4;
+        private static final int KICKED = 5;
+        private static final int HIT = 6;
+        private static final int WON = 7;
+        private static final int MOVED = 8;
+        private static final int BOMBPLACED = 9;
+        private static final int SNAPSHOT = 10;
+        private static final int SNAPSHOTACK = 11;
+
+        private static final int TYPEMASK = 0x1F;
+        private static final int FLAG = 0x80;
+        private static final int SECONDFLAG = 0x40;
+
+        public int getVersion(){
+            return VERSION;
+        }
+
+        public int getMaxFrameSize(){
+            return 1 + 4 * 5;
+        }
+
+        public void encode(ByteBuffer buffer, int[] frame){
+            int first = frame[0];
+
+            if (first >= 0 && frame[1] >= 0) {
+                if (frame[2] >= 0 && frame[3] >= 0) {
+                    buffer.put((byte) (STATE | FLAG));
+                    putVarint(buffer, first);
+                    putVarint(buffer, frame[1]);
+                    putVarint(buffer, frame[2]);
+                    putVarint(buffer, frame[3]);
+                    return;
+                } else if (frame[2] == GameConstants.NOBOMB && frame[3] == GameConstants.NOBOMB) {
+                    buffer.put((byte) STATE);
+                    putVarint(buffer, first);
+                    putVarint(buffer, frame[1]);
+                    return;
+                }
+            } else if (first == GameConstants.OTHERPLAYERREADY && frame[3] == first
+                    && (frame[1] == first || frame[1] == GameConstants.INPUTEVENTS)
+                    && (frame[2] == first || frame[2] == GameConstants.SNAPSHOTS)) {
+                int header = READY;
+
+                if (frame[1] == GameConstants.INPUTEVENTS) header |= FLAG;
+                if (frame[2] == GameConstants.SNAPSHOTS) header |= SECONDFLAG;
+
+                buffer.put((byte) header);
+                return;
+            } else if (first == GameConstants.SNAPSHOT && frame[1] >= 0 && frame[2] >= 0
+                    && frame[3] >= 0) {
+                buffer.put((byte) SNAPSHOT);
+                putVarint(buffer, frame[1]);
+                putVarint(buffer, frame[2]);
+                putVarint(buffer, frame[3]);
+                return;
+            } else if (first == GameConstants.SNAPSHOTACK && frame[1] >= 0 && isRepeated(frame, 2)) {
+                buffer.put((byte) SNAPSHOTACK);
+                putVarint(buffer, frame[1]);
+                return;
+            } else if (isRepeated(frame, 1)) {
+                if (first == GameConstants.OTHERPLAYERNOTREADY) {
+                    buffer.put((byte) NOTREADY);
+                    return;
+                } else if (first == GameConstants.PLAYERLEFTSESSION) {
+                    buffer.put((byte) LEFTSESSION);
+                    return;
+                } else if (first == GameConstants.KICKED) {
+                    buffer.put((byte) KICKED);
+                    return;
+                }
+            } else if (first == GameConstants.PLAYERHIT && frame[3] == GameConstants.PLAYERHIT
+                    && (frame[1] == GameConstants.PLAYER1 || frame[1] == GameConstants.PLAYER2)
+                    && frame[2] >= 0) {
+                buffer.put((byte) (frame[1] == GameConstants.PLAYER2 ? HIT | FLAG : HIT));
+                putVarint(buffer, frame[2]);
+                return;
+            } else if (first == GameConstants.PLAYERWON && isRepeated(frame, 2)
+                    && frame[1] <= GameConstants.PLAYER1 && frame[1] >= GameConstants.DRAW) {
+                buffer.put((byte) WON);
+                putVarint(buffer, -frame[1]);
+                return;
+            } else if ((first == GameConstants.PLAYERMOVED || first == GameConstants.BOMBPLACED)
+                    && frame[3] == first && frame[1] >= 0 && frame[2] >= 0) {
+                buffer.put((byte) (first == GameConstants.PLAYERMOVED ? MOVED : BOMBPLACED));
+                putVarint(buffer, frame[1]);
+                putVarint(buffer, frame[2]);
+                return;
+            }
+
+            buffer.put((byte) RAW);
+
+            for (int value : frame) {
+                putVarint(buffer, (value << 1) ^ (value >> 31));
+            }
+        }
+
+        int[] read(ByteSource source) throws IOException {
+            int header = source.readByte();
+            boolean isFlagged = (header & FLAG) != 0;
+            int value;
+
+            switch (header & TYPEMASK) {
+                case STATE:
+                    int positionX = readVarint(source);
+                    int positionY = readVarint(source);
+
+                    if (isFlagged) {
+                        return new int[]{positionX, positionY,
+                                readVarint(source), readVarint(source)};
+                    }
+
+                    return new int[]{positionX, positionY, GameConstants.NOBOMB, GameConstants.NOBOMB};
+                case READY:
+                    value = GameConstants.OTHERPLAYERREADY;
+                    return new int[]{value, isFlagged ? GameConstants.INPUTEVENTS : value,
+                            (header & SECONDFLAG) != 0 ? GameConstants.SNAPSHOTS : value, value};
+                case NOTREADY:
+                    return repeat(GameConstants.OTHERPLAYERNOTREADY);
+                case LEFTSESSION:
+                    return repeat(GameConstants.PLAYERLEFTSESSION);
+                case KICKED:
+                    return repeat(GameConstants.KICKED);
+                case HIT:
+                    value = GameConstants.PLAYERHIT;
+                    return new int[]{value, isFlagged ? GameConstants.PLAYER2 : GameConstants.PLAYER1,
+                            readVarint(source), value};
+                case WON:
+                    value = GameConstants.PLAYERWON;
+                    return new int[]{value, -readVarint(source), value, value};
+                case MOVED:
+                    value = GameConstants.PLAYERMOVED;
+                    return new int[]{value, readVarint(source), readVarint(source), value};
+                case BOMBPLACED:
+                    value = GameConstants.BOMBPLACED;
+                    return new int[]{value, readVarint(source), readVarint(source), value};
+                case SNAPSHOT:
+                    return new int[]{GameConstants.SNAPSHOT, readVarint(source),
+                            readVarint(source), readVarint(source)};
+                case SNAPSHOTACK:
+                    value = GameConstants.SNAPSHOTACK;
+                    return new int[]{value, readVarint(source), value, value};
+                case RAW:
+                    int[] frame = new int[4];
+
+                    for (int i = 0; i < frame.length; i++) {
+                        value = readVarint(source);
+                        frame[i] = (value >>> 1) ^ -(value & 1);
+                    }
+
+                    return frame;
+                default:
+                    throw new ProtocolException("Unknown message type " + (header & TYPEMASK));
+            }
+        }
+
+        private static boolean isRepeated(int[] frame, int from){
+            for (int i = from; i < frame.length; i++) {
+                if (frame[i] != frame[0]) return false;
+            }
+
+            return true;
+        }
+
+        private static int[] repeat(int value){
+            return new int[]{value, value, value, value};
+        }
+
+        /**
+         * Puts an unsigned varint: seven bits a byte, lowest first, the top bit set on
+         * every byte but the last.
+         *
+         */
+        private static void putVarint(ByteBuffer buffer, int value){
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+
+            buffer.put((byte) value);
+        }
+
+        private static int readVarint(ByteSource source) throws IOException {
+            int value = 0;
+
+            for (int shift = 0; shift < 35; shift += 7) {
+                int read = source.readByte();
+                value |= (read & 0x7F) << shift;
+
+                if ((read & 0x80) == 0) return value;
+            }
+
+            throw new ProtocolException("Varint too long");
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes frames of four ints, the message format described by {@link GameConstants}.
+ * Each frame is encoded by a {@link FrameCodec}, {@link FrameCodec#LEGACY} until the
+ * version of the protocol has been agreed, into a reusable {@link ByteBuffer} so it is
+ * written with a single call rather than four, and frames are coalesced until the
+ * {@link FlushPolicy} says they should be written, or {@link #flush()} is invoked.
+ *
+ * The default policy is {@link FlushPolicy#PERFRAME}. It can be changed for the whole
+ * process with the system properties {@link #FLUSH_PROPERTY} ("perframe", "pertick" or
+ * "threshold") and {@link #FLUSH_THRESHOLD_PROPERTY} (bytes).
+ *
+ * Writers are guarded by a {@link ReentrantLock} rather than synchronized methods, so a
+ * virtual thread blocked writing to the socket does not pin its carrier thread, see
+ * {@link ThreadMode}.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class FrameWriter {
+
+    public static final String FLUSH_PROPERTY = "bomberman.flush";
+    public static final String FLUSH_THRESHOLD_PROPERTY = "bomberman.flushThreshold";
+    public static final int FRAMESIZE = 16;
+
+    private static final int BUFFERSIZE = FRAMESIZE * 32;
+    private static final int DEFAULTTHRESHOLD = FRAMESIZE * 4;
+
+    private OutputStream out;
+    private ByteBuffer buffer;
+    private FlushPolicy flushPolicy;
+    private int flushThreshold;
+    private ReentrantLock lock;
+    private FrameCodec codec;
+
+    /**
+     * Creates a frame writer using {@link #getDefaultFlushPolicy()}.
+     *
+     * @param out the stream frames are written to.
+     */
+    public FrameWriter(OutputStream out){
+        this(out, getDefaultFlushPolicy(), getDefaultFlushThreshold());
+    }
+
+    /**
+     * Creates a frame writer.
+     *
+     * @param out the stream frames are written to.
+     * @param flushPolicy decides when buffered frames are written.
+     * @param flushThreshold bytes buffered before a write under {@link FlushPolicy#THRESHOLD}.
+     */
+    public FrameWriter(OutputStream out, FlushPolicy flushPolicy, int flushThreshold){
+        this.out = out;
+        this.flushPolicy = flushPolicy;
+        this.flushThreshold = Math.min(Math.max(FRAMESIZE, flushThreshold), BUFFERSIZE);
+        buffer = ByteBuffer.allocate(BUFFERSIZE);
+        lock = new ReentrantLock();
+        codec = FrameCodec.LEGACY;
+    }
+
+    /**
+     * Reads {@link #FLUSH_PROPERTY}.
+     *
+     * @return the flush policy set for this process, or {@link FlushPolicy#PERFRAME}.
+     */
+    public static FlushPolicy getDefaultFlushPolicy(){
+        String policy = System.getProperty(FLUSH_PROPERTY);
+
+        if (policy != null) {
+            for (FlushPolicy flushPolicy : FlushPolicy.values()) {
+                if (flushPolicy.name().equalsIgnoreCase(policy.trim())) {
+                    return flushPolicy;
+                }
+            }
+        }
+
+        return FlushPolicy.PERFRAME;
+    }
+
+    /**
+     * Reads {@link #FLUSH_THRESHOLD_PROPERTY}.
+     *
+     * @return the flush threshold set for this process, or four frames.
+     */
+    public static int getDefaultFlushThreshold(){
+        try {
+            return Integer.parseInt(System.getProperty(FLUSH_THRESHOLD_PROPERTY,
+                    "" + DEFAULTTHRESHOLD).trim());
+        } catch (NumberFormatException nfe){
+            return DEFAULTTHRESHOLD;
+        }
+    }
+
+    /**
+     * Puts a frame into a buffer in the legacy format.
+     *
+     * @param buffer the buffer, with at least {@link #FRAMESIZE} bytes remaining.
+     * @param data the four ints of the frame.
+     */
+    public static void encode(ByteBuffer buffer, int[] data){
+        FrameCodec.LEGACY.encode(buffer, data);
+    }
+
+    /**
+     * Buffers a frame, writing it if the flush policy requires.
+     *
+     * @param data the four ints of the frame.
+     * @throws IOException if the frames could not be written.
+     */
+    public void writeFrame(int[] data) throws IOException {
+        lock.lock();
+        try {
+            if (buffer.remaining() < codec.getMaxFrameSize()) {
+                flush();
+            }
+
+            codec.encode(buffer, data);
+
+            if (flushPolicy.isFlushDue(buffer.position(), flushThreshold)) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Buffers a frame, writing it if the flush policy requires.
+     *
+     * @throws IOException if the frames could not be written.
+     */
+    public void writeFrame(int first, int second, int third, int fourth)
+            throws IOException {
+        lock.lock();
+        try {
+            if (codec != FrameCodec.LEGACY) {
+                writeFrame(new int[]{first, second, third, fourth});
+                return;
+            }
+
+            if (buffer.remaining() < FRAMESIZE) {
+                flush();
+            }
+
+            buffer.putInt(first);
+            buffer.putInt(second);
+            buffer.putInt(third);
+            buffer.putInt(fourth);
+
+            if (flushPolicy.isFlushDue(buffer.position(), flushThreshold)) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every buffered frame with a single write.
+     *
+     * @throws IOException if the frames could not be written.
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            if (buffer.position() > 0) {
+                int length = buffer.position();
+                buffer.clear();
+                out.write(buffer.array(), 0, length);
+            }
+
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes any buffered frames and closes the stream.
+     *
+     * @throws IOException if the stream could not be closed.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Buffers a last frame in the current format, then encodes every later frame with
+     * another codec. Used to reply to {@link FrameCodec#createHello(int, int)}, as the reply
+     * must be read in the format the hello was sent in.
+     *
+     * @param lastFrame the last frame in the current format.
+     * @param codec the codec for every later frame.
+     * @throws IOException if the frames could not be written.
+     */
+    public void switchCodec(int[] lastFrame, FrameCodec codec) throws IOException {
+        lock.lock();
+        try {
+            writeFrame(lastFrame);
+            this.codec = codec;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setCodec(FrameCodec codec){
+        lock.lock();
+        try {
+            this.codec = codec;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public FrameCodec getCodec(){
+        lock.lock();
+        try {
+            return codec;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendingBytes(){
+        lock.lock();
+        try {
+            return buffer.position();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public FlushPolicy getFlushPolicy(){
+        return flushPolicy;
+    }
+
+    public int getFlushThreshold(){
+        return flushThreshold;
+    }
+}
@@ -24,6 +24,17 @@ public interface GameConstants {
     public static int OTHERPLAYERNOTREADY = -10;
     public static int PLAYERWON = -11;
     public static int PLAYERHIT = -12;
+    public static int PLAYERMOVED = -13;      // Input event: {PLAYERMOVED, X, Y, PLAYERMOVED}
+    public static int BOMBPLACED = -14;       // Input event: {BOMBPLACED, X, Y, BOMBPLACED}
+    public static int INPUTEVENTS = -15;      // Second int of OTHERPLAYERREADY from clients sending input events
+    public static int HELLO = -16;            // Protocol version handshake: {HELLO, version, nonce, HELLO}
+    public static int SNAPSHOT = -17;         // World snapshot header: {SNAPSHOT, sequence, baseline, length}
+    public static int SNAPSHOTACK = -18;      // Snapshot received: {SNAPSHOTACK, sequence, SNAPSHOTACK, SNAPSHOTACK}
+    public static int SNAPSHOTS = -19;        // Third int of OTHERPLAYERREADY from clients receiving snapshots
     public static int PLAYERLIVES = 2;
+    public static int PLAYERSPERSESSION = 2;  // Protocol only identifies PLAYER1 and PLAYER2
+    public static int BOMBFUSEMILLIS = 1000;  // Time before a placed bomb explodes
+    public static int EXPLOSIONMILLIS = 500;  // Time an explosion stays on screen
+    public static int EXPLOSIONRANGE = 2;     // Cells reached by an explosion in each direction
     public static boolean PLAYAUDIO = false;
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package common;
+
+import java.util.Arrays;
+
+/**
+ * A set of cells of the {@link GameConstants#MAPSIZE} x {@link GameConstants#MAPSIZE} grid,
+ * stored as one bit per cell in a {@code long[]}. Used for explosion footprints, so marking
+ * a cell and checking whether a player is standing in an explosion are a single bit
+ * operation and reusing a set does not allocate.
+ *
+ * The cell at X, Y is stored at index {@code X * size + Y}. Set cells can be visited with:
+ *
+ * <pre>
+ * for (int i = cells.nextSetBit(0); i &gt;= 0; i = cells.nextSetBit(i + 1)) {
+ *     int x = cells.getX(i);
+ *     int y = cells.getY(i);
+ * }
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class GridBitSet {
+
+    private long[] words;
+    private int size;
+
+    /**
+     * Creates an empty set covering a {@link GameConstants#MAPSIZE} grid.
+     *
+     */
+    public GridBitSet(){
+        this(GameConstants.MAPSIZE);
+    }
+
+    /**
+     * Creates an empty set.
+     *
+     * @param size the width and height of the grid.
+     */
+    public GridBitSet(int size){
+        this.size = size;
+        words = new long[(size * size + 63) >>> 6];
+    }
+
+    public void set(int positionX, int positionY){
+        int index = positionX * size + positionY;
+        words[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Checks whether a cell is in the set. Cells outside the grid are never in the set.
+     *
+     * @param positionX X position of the cell.
+     * @param positionY Y position of the cell.
+     * @return true if the cell has been set.
+     */
+    public boolean get(int positionX, int positionY){
+        if (positionX < 0 || positionX >= size || positionY < 0 || positionY >= size) {
+            return false;
+        }
+
+        int index = positionX * size + positionY;
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void clear(){
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Adds every cell of another set of the same size to this set.
+     *
+     * @param cells the cells to be added.
+     */
+    public void or(GridBitSet cells){
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= cells.words[i];
+        }
+    }
+
+    /**
+     * Adds every cell of the grid to this set.
+     *
+     */
+    public void setAll(){
+        for (int i = 0; i < size * size; i++) {
+            words[i >>> 6] |= 1L << i;
+        }
+    }
+
+    public boolean isEmpty(){
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the next cell in the set.
+     *
+     * @param fromIndex the index to start searching from.
+     * @return the index of the next set cell, or -1 if there are none.
+     */
+    public int nextSetBit(int fromIndex){
+        int wordIndex = fromIndex >>> 6;
+
+        if (wordIndex >= words.length) return -1;
+
+        long word = words[wordIndex] & (-1L << fromIndex);
+
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+
+            if (++wordIndex == words.length) return -1;
+
+            word = words[wordIndex];
+        }
+    }
+
+    public int getX(int index){
+        return index / size;
+    }
+
+    public int getY(int index){
+        return index % size;
+    }
+
+    public int getSize(){
+        return size;
+    }
+}
@@ -1,9 +1,11 @@
-package client.game;
+package common;
 
 /**
- * Enumeration storing image names. These names are used to update
- * {@link client.game.Cell}. {@link client.game.Cell#paintComponent(java.awt.Graphics)} uses a
- * switch statement based on this enum to paint the correct images into each cell.
+ * Enumeration storing image names. These names are the contents of each tile of a
+ * {@link common.TileGrid}, which is shared by the game logic on the client and the server.
+ * {@link client.game.TileAtlas} uses a switch statement based on this enum to scale the
+ * correct image for each tile, and {@link TileFlags} holds the properties of each
+ * e.g. whether a player can walk into it.
  *
  *
  * @author Robert Wells
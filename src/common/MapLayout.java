@@ -0,0 +1,75 @@
+package common;
+
+/**
+ * Holds the layout of the Bomberman map, used by the client to draw the environment
+ * and by the server to simulate the game, so both start each game from the same grid.
+ *
+ * The map is made of {@link ImageName#EMPTY} tiles, {@link ImageName#TERRAIN} which can be
+ * exploded by a bomb, and {@link ImageName#PERMTERRAIN} which cannot. Grids are indexed by
+ * row then column.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class MapLayout implements GameConstants {
+
+    private static final int[][] TERRAINCELLS = {
+            {0, 2}, {0, 3}, {0, 4}, {0, 5}, {0, 7},
+            {1, 2}, {1, 4},
+            {2, 3}, {2, 4}, {2, 5}, {2, 6}, {2, 7}, {2, 8},
+            {3, 0}, {3, 2}, {3, 4}, {3, 8}, {3, 10},
+            {4, 2}, {4, 4}, {4, 5}, {4, 6}, {4, 7}, {4, 8},
+            {5, 0}, {5, 2}, {5, 8}, {5, 10},
+            {6, 2}, {6, 3}, {6, 5}, {6, 8}, {6, 9}, {6, 10},
+            {7, 0}, {7, 2}, {7, 4}, {7, 6}, {7, 8}, {7, 10},
+            {8, 2}, {8, 3}, {8, 4}, {8, 5}, {8, 6}, {8, 7},
+            {9, 6}, {9, 10},
+            {10, 3}, {10, 5}, {10, 6}, {10, 7}
+    };
+
+    /**
+     * Creates the grid at the start of a game.
+     *
+     * @return a new grid of {@link #MAPSIZE} by {@link #MAPSIZE} tiles.
+     */
+    public static TileGrid createGrid(){
+        TileGrid grid = new TileGrid(MAPSIZE);
+        resetGrid(grid);
+        return grid;
+    }
+
+    /**
+     * Sets a grid to the start of a game. Permanent terrain fills every cell
+     * with an odd row and column, and destroyable terrain fills {@link #TERRAINCELLS}.
+     *
+     * @param grid the grid to be reset, of {@link #MAPSIZE} by {@link #MAPSIZE} tiles.
+     */
+    public static void resetGrid(TileGrid grid){
+        grid.clear();
+
+        for (int i = 1; i < MAPSIZE - 1; i += 2)
+            for (int j = 1; j < MAPSIZE - 1; j += 2) {
+                grid.setImageName(i, j, ImageName.PERMTERRAIN);
+            }
+
+        for (int[] cell : TERRAINCELLS) {
+            grid.setImageName(cell[0], cell[1], ImageName.TERRAIN);
+        }
+    }
+
+    /**
+     * Returns the cell a player starts each game in. Player one starts in the top left
+     * corner and player two in the bottom right corner.
+     *
+     * @param playerNum {@link GameConstants#PLAYER1} or {@link GameConstants#PLAYER2}.
+     * @return the row and column of the starting cell.
+     */
+    public static int[] getStartPosition(int playerNum){
+        if (playerNum == PLAYER1) {
+            return new int[]{0, 0};
+        }
+
+        return new int[]{MAPSIZE - 1, MAPSIZE - 1};
+    }
+}
@@ -0,0 +1,253 @@
+package common;
+
+import java.net.ProtocolException;
+
+/**
+ * Encodes a {@link WorldSnapshot} as the changes since a baseline snapshot the client has
+ * already received, so the cost of sending the world depends on how much of it has changed
+ * rather than the size of the map. A snapshot is sent as a header frame followed by the
+ * body, four ints to a frame, the last frame padded with zeros:
+ *
+ * <pre>
+ * Header: {SNAPSHOT, sequence, baseline sequence (0 for none), length of the body in ints}
+ *
+ * Body:   entity mask, bit N set if entity N has changed
+ *         the ints of each entity changed, see {@link WorldSnapshot}
+ *         number of mask words, 0 if no tile has changed
+ *         mask words, bit N of word W set if tile W * {@link #WORDBITS} + N has changed
+ *         runs of tile values, each (number of changed tiles &lt;&lt; 8) | tile, in tile order
+ * </pre>
+ *
+ * No int of the body is negative, so a body frame is never mistaken for a sentinel of
+ * {@link GameConstants}, and mask words after the last changed tile are left out. A frame
+ * of the body is sent by {@link FrameCodec#BINARY} as a varint of each int, so most cost
+ * one byte. An idle world is not sent at all.
+ *
+ * <pre>
+ * Example, encoding on the server:
+ *
+ * int frames = snapshotCodec.encode(sequence, baseline, changedTiles, grid, entities, baselineEntities);
+ *
+ * for (int i = 0; i &lt; frames; i++) {
+ *     sendFrame(snapshotCodec.getFrame(i));
+ * }
+ * </pre>
+ *
+ * An encoder reuses its buffers, so it must only be used by one thread.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SnapshotCodec {
+
+    /**
+     * Bits used in each mask word, 31 so no word is negative.
+     */
+    public static final int WORDBITS = 31;
+
+    private static final int TILES = ImageName.values().length;
+
+    private int[] body;
+    private int length;
+    private int[] header;
+    private int[] frame;
+
+    /**
+     * Creates an encoder for a {@link GameConstants#MAPSIZE} grid.
+     *
+     */
+    public SnapshotCodec(){
+        this(GameConstants.MAPSIZE);
+    }
+
+    /**
+     * Creates an encoder.
+     *
+     * @param size the width and height of the grid.
+     */
+    public SnapshotCodec(int size){
+        int cells = size * size;
+        body = new int[1 + WorldSnapshot.ENTITIES * WorldSnapshot.ENTITYSIZE + 1
+                + getWordCount(cells) + cells];
+        header = new int[4];
+        frame = new int[4];
+    }
+
+    private static int getWordCount(int cells){
+        return (cells + WORDBITS - 1) / WORDBITS;
+    }
+
+    /**
+     * Encodes a snapshot as the changes since a baseline.
+     *
+     * @param sequence the sequence of the snapshot.
+     * @param baseline the sequence of the baseline, or 0 to send the whole world.
+     * @param changedTiles the tiles changed since the baseline, every tile if there is none.
+     * @param grid the grid holding the tiles of the snapshot.
+     * @param entities the ints of the entities of the snapshot, see {@link WorldSnapshot}.
+     * @param baselineEntities the ints of the entities of the baseline, or null if there is none.
+     * @return the number of frames to be sent, see {@link #getFrame(int)}.
+     */
+    public int encode(int sequence, int baseline, GridBitSet changedTiles, TileGrid grid,
+                      int[] entities, int[] baselineEntities){
+        int entityMask = 0;
+        length = 1;
+
+        for (int entity = 0; entity < WorldSnapshot.ENTITIES; entity++) {
+            int start = entity * WorldSnapshot.ENTITYSIZE;
+
+            if (baselineEntities != null && isEqual(entities, baselineEntities, start)) continue;
+
+            entityMask |= 1 << entity;
+
+            for (int i = start; i < start + WorldSnapshot.ENTITYSIZE; i++) {
+                body[length++] = entities[i];
+            }
+        }
+
+        body[0] = entityMask;
+
+        int wordCountIndex = length++;
+        int words = 0;
+
+        for (int i = changedTiles.nextSetBit(0); i >= 0; i = changedTiles.nextSetBit(i + 1)) {
+            int word = i / WORDBITS;
+
+            while (words <= word) {
+                body[length++] = 0;
+                words++;
+            }
+
+            body[wordCountIndex + 1 + word] |= 1 << (i % WORDBITS);
+        }
+
+        body[wordCountIndex] = words;
+
+        int runTile = -1;
+        int runLength = 0;
+
+        for (int i = changedTiles.nextSetBit(0); i >= 0; i = changedTiles.nextSetBit(i + 1)) {
+            int tile = grid.getTile(changedTiles.getX(i), changedTiles.getY(i));
+
+            if (tile != runTile && runLength > 0) {
+                body[length++] = (runLength << 8) | runTile;
+                runLength = 0;
+            }
+
+            runTile = tile;
+            runLength++;
+        }
+
+        if (runLength > 0) {
+            body[length++] = (runLength << 8) | runTile;
+        }
+
+        header[0] = GameConstants.SNAPSHOT;
+        header[1] = sequence;
+        header[2] = baseline;
+        header[3] = length;
+
+        return 1 + getBodyFrames(length);
+    }
+
+    private static boolean isEqual(int[] entities, int[] baselineEntities, int start){
+        for (int i = start; i < start + WorldSnapshot.ENTITYSIZE; i++) {
+            if (entities[i] != baselineEntities[i]) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets a frame of the last snapshot encoded. The frame is reused, so it must be sent
+     * before the next is taken.
+     *
+     * @param index the index of the frame, 0 for the header.
+     * @return the frame.
+     */
+    public int[] getFrame(int index){
+        if (index == 0) return header;
+
+        int start = (index - 1) * 4;
+
+        for (int i = 0; i < 4; i++) {
+            frame[i] = start + i < length ? body[start + i] : 0;
+        }
+
+        return frame;
+    }
+
+    /**
+     * @return the number of frames needed for a body of the given length.
+     */
+    public static int getBodyFrames(int length){
+        return (length + 3) / 4;
+    }
+
+    /**
+     * Applies the body of a snapshot to a copy of its baseline.
+     *
+     * @param body the ints of the body, see the class description.
+     * @param length the number of ints in the body, excluding padding.
+     * @param snapshot a copy of the baseline, or an empty snapshot if there is none,
+     *                 changed into the snapshot sent.
+     * @param changedTiles set to the tiles changed since the baseline.
+     * @throws ProtocolException if the body is not a snapshot of this size of grid.
+     */
+    public static void decode(int[] body, int length, WorldSnapshot snapshot,
+                              GridBitSet changedTiles) throws ProtocolException {
+        try {
+            int index = 0;
+            int entityMask = body[index++];
+            int[] entities = snapshot.getEntities();
+
+            for (int entity = 0; entity < WorldSnapshot.ENTITIES; entity++) {
+                if ((entityMask & (1 << entity)) == 0) continue;
+
+                System.arraycopy(body, index, entities, entity * WorldSnapshot.ENTITYSIZE,
+                        WorldSnapshot.ENTITYSIZE);
+                index += WorldSnapshot.ENTITYSIZE;
+            }
+
+            int words = body[index++];
+            int wordStart = index;
+            int cells = snapshot.getSize() * snapshot.getSize();
+
+            if (words > getWordCount(cells)) throw new ProtocolException("Too many mask words");
+
+            index += words;
+            changedTiles.clear();
+
+            int runLength = 0;
+            byte runTile = 0;
+
+            for (int word = 0; word < words; word++) {
+                int bits = body[wordStart + word];
+
+                while (bits != 0) {
+                    int cell = word * WORDBITS + Integer.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    if (cell >= cells) throw new ProtocolException("Tile outside the grid");
+
+                    if (runLength == 0) {
+                        int run = body[index++];
+                        runLength = run >>> 8;
+                        runTile = (byte) (run & 0xFF);
+
+                        if (runTile >= TILES) throw new ProtocolException("Unknown tile");
+                    }
+
+                    snapshot.setTile(cell, runTile);
+                    changedTiles.set(changedTiles.getX(cell), changedTiles.getY(cell));
+                    runLength--;
+                }
+            }
+
+            if (index > length) throw new ProtocolException("Snapshot too short");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new ProtocolException("Snapshot too short");
+        }
+    }
+}
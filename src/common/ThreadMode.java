@@ -0,0 +1,132 @@
+package common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enumeration of the kinds of thread used to run the blocking loops that read from a
+ * socket, i.e. each players input loop on the server and the game loop on the client.
+ *
+ * PLATFORM starts a normal thread for each task. VIRTUAL starts a virtual thread for each
+ * task, so many thousands of connections can block in {@code readInt} without a platform
+ * thread each. Virtual threads are created by reflection so the code still builds on older
+ * JDKs; if the running JDK does not support them, platform threads are used instead.
+ *
+ * The mode is chosen at start-up with the system property {@link #THREADS_PROPERTY}
+ * ("platform" or "virtual"), for example:
+ *
+ * <pre>
+ * java -Dbomberman.threads=virtual server.ServerTester
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public enum ThreadMode {
+
+    PLATFORM, VIRTUAL;
+
+    public static final String THREADS_PROPERTY = "bomberman.threads";
+
+    /**
+     * Reads {@link #THREADS_PROPERTY}.
+     *
+     * @return the thread mode set for this process, or {@link #PLATFORM}.
+     */
+    public static ThreadMode fromSystemProperties(){
+        String mode = System.getProperty(THREADS_PROPERTY);
+
+        if (mode != null && VIRTUAL.name().equalsIgnoreCase(mode.trim())) {
+            return VIRTUAL;
+        }
+
+        return PLATFORM;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new thread of this mode.
+     *
+     * @param name the prefix of the names given to the threads.
+     * @return the executor.
+     */
+    public Executor createExecutor(String name){
+        ThreadFactory threadFactory = null;
+
+        if (this == VIRTUAL) {
+            threadFactory = createVirtualThreadFactory(name);
+        }
+
+        if (threadFactory == null) {
+            threadFactory = new PlatformThreadFactory(name);
+        }
+
+        return new ThreadPerTaskExecutor(threadFactory);
+    }
+
+    /**
+     * Checks whether the running JDK can create virtual threads.
+     *
+     * @return true if {@link #VIRTUAL} uses virtual threads.
+     */
+    public static boolean isVirtualSupported(){
+        return createVirtualThreadFactory("") != null;
+    }
+
+    /**
+     * Creates a factory using {@code Thread.ofVirtual().name(name, 0).factory()}.
+     *
+     * @param name the prefix of the names given to the threads.
+     * @return the factory, or null if virtual threads are not supported.
+     */
+    private static ThreadFactory createVirtualThreadFactory(String name){
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            builder = nameMethod.invoke(builder, name, 0L);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Inner class that creates numbered platform threads.
+     *
+     */
+    private static class PlatformThreadFactory implements ThreadFactory {
+        private String name;
+        private AtomicInteger threadNum;
+
+        public PlatformThreadFactory(String name){
+            this.name = name;
+            threadNum = new AtomicInteger(0);
+        }
+
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, name + threadNum.getAndIncrement());
+        }
+    }
+
+    /**
+     * Inner class that starts a new thread for each task, as the tasks run for the
+     * lifetime of a connection and would otherwise hold on to a pooled thread.
+     *
+     */
+    private static class ThreadPerTaskExecutor implements Executor {
+        private ThreadFactory threadFactory;
+
+        public ThreadPerTaskExecutor(ThreadFactory threadFactory){
+            this.threadFactory = threadFactory;
+        }
+
+        public void execute(Runnable runnable) {
+            threadFactory.newThread(runnable).start();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package common;
+
+/**
+ * Table of the properties of each {@link ImageName}, as bit flags, so the game logic on the
+ * client and the server can classify a tile with a single array lookup rather than comparing
+ * it against each image in turn. The table is indexed by the ordinal of the image, which is
+ * the raw value of a tile in a {@link TileGrid}.
+ *
+ * <pre>
+ * Example:
+ *
+ * if (TileFlags.has(ImageName.EXPLOSIONTOPONE, TileFlags.WALKABLE | TileFlags.EXPLOSION)) ...
+ * if (grid.hasFlag(positionX, positionY, TileFlags.BLOCKSBLAST)) ...
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public final class TileFlags {
+
+    /** A player can move into the tile: it is empty or exploding. */
+    public static final int WALKABLE = 1;
+
+    /** The tile is part of an explosion. */
+    public static final int EXPLOSION = 1 << 1;
+
+    /** The tile is removed by an explosion, i.e. terrain. */
+    public static final int DESTRUCTIBLE = 1 << 2;
+
+    /** An explosion stops before the tile, i.e. permanent terrain. */
+    public static final int BLOCKSBLAST = 1 << 3;
+
+    /** The tile holds a bomb. */
+    public static final int BOMB = 1 << 4;
+
+    /** The tile holds either player. */
+    public static final int PLAYER = 1 << 5;
+
+    /** The tile holds the first player. */
+    public static final int PLAYERONE = 1 << 6;
+
+    /** The tile holds the second player. */
+    public static final int PLAYERTWO = 1 << 7;
+
+    private static final int[] FLAGS = createFlags();
+
+    private TileFlags(){
+    }
+
+    /**
+     * Works out the flags of every image once.
+     *
+     */
+    private static int[] createFlags(){
+        int[] flags = new int[ImageName.values().length];
+
+        for (ImageName imageName : ImageName.values()) {
+            int flag = 0;
+
+            switch (imageName){
+                case PLAYERONEFORWARD: case PLAYERONELEFT: case PLAYERONERIGHT: case PLAYERONEBACK:
+                    flag = PLAYER | PLAYERONE;
+                    break;
+                case PLAYERTWOFORWARD: case PLAYERTWOLEFT: case PLAYERTWORIGHT: case PLAYERTWOBACK:
+                    flag = PLAYER | PLAYERTWO;
+                    break;
+                case EXPLOSIONCENTRE: case EXPLOSIONLEFTONE: case EXPLOSIONLEFTTWO:
+                case EXPLOSIONRIGHTONE: case EXPLOSIONRIGHTTWO: case EXPLOSIONTOPONE:
+                case EXPLOSIONTOPTWO: case EXPLOSIONBOTTOMONE: case EXPLOSIONBOTTOMTWO:
+                    flag = WALKABLE | EXPLOSION;
+                    break;
+                case EMPTY:
+                    flag = WALKABLE;
+                    break;
+                case BOMB:
+                    flag = BOMB;
+                    break;
+                case TERRAIN:
+                    flag = DESTRUCTIBLE;
+                    break;
+                case PERMTERRAIN:
+                    flag = BLOCKSBLAST;
+                    break;
+                default:
+                    break;
+            }
+
+            flags[imageName.ordinal()] = flag;
+        }
+
+        return flags;
+    }
+
+    /**
+     * Gets the flags of a tile from its raw value.
+     *
+     * @param tile the ordinal of the tiles image, as returned by {@link TileGrid#getTile(int, int)}.
+     * @return the flags of the tile.
+     */
+    public static int get(byte tile){
+        return FLAGS[tile];
+    }
+
+    public static int get(ImageName imageName){
+        return FLAGS[imageName.ordinal()];
+    }
+
+    /**
+     * @return true if the image has any of the flags given.
+     */
+    public static boolean has(ImageName imageName, int flags){
+        return (FLAGS[imageName.ordinal()] & flags) != 0;
+    }
+}
@@ -0,0 +1,145 @@
+package common;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the state of the Bomberman environment as a square grid of tiles, independent of
+ * Swing, so game logic can run headless on the client or the server. Each tile is the
+ * {@link ImageName} shown in it, stored as a byte in a single {@code byte[]}, along with the
+ * image it held before its last change so a player can be drawn over an explosion or a bomb
+ * over a player.
+ *
+ * The tile at X, Y is stored at index {@code X * size + Y}, the same as {@link GridBitSet}.
+ * Views register a {@link TileListener} to be told when a tile needs repainting.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class TileGrid {
+
+    private static final ImageName[] IMAGENAMES = ImageName.values();
+    private static final byte EMPTY = (byte) ImageName.EMPTY.ordinal();
+
+    private int size;
+    private byte[] tiles;
+    private byte[] previousTiles;
+    private CopyOnWriteArrayList<TileListener> tileListeners;
+
+    /**
+     * Creates a grid with every tile set to {@link ImageName#EMPTY}.
+     *
+     * @param size the width and height of the grid.
+     */
+    public TileGrid(int size){
+        this.size = size;
+        tiles = new byte[size * size];
+        previousTiles = new byte[size * size];
+        tileListeners = new CopyOnWriteArrayList<TileListener>();
+
+        clear();
+    }
+
+    /**
+     * Sets every tile to {@link ImageName#EMPTY}. Listeners are not informed, views
+     * should repaint the whole grid.
+     *
+     */
+    public void clear(){
+        Arrays.fill(tiles, EMPTY);
+        Arrays.fill(previousTiles, EMPTY);
+    }
+
+    /**
+     * Sets the image of a tile, remembering the image it replaces. Listeners are informed
+     * if either has changed, e.g. a bomb replacing a bomb still needs repainting if a player
+     * was drawn with the first one.
+     *
+     * @param positionX X position of the tile.
+     * @param positionY Y position of the tile.
+     * @param imageName the image to be shown in the tile.
+     */
+    public void setImageName(int positionX, int positionY, ImageName imageName){
+        int index = positionX * size + positionY;
+        byte tile = (byte) imageName.ordinal();
+        byte previousTile = tiles[index];
+
+        if (tile == previousTile && previousTiles[index] == previousTile) return;
+
+        previousTiles[index] = previousTile;
+        tiles[index] = tile;
+
+        for (TileListener tileListener : tileListeners) {
+            tileListener.tileChanged(positionX, positionY);
+        }
+    }
+
+    public ImageName getImageName(int positionX, int positionY){
+        return IMAGENAMES[tiles[positionX * size + positionY]];
+    }
+
+    public ImageName getPreviousImageName(int positionX, int positionY){
+        return IMAGENAMES[previousTiles[positionX * size + positionY]];
+    }
+
+    /**
+     * Checks the image of a tile without decoding it.
+     *
+     * @param positionX X position of the tile.
+     * @param positionY Y position of the tile.
+     * @param imageName the image to be compared.
+     * @return true if the tile shows the image.
+     */
+    public boolean is(int positionX, int positionY, ImageName imageName){
+        return tiles[positionX * size + positionY] == imageName.ordinal();
+    }
+
+    /**
+     * Checks the properties of a tile with a single lookup in {@link TileFlags}.
+     *
+     * @param positionX X position of the tile.
+     * @param positionY Y position of the tile.
+     * @param flags the {@link TileFlags} to be checked.
+     * @return true if the tile has any of the flags.
+     */
+    public boolean hasFlag(int positionX, int positionY, int flags){
+        return (TileFlags.get(tiles[positionX * size + positionY]) & flags) != 0;
+    }
+
+    /**
+     * Gets the raw value of a tile, the ordinal of its {@link ImageName}.
+     *
+     * @param positionX X position of the tile.
+     * @param positionY Y position of the tile.
+     * @return the tile.
+     */
+    public byte getTile(int positionX, int positionY){
+        return tiles[positionX * size + positionY];
+    }
+
+    public boolean isOnGrid(int positionX, int positionY){
+        return positionX >= 0 && positionX < size && positionY >= 0 && positionY < size;
+    }
+
+    public int getSize(){
+        return size;
+    }
+
+    public void addTileListener(TileListener tileListener){
+        tileListeners.add(tileListener);
+    }
+
+    public void removeTileListener(TileListener tileListener){
+        tileListeners.remove(tileListener);
+    }
+
+    /**
+     * Implemented by views of a {@link TileGrid} to be told when a tile has changed.
+     *
+     */
+    public interface TileListener {
+
+        public void tileChanged(int positionX, int positionY);
+    }
+}
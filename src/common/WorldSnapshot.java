@@ -0,0 +1,156 @@
+package common;
+
+import java.util.Arrays;
+
+/**
+ * The state of the world at one tick of the server, as sent to clients by
+ * {@link SnapshotCodec}: every tile of the grid and each entity, the two players and
+ * their bombs. Each snapshot has a sequence number, which increases each time the world
+ * changes, so a snapshot can be sent as the changes since an older one, its baseline.
+ *
+ * Entities are stored as {@link #ENTITYSIZE} ints, none negative so they are never
+ * mistaken for a sentinel of {@link GameConstants}:
+ *
+ * <pre>
+ * Player: X, Y, lives left, moves received from the player this game
+ * Bomb:   state ({@link #BOMBNONE}, {@link #BOMBLIT} or {@link #BOMBEXPLODED}), X, Y, 0
+ * </pre>
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class WorldSnapshot {
+
+    public static final int ENTITYSIZE = 4;
+    public static final int ENTITIES = 4;
+
+    public static final int PLAYERONE = 0;
+    public static final int PLAYERTWO = 1;
+    public static final int BOMBONE = 2;
+    public static final int BOMBTWO = 3;
+
+    public static final int BOMBNONE = 0;
+    public static final int BOMBLIT = 1;
+    public static final int BOMBEXPLODED = 2;
+
+    private int sequence;
+    private int size;
+    private byte[] tiles;
+    private int[] entities;
+
+    /**
+     * Creates an empty snapshot, sequence 0, of a {@link GameConstants#MAPSIZE} grid.
+     *
+     */
+    public WorldSnapshot(){
+        this(GameConstants.MAPSIZE);
+    }
+
+    /**
+     * Creates an empty snapshot, sequence 0.
+     *
+     * @param size the width and height of the grid.
+     */
+    public WorldSnapshot(int size){
+        this.size = size;
+        tiles = new byte[size * size];
+        entities = new int[ENTITIES * ENTITYSIZE];
+    }
+
+    /**
+     * Makes this snapshot a copy of another of the same size.
+     *
+     * @param snapshot the snapshot to be copied.
+     */
+    public void copyFrom(WorldSnapshot snapshot){
+        sequence = snapshot.sequence;
+        System.arraycopy(snapshot.tiles, 0, tiles, 0, tiles.length);
+        System.arraycopy(snapshot.entities, 0, entities, 0, entities.length);
+    }
+
+    /**
+     * Makes this snapshot empty, sequence 0, every tile 0 and every entity all zeros.
+     *
+     */
+    public void clear(){
+        sequence = 0;
+        Arrays.fill(tiles, (byte) 0);
+        Arrays.fill(entities, 0);
+    }
+
+    /**
+     * Gets the entity holding a player.
+     *
+     * @param playerNum {@link GameConstants#PLAYER1} or {@link GameConstants#PLAYER2}.
+     * @return {@link #PLAYERONE} or {@link #PLAYERTWO}.
+     */
+    public static int getPlayerEntity(int playerNum){
+        return playerNum == GameConstants.PLAYER1 ? PLAYERONE : PLAYERTWO;
+    }
+
+    /**
+     * Gets the entity holding a players bomb.
+     *
+     * @param playerNum {@link GameConstants#PLAYER1} or {@link GameConstants#PLAYER2}.
+     * @return {@link #BOMBONE} or {@link #BOMBTWO}.
+     */
+    public static int getBombEntity(int playerNum){
+        return playerNum == GameConstants.PLAYER1 ? BOMBONE : BOMBTWO;
+    }
+
+    /**
+     * Gets one int of an entity.
+     *
+     * @param entity the entity, e.g. {@link #PLAYERONE}.
+     * @param field the index of the int, less than {@link #ENTITYSIZE}.
+     * @return the int.
+     */
+    public int getEntity(int entity, int field){
+        return entities[entity * ENTITYSIZE + field];
+    }
+
+    /**
+     * @return true if an entity is the same in both snapshots.
+     */
+    public boolean isEntityEqual(WorldSnapshot snapshot, int entity){
+        for (int i = entity * ENTITYSIZE; i < (entity + 1) * ENTITYSIZE; i++) {
+            if (entities[i] != snapshot.entities[i]) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the ints of every entity, in order, which may be changed.
+     */
+    public int[] getEntities(){
+        return entities;
+    }
+
+    /**
+     * Gets the raw value of a tile, the ordinal of its {@link ImageName}.
+     *
+     * @param index the index of the tile, {@code X * size + Y}, as {@link GridBitSet}.
+     * @return the tile.
+     */
+    public byte getTile(int index){
+        return tiles[index];
+    }
+
+    public void setTile(int index, byte tile){
+        tiles[index] = tile;
+    }
+
+    public int getSequence(){
+        return sequence;
+    }
+
+    public void setSequence(int sequence){
+        this.sequence = sequence;
+    }
+
+    public int getSize(){
+        return size;
+    }
+}
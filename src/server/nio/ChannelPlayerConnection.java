@@ -0,0 +1,327 @@
+package server.nio;
+
+import common.FlushPolicy;
+import common.FrameCodec;
+import common.FrameWriter;
+import server.session.PlayerConnection;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link PlayerConnection} backed by a non-blocking socket channel. The connection is
+ * owned by one {@link EventLoop}, which reads frames from the channel and passes them to
+ * the {@link FrameListener}, and writes any frames queued by {@link #sendFrame(int[])}.
+ *
+ * Frames may be sent from any thread. They are copied into {@link #outbound} and the
+ * owning event loop is asked to write them when the {@link FlushPolicy} says they are
+ * due, so senders never block on the network and queued frames go out in one write.
+ * A player who stops reading is disconnected once {@link #MAXPENDING} bytes are waiting,
+ * rather than holding frames without limit.
+ *
+ * Frames are in the legacy format until the player sends a hello, which is answered by
+ * the event loop before the next frame is read, see {@link FrameCodec}. The codec is only
+ * changed while holding the lock on the connection, so no frame is half in each format.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class ChannelPlayerConnection implements PlayerConnection {
+
+    /**
+     * Receives the frames read from a player by the event loop.
+     *
+     */
+    public interface FrameListener {
+
+        public void frameReceived(int[] frame);
+
+        public void connectionClosed();
+    }
+
+    private static final int FRAMESIZE = FrameWriter.FRAMESIZE;
+
+    /**
+     * The most bytes waiting to be written before the player is disconnected.
+     */
+    private static final int MAXPENDING = FRAMESIZE * 4096;
+
+    private SocketChannel channel;
+    private String hostAddress;
+    private EventLoop eventLoop;
+    private SelectionKey key;
+    private FrameListener listener;
+
+    private ByteBuffer inbound;
+    private ByteBuffer outbound;
+    private FrameCodec codec;
+    private FlushPolicy flushPolicy;
+    private int flushThreshold;
+    private AtomicBoolean writeScheduled;
+    private boolean closing;
+    private volatile boolean closed;
+
+    /**
+     * Initialises the buffers used for reading and writing frames.
+     *
+     * @param channel the accepted channel, already in non-blocking mode.
+     */
+    public ChannelPlayerConnection(SocketChannel channel){
+        this.channel = channel;
+        hostAddress = channel.socket().getInetAddress().getHostAddress();
+
+        inbound = ByteBuffer.allocate(FRAMESIZE * 64);
+        outbound = ByteBuffer.allocate(FRAMESIZE * 16);
+        codec = FrameCodec.LEGACY;
+        flushPolicy = FrameWriter.getDefaultFlushPolicy();
+        flushThreshold = FrameWriter.getDefaultFlushThreshold();
+        writeScheduled = new AtomicBoolean(false);
+        closing = false;
+        closed = false;
+    }
+
+    /**
+     * Sets the listener that is passed each frame read from the player. Must be set
+     * before the connection is registered with an event loop.
+     *
+     * @param listener the listener for this players frames.
+     */
+    public void setFrameListener(FrameListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a frame to be written by the event loop. If {@link #MAXPENDING} bytes would
+     * be waiting, the frames queued are dropped and the event loop closes the connection.
+     *
+     * @param data the four ints to be sent.
+     * @throws IOException if the connection has been closed or the player is not reading.
+     */
+    public void sendFrame(int[] data) throws IOException {
+        boolean flushDue;
+        boolean isOverflowing;
+
+        synchronized (this) {
+            if (closed || closing) throw new IOException("Connection closed");
+
+            isOverflowing = outbound.position() + codec.getMaxFrameSize() > MAXPENDING;
+
+            if (isOverflowing) {
+                outbound.clear();
+                closing = true;
+                flushDue = true;
+            } else {
+                if (outbound.remaining() < codec.getMaxFrameSize()) {
+                    ByteBuffer larger = ByteBuffer.allocate(
+                            Math.min(outbound.capacity() * 2, MAXPENDING));
+                    outbound.flip();
+                    larger.put(outbound);
+                    outbound = larger;
+                }
+
+                codec.encode(outbound, data);
+                flushDue = flushPolicy.isFlushDue(outbound.position(), flushThreshold);
+            }
+        }
+
+        if (flushDue) {
+            scheduleWrite();
+        }
+
+        if (isOverflowing) {
+            throw new IOException("Player is not reading");
+        }
+    }
+
+    /**
+     * Asks the event loop to write any queued frames.
+     *
+     */
+    public void flush(){
+        scheduleWrite();
+    }
+
+    /**
+     * Closes the connection once any queued frames have been written. This allows
+     * a final message such as {@link common.GameConstants#KICKED} to reach the player.
+     *
+     */
+    public void close(){
+        synchronized (this) {
+            closing = true;
+        }
+
+        scheduleWrite();
+    }
+
+    public String getHostAddress(){
+        return hostAddress;
+    }
+
+    public boolean isClosed(){
+        return closed;
+    }
+
+    SocketChannel getChannel(){
+        return channel;
+    }
+
+    /**
+     * Asks the owning event loop to write {@link #outbound}. Does nothing if a write has
+     * already been requested or the connection has not been registered yet, in which
+     * case {@link #registered(EventLoop, SelectionKey)} writes any queued frames.
+     *
+     */
+    private void scheduleWrite(){
+        EventLoop loop = eventLoop;
+
+        if (loop != null && writeScheduled.compareAndSet(false, true)) {
+            loop.scheduleWrite(this);
+        }
+    }
+
+    /**
+     * Invoked by the event loop once the channel has been registered with its selector.
+     *
+     */
+    void registered(EventLoop eventLoop, SelectionKey key){
+        this.key = key;
+        this.eventLoop = eventLoop;
+
+        writeScheduled.set(true);
+        writeReady();
+    }
+
+    /**
+     * Invoked by the event loop when the channel is readable. Reads as many bytes as are
+     * available and passes each complete frame to {@link #listener}. Closes the connection
+     * if the bytes are not a frame.
+     *
+     */
+    void readReady(){
+        int read;
+
+        try {
+            read = channel.read(inbound);
+        } catch (IOException e) {
+            closeNow();
+            return;
+        }
+
+        if (read < 0) {
+            closeNow();
+            return;
+        }
+
+        inbound.flip();
+
+        try {
+            int[] frame;
+
+            //Only the event loop changes the codec, so it can be read here without the lock.
+            while (!closed && (frame = codec.decode(inbound)) != null) {
+                if (codec == FrameCodec.LEGACY && FrameCodec.isHello(frame)) {
+                    answerHello(frame);
+                } else {
+                    listener.frameReceived(frame);
+                }
+            }
+        } catch (ProtocolException e) {
+            closeNow();
+            return;
+        }
+
+        inbound.compact();
+    }
+
+    /**
+     * Queues the reply to a hello, in the legacy format, and uses the version agreed for
+     * every later frame.
+     *
+     * @param hello the frame received from the player.
+     */
+    private void answerHello(int[] hello){
+        FrameCodec agreed = FrameCodec.negotiate(hello);
+
+        synchronized (this) {
+            try {
+                sendFrame(FrameCodec.createHelloReply(hello, agreed.getVersion()));
+            } catch (IOException e) {
+                return;
+            }
+
+            codec = agreed;
+        }
+
+        scheduleWrite();
+    }
+
+    /**
+     * Invoked by the event loop when frames have been queued or the channel is writable.
+     * Writes as much of {@link #outbound} as the channel accepts and registers interest in
+     * writing if anything is left. Closes the channel if {@link #close()} has been invoked
+     * and everything has been written.
+     *
+     */
+    void writeReady(){
+        writeScheduled.set(false);
+
+        boolean pending;
+        boolean closeNow;
+
+        synchronized (this) {
+            if (closed) return;
+
+            outbound.flip();
+
+            try {
+                channel.write(outbound);
+                pending = outbound.hasRemaining();
+                outbound.compact();
+            } catch (IOException e) {
+                outbound.clear();
+                pending = false;
+                closing = true;
+            }
+
+            closeNow = closing && !pending;
+        }
+
+        if (closeNow) {
+            closeNow();
+        } else if (key.isValid()) {
+            key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Closes the channel immediately and informs {@link #listener}.
+     *
+     */
+    void closeNow(){
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+
+        if (key != null) {
+            key.cancel();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            //Program logic deals with this.
+        }
+
+        if (listener != null) {
+            listener.connectionClosed();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package server.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single thread that multiplexes many player connections using a {@link Selector}.
+ * Each {@link ChannelPlayerConnection} is owned by one event loop, which performs all
+ * reads and writes for it. One loop also accepts new connections for {@link NioServer}.
+ *
+ * Other threads hand work to the loop through {@link #registrations} and {@link #writes},
+ * waking the selector so the work is picked up straight away.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class EventLoop implements Runnable {
+
+    private static final long SHUTDOWNGRACE = 1000;
+
+    private Selector selector;
+    private Thread thread;
+    private Queue<ChannelPlayerConnection> registrations;
+    private Queue<ChannelPlayerConnection> writes;
+    private NioServer server;
+    private volatile boolean running;
+    private volatile long shutdownDeadline;
+
+    /**
+     * Opens the selector and creates, but does not start, the loop thread.
+     *
+     * @param name the name given to the loop thread.
+     * @throws IOException if the selector cannot be opened.
+     */
+    public EventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        registrations = new ConcurrentLinkedQueue<ChannelPlayerConnection>();
+        writes = new ConcurrentLinkedQueue<ChannelPlayerConnection>();
+        running = false;
+        shutdownDeadline = 0;
+    }
+
+    /**
+     * Registers the servers listening channel with this loop so that it also accepts
+     * new players. Must be invoked before {@link #start()}.
+     *
+     */
+    void registerAcceptor(ServerSocketChannel serverChannel, NioServer server)
+            throws ClosedChannelException {
+        this.server = server;
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public void start(){
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Asks the loop to stop. The loop keeps running for up to {@link #SHUTDOWNGRACE}
+     * milliseconds so connections being closed can write their final frames.
+     *
+     */
+    public void shutdown(){
+        shutdownDeadline = System.currentTimeMillis() + SHUTDOWNGRACE;
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Hands a newly accepted connection to this loop.
+     *
+     */
+    void register(ChannelPlayerConnection connection){
+        registrations.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the loop to write the frames queued on a connection. Writes requested by
+     * the loop itself are picked up before it next selects, so it only needs waking
+     * for requests from other threads.
+     *
+     */
+    void scheduleWrite(ChannelPlayerConnection connection){
+        writes.add(connection);
+
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Selects ready channels until {@link #shutdown()} is invoked and all connections
+     * have closed (or the grace period has passed), then closes everything left open.
+     *
+     */
+    public void run(){
+        while (running || !isShutdownComplete()) {
+            processRegistrations();
+            processWrites();
+
+            try {
+                selector.select(running ? 0 : 100);
+            } catch (IOException e) {
+                break;
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                if (!key.isValid()) continue;
+
+                if (key.isAcceptable()) {
+                    server.accept();
+                    continue;
+                }
+
+                ChannelPlayerConnection connection = (ChannelPlayerConnection) key.attachment();
+
+                if (key.isReadable()) {
+                    connection.readReady();
+                }
+
+                if (key.isValid() && key.isWritable()) {
+                    connection.writeReady();
+                }
+            }
+        }
+
+        closeAll();
+    }
+
+    private void processRegistrations(){
+        ChannelPlayerConnection connection;
+
+        while ((connection = registrations.poll()) != null) {
+            try {
+                SelectionKey key = connection.getChannel().register(selector,
+                        SelectionKey.OP_READ, connection);
+                connection.registered(this, key);
+            } catch (ClosedChannelException e) {
+                connection.closeNow();
+            }
+        }
+    }
+
+    private void processWrites(){
+        ChannelPlayerConnection connection;
+
+        while ((connection = writes.poll()) != null) {
+            connection.writeReady();
+        }
+    }
+
+    /**
+     * Returns true once no player connections remain open or the grace period has passed.
+     *
+     */
+    private boolean isShutdownComplete(){
+        if (System.currentTimeMillis() >= shutdownDeadline) {
+            return true;
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() != null) {
+                return false;
+            }
+        }
+
+        return registrations.isEmpty() && writes.isEmpty();
+    }
+
+    private void closeAll(){
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() != null) {
+                ((ChannelPlayerConnection) key.attachment()).closeNow();
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            //Program logic deals with this.
+        }
+    }
+}
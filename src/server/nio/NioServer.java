@@ -0,0 +1,135 @@
+package server.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Non-blocking server engine. Accepts players on a {@link ServerSocketChannel} and
+ * spreads their connections across a small, fixed number of {@link EventLoop} threads,
+ * so the number of threads no longer grows with the number of players.
+ *
+ * The engine only moves frames; deciding which session a player joins is left to the
+ * {@link AcceptHandler}. Frames keep the four int format described by
+ * {@link common.GameConstants}, so existing clients connect unchanged.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class NioServer {
+
+    /**
+     * Invoked on an event loop thread for each accepted player, before the connection
+     * starts reading. Implementations should send the player their player number (or
+     * reject them) and set the connections {@link ChannelPlayerConnection.FrameListener}.
+     *
+     */
+    public interface AcceptHandler {
+
+        public void playerAccepted(ChannelPlayerConnection player);
+    }
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] eventLoops;
+    private AcceptHandler acceptHandler;
+    private int nextEventLoop;
+
+    /**
+     * Binds the listening channel and creates the event loops.
+     *
+     * @param port the port players connect to.
+     * @param numOfEventLoops the number of event loop threads.
+     * @throws IOException if the port cannot be bound.
+     */
+    public NioServer(int port, int numOfEventLoops) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(port));
+
+        eventLoops = new EventLoop[Math.max(1, numOfEventLoops)];
+
+        try {
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new EventLoop("Event Loop " + (i + 1));
+            }
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+
+        nextEventLoop = 0;
+    }
+
+    /**
+     * Starts the event loops. The first loop also accepts new players.
+     *
+     * @param acceptHandler invoked for each accepted player.
+     * @throws IOException if the listening channel has been closed.
+     */
+    public void start(AcceptHandler acceptHandler) throws IOException {
+        this.acceptHandler = acceptHandler;
+
+        eventLoops[0].registerAcceptor(serverChannel, this);
+
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+    }
+
+    /**
+     * Invoked by the accepting event loop when players are waiting to connect. Each player
+     * is passed to {@link #acceptHandler} and then handed to the next event loop in turn.
+     *
+     */
+    void accept(){
+        SocketChannel channel;
+
+        while (true) {
+            try {
+                channel = serverChannel.accept();
+
+                if (channel == null) return;
+
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                return;
+            }
+
+            ChannelPlayerConnection player = new ChannelPlayerConnection(channel);
+            acceptHandler.playerAccepted(player);
+
+            eventLoops[nextEventLoop].register(player);
+            nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+        }
+    }
+
+    /**
+     * Stops accepting new players. Connected players are unaffected.
+     *
+     */
+    public void closeAcceptor(){
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+            //Program logic deals with this.
+        }
+    }
+
+    /**
+     * Stops accepting new players and shuts down the event loops, allowing connections
+     * that are closing to write their final frames.
+     *
+     */
+    public void stop(){
+        closeAcceptor();
+
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package server.server;
 
+import server.nio.ChannelPlayerConnection;
+import server.nio.NioServer;
 import server.session.Session;
 import server.session.SessionController;
 import server.session.SessionPanel;
+import server.session.SessionSimulation;
+import server.session.TickScheduler;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
+import java.util.concurrent.Executor;
 import common.*;
 import server.window.ServerViewController;
 
@@ -23,29 +27,42 @@ import server.window.ServerViewController;
 public class Server implements GameConstants {
 
     private ServerViewController serverViewController;
+    private ServerConfig config;
     private ServerSocket serverSocket;
-    private ArrayList<SessionController> sessionControllers;
+    private NioServer nioServer;
+    private SessionPool sessionPool;
+    private Executor playerExecutor;
+    private TickScheduler tickScheduler;
     //private SessionController sessionController;
-    private final int maxNumOfSessions = 2;
 
     private boolean isRunning;
-    //private int playersPerSession = 2;
 
     /**
-     * Initialises ArrayList {@link SessionController}.
-     * Sets {@link #isRunning} to false, as server is not running when initialised.
+     * Creates a server using the settings in the system properties,
+     * see {@link ServerConfig#fromSystemProperties()}.
      */
     public Server(ServerViewController serverViewController){
-        sessionControllers = new ArrayList<SessionController>(maxNumOfSessions);
+        this(serverViewController, ServerConfig.fromSystemProperties());
+    }
+
+    /**
+     * Initialises {@link #sessionPool} with the maximum number of sessions in config and
+     * {@link #playerExecutor} which runs the threads reading from players sockets.
+     * Sets {@link #isRunning} to false, as server is not running when initialised.
+     */
+    public Server(ServerViewController serverViewController, ServerConfig config){
+        sessionPool = new SessionPool(config.getMaxSessions());
+        playerExecutor = config.getThreadMode().createExecutor("PlayerInput-");
 
         this.serverViewController = serverViewController;
+        this.config = config;
         isRunning = false;
     }
 
     /**
      * Creates the logic for a new game session.
-     * Checks whether {@link #maxNumOfSessions} has been reached. If not,
-     * a new sessionController is created and added to {@link #sessionControllers} and
+     * Checks whether the maximum number of sessions has been reached. If not,
+     * a new sessionController is created and added to {@link #sessionPool} and
      * also passed to {@link ServerViewController#addGameSession(server.session.SessionController)}.
      *
      * @return true if session is created otherwise false.
@@ -54,24 +71,60 @@ public class Server implements GameConstants {
     public boolean createSession() throws ServerShutDownException {
         if(!isRunning) throw new ServerShutDownException();
 
-        boolean sessionCreated = false;
+        return addSession() != null;
+    }
 
-        if(sessionControllers.size() < maxNumOfSessions) {
-            SessionController session = new SessionController(new SessionPanel(),
-                    new Session(this));
-            sessionControllers.add(session);
-            serverViewController.addGameSession(session);
-            sessionCreated = true;
-        }
+    /**
+     * Creates a session and adds it to {@link #sessionPool}. The sessions
+     * {@link SessionSimulation} is started on {@link #tickScheduler}.
+     *
+     * @return the new session, or null if the maximum number of sessions has been reached.
+     */
+    private SessionController addSession(){
+        if (sessionPool.isMaxSessions()) return null;
+
+        Session gameSession = new Session(this, sessionPool.nextSessionId());
+        SessionSimulation simulation = new SessionSimulation(gameSession, config.getTickRate());
 
-        return sessionCreated;
+        SessionController session = new SessionController(new SessionPanel(),
+                gameSession, playerExecutor, simulation);
+
+        if (!sessionPool.add(session)) return null;
+
+        simulation.start(tickScheduler);
+        serverViewController.addGameSession(session);
+
+        return session;
+    }
+
+    /**
+     * Invoked once a player has left a session. If the session no longer contains any
+     * players it is removed from {@link #sessionPool} and its tab from the GUI, so the
+     * pool shrinks with demand. Otherwise the session is marked as having a free seat.
+     *
+     * @param sessionId the number of the session.
+     */
+    public void releaseSeat(int sessionId){
+        if (!isRunning) return;
+
+        SessionController session = sessionPool.removeIfEmpty(sessionId);
+
+        if (session != null) {
+            session.getSimulation().stop();
+            serverViewController.removeGameSession(session);
+        } else {
+            sessionPool.seatReleased(sessionId);
+        }
     }
 
     /**
      * Stops the server from accepting new players. A new new socket is created and
-     * {@link GameConstants#SERVERFULL} is written to the sockets outputstream.
+     * {@link GameConstants#SERVERFULL} is written to the sockets outputstream. If a
+     * session has been removed or a player has left while waiting, the player is
+     * connected instead.
      *
-     * @return returns true if player stopped from connecting or false if IOException occurs.
+     * @return returns true if player stopped from connecting or false if the player
+     * was connected or IOException occurs.
      */
     public boolean stopConnectingPlayers() {
 
@@ -79,6 +132,11 @@ public class Server implements GameConstants {
         try {
             player = serverSocket.accept();
 
+            if (!isSessionsFull()) {
+                connectPlayer(player);
+                return false;
+            }
+
             new DataOutputStream(player.getOutputStream()).writeInt(SERVERFULL);
 
         } catch (IOException e) {
@@ -89,11 +147,28 @@ public class Server implements GameConstants {
 
     }
 
+    /**
+     * Stops a player accepted by the non-blocking engine from connecting.
+     * {@link GameConstants#SERVERFULL} is sent and the connection closed.
+     *
+     * @param player the rejected player.
+     */
+    public void rejectPlayer(ChannelPlayerConnection player) {
+        try {
+            player.sendFrame(new int[]{SERVERFULL, SERVERFULL, SERVERFULL, SERVERFULL});
+        } catch (IOException ignored) {
+            //Program logic deals with this.
+        }
+
+        player.close();
+    }
+
     /**
      * Connects player to a session and informs menuBar of player number.
-     * Creates and accepts new socket, iterates through {@link #sessionControllers}, and if
-     * a sessions is not full: the socket is added to that session, a new outputstream is created,
-     * and the players number is written to the menuBar.
+     * Creates and accepts new socket, finds a session that is not full using
+     * {@link #findOpenSession()}: the socket is added to that session, a new outputstream
+     * is created, and the players number is written to the menuBar. If every session is
+     * full the player is sent {@link GameConstants#SERVERFULL}.
      *
      * @throws IOException sets {@link #isRunning} to false and throws IOException
      */
@@ -108,48 +183,134 @@ public class Server implements GameConstants {
             throw new IOException();
         }
 
-        for (SessionController sessions : sessionControllers) {
-            if (!sessions.isGameSessionFull()){
-                int playerNum = sessions.getPlayerNum();
+        connectPlayer(player);
+    }
 
+    /**
+     * Adds an accepted socket to a session, see {@link #connectPlayer()}.
+     *
+     * @param player the accepted socket.
+     * @throws IOException if the player could not be informed of their number.
+     */
+    private void connectPlayer(Socket player) throws IOException {
+        synchronized (sessionPool) {
+            SessionController sessions = findOpenSession();
+
+            if (sessions == null){
+                new DataOutputStream(player.getOutputStream()).writeInt(SERVERFULL);
+                player.close();
+                return;
+            }
 
-                DataOutputStream outputStream = new DataOutputStream(player.getOutputStream());
+            int playerNum = sessions.getPlayerNum();
 
-                if(playerNum == 0){
 
-                    for (int i = 0; i < 4; i++){
-                        outputStream.writeInt(PLAYER1);
-                    }
-                } else {
-                    for (int i = 0; i < 4; i++){
-                        outputStream.writeInt(PLAYER2);
-                    }
-                }
+            DataOutputStream outputStream = new DataOutputStream(player.getOutputStream());
 
-                sessions.addPlayer(player, playerNum);
+            int[] playerNumFrame = getPlayerNumFrame(playerNum);
 
-                break;
+            for (int i = 0; i < 4; i++){
+                outputStream.writeInt(playerNumFrame[i]);
             }
+
+            sessions.addPlayer(player, playerNum);
         }
 
     }
 
     /**
-     * Initialises {@link #serverSocket}. Sets {@link #isRunning} to true.
+     * Connects a player accepted by the non-blocking engine to a session and informs
+     * menuBar of player number. If all sessions are full the player is rejected.
+     *
+     * @param player the accepted player.
+     */
+    public void connectPlayer(ChannelPlayerConnection player) {
+        synchronized (sessionPool) {
+            SessionController sessions = findOpenSession();
+
+            if (sessions == null){
+                rejectPlayer(player);
+                return;
+            }
+
+            int playerNum = sessions.getPlayerNum();
+
+            try {
+                player.sendFrame(getPlayerNumFrame(playerNum));
+            } catch (IOException e) {
+                player.close();
+                return;
+            }
+
+            sessions.addPlayer(player, playerNum);
+        }
+    }
+
+    /**
+     * Returns the first session in {@link #sessionPool} that is not full. If there is
+     * none, for example because an empty session was removed after the caller checked,
+     * a new session is created while the maximum has not been reached.
+     *
+     * @return a session with space for a player, or null if all sessions are full.
+     */
+    private SessionController findOpenSession(){
+        SessionController sessions = sessionPool.findOpenSession();
+
+        if (sessions == null && isRunning){
+            sessions = addSession();
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Creates the message that tells a player their number,
+     * {@link GameConstants#PLAYER1} or {@link GameConstants#PLAYER2}.
+     *
+     * @param playerNum the players number in the session, starting from 0.
+     * @return the frame to send to the player.
+     */
+    private int[] getPlayerNumFrame(int playerNum){
+        int playerConstant = playerNum == 0 ? PLAYER1 : PLAYER2;
+
+        return new int[]{playerConstant, playerConstant, playerConstant, playerConstant};
+    }
+
+    /**
+     * Initialises {@link #serverSocket}, or {@link #nioServer} if the non-blocking
+     * engine is configured, and {@link #tickScheduler} which runs the simulation of
+     * every session. Sets {@link #isRunning} to true.
      *
      * @throws IOException if socket not created successfully.
      */
     public void start() throws IOException {
-        serverSocket = new ServerSocket(3012);
+        if (config.isNonBlocking()) {
+            nioServer = new NioServer(config.getPort(), config.getEventLoops());
+        } else {
+            serverSocket = new ServerSocket(config.getPort());
+        }
+        tickScheduler = new TickScheduler(config.getTickRate());
         isRunning = true;
     }
 
+    /**
+     * Starts the event loops of the non-blocking engine. Players are accepted on
+     * the event loops and passed to acceptHandler.
+     *
+     * @param acceptHandler decides which session accepted players join.
+     * @throws IOException if the engine could not be started.
+     */
+    public void startEventLoops(NioServer.AcceptHandler acceptHandler) throws IOException {
+        nioServer.start(acceptHandler);
+    }
+
     /**
      * Closes {@link #serverSocket} and sets {@link #isRunning} to false. Invokes
      * {@link server.window.ServerViewController#removeGameSessions()} to remove
-     * the game session tabs from GUI and iterates through {@link #sessionControllers} and invokes
+     * the game session tabs from GUI and iterates through {@link #sessionPool} and invokes
      * {@link server.session.SessionController#disconnectPlayers()} to send disconnect
-     * messages to clients. Lastly, {@link #sessionControllers} ArrrayList is cleared.
+     * messages to clients. Lastly, {@link #sessionPool} is cleared and
+     * {@link #tickScheduler} shut down.
      */
     public void stopServer() {
         isRunning = false;
@@ -157,19 +318,40 @@ public class Server implements GameConstants {
 
         serverViewController.removeGameSessions();
 
-        for (SessionController sessions : sessionControllers) {
+        for (SessionController sessions : sessionPool.getSessions()) {
             sessions.disconnectPlayers();
         }
 
-        sessionControllers.clear();
+        sessionPool.clear();
 
         closeSocket();
 
+        if (nioServer != null) {
+            nioServer.stop();
+            nioServer = null;
+        }
+
+        if (tickScheduler != null) {
+            tickScheduler.shutdown();
+        }
+
 
 
     }
 
+    /**
+     * Stops new players connecting by closing {@link #serverSocket}
+     * or the listening channel of {@link #nioServer}.
+     *
+     */
     public void closeSocket(){
+        if (nioServer != null) {
+            nioServer.closeAcceptor();
+            return;
+        }
+
+        if (serverSocket == null) return;
+
         try {
             serverSocket.close();
         } catch (IOException ignored) {
@@ -178,49 +360,32 @@ public class Server implements GameConstants {
     }
 
     /**
-     * Checks if all sessions are full by iterating through {@link #sessionControllers}
-     * and invoking {@link server.session.SessionController#isGameSessionFull()}.
+     * Checks if the server is full, i.e. the maximum number of sessions has been
+     * reached and every session is full.
      *
      * @return Returns true if all sessions are full else false.
      */
     public boolean isSessionsFull(){
-        int i = 0;
-        for (SessionController sessions : sessionControllers) {
-            if(sessions.isGameSessionFull()){
-                i++;
-            }
-        }
-
-        return i == maxNumOfSessions;
+        return sessionPool.isMaxSessions() && !sessionPool.hasOpenSession();
 
     }
 
     /**
-     * Checks if maximum number of sessions has been reached by iterating through
-     * {@link #sessionControllers} and checking whether they equal null.
+     * Checks if maximum number of sessions has been reached.
      *
      * @return Returns true if maximum number of sessions has been reached else false.
      */
     public boolean isMaxSessions(){
-        int i = 0;
-        for (SessionController sessions : sessionControllers) {
-            if(sessions != null){
-                i++;
-            }
-        }
-
-        return i == maxNumOfSessions;
+        return sessionPool.isMaxSessions();
     }
 
     /**
-     * Checks whether the specified session is full by returning
-     * {@link server.session.SessionController#isGameSessionFull()}.
+     * Checks whether any session has space for another player.
      *
-     * @param i the session number whose capacity is being checked.
-     * @return Returns true if the specified session is full.
+     * @return Returns true if a player can join an existing session.
      */
-    public boolean sessionFull(int i){
-        return sessionControllers.size() == 0 || sessionControllers.get(i).isGameSessionFull();
+    public boolean hasOpenSession(){
+        return sessionPool.hasOpenSession();
     }
 
     public void setRunning(boolean running){
@@ -231,4 +396,12 @@ public class Server implements GameConstants {
         return isRunning;
     }
 
+    public boolean isNonBlocking(){
+        return config.isNonBlocking();
+    }
+
+    public TickScheduler getTickScheduler(){
+        return tickScheduler;
+    }
+
 }
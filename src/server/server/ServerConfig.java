@@ -0,0 +1,147 @@
+package server.server;
+
+import common.ThreadMode;
+
+/**
+ * Holds the start-up settings used by {@link Server}. Values are read from system
+ * properties so the server can be switched between engines and resized without
+ * rebuilding, for example:
+ *
+ * <pre>
+ * java -Dbomberman.server.io=nio -Dbomberman.server.eventLoops=4
+ *      -Dbomberman.server.port=3012 -Dbomberman.server.maxSessions=2000 server.ServerTester
+ * </pre>
+ *
+ * With the blocking engine each player is read by its own thread, created according to
+ * {@link ThreadMode#THREADS_PROPERTY} ("platform" or "virtual").
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class ServerConfig {
+
+    public static final String IO_PROPERTY = "bomberman.server.io";
+    public static final String EVENT_LOOPS_PROPERTY = "bomberman.server.eventLoops";
+    public static final String PORT_PROPERTY = "bomberman.server.port";
+    public static final String MAX_SESSIONS_PROPERTY = "bomberman.server.maxSessions";
+    public static final String TICK_RATE_PROPERTY = "bomberman.server.tickRate";
+
+    public static final int DEFAULTPORT = 3012;
+    public static final int DEFAULTMAXSESSIONS = 2;
+    public static final int DEFAULTTICKRATE = 30;
+
+    private boolean nonBlocking;
+    private int eventLoops;
+    private int port;
+    private int maxSessions;
+    private ThreadMode threadMode;
+    private int tickRate;
+
+    /**
+     * Creates a config using the blocking engine, one event loop per core (up to four)
+     * used if the non-blocking engine is selected, port {@link #DEFAULTPORT} and at most
+     * {@link #DEFAULTMAXSESSIONS} sessions, reading players on platform threads, and
+     * simulating each session at {@link #DEFAULTTICKRATE} ticks per second.
+     *
+     */
+    public ServerConfig(){
+        nonBlocking = false;
+        eventLoops = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        port = DEFAULTPORT;
+        maxSessions = DEFAULTMAXSESSIONS;
+        threadMode = ThreadMode.PLATFORM;
+        tickRate = DEFAULTTICKRATE;
+    }
+
+    /**
+     * Creates a config from the system properties {@link #IO_PROPERTY} ("blocking" or "nio"),
+     * {@link #EVENT_LOOPS_PROPERTY}, {@link #PORT_PROPERTY}, {@link #MAX_SESSIONS_PROPERTY},
+     * {@link #TICK_RATE_PROPERTY} and {@link ThreadMode#THREADS_PROPERTY}.
+     * Missing or invalid values keep their defaults.
+     *
+     * @return the config to start the server with.
+     */
+    public static ServerConfig fromSystemProperties(){
+        ServerConfig config = new ServerConfig();
+
+        config.setNonBlocking("nio".equalsIgnoreCase(System.getProperty(IO_PROPERTY)));
+        config.setEventLoops(readInt(EVENT_LOOPS_PROPERTY, config.getEventLoops()));
+        config.setPort(readInt(PORT_PROPERTY, config.getPort()));
+        config.setMaxSessions(readInt(MAX_SESSIONS_PROPERTY, config.getMaxSessions()));
+        config.setThreadMode(ThreadMode.fromSystemProperties());
+        config.setTickRate(readInt(TICK_RATE_PROPERTY, config.getTickRate()));
+
+        return config;
+    }
+
+    /**
+     * Reads a positive int system property.
+     *
+     * @param property the name of the property.
+     * @param defaultValue returned if the property is missing, invalid or less than one.
+     * @return the value of the property.
+     */
+    protected static int readInt(String property, int defaultValue){
+        String value = System.getProperty(property);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException nfe){
+            return defaultValue;
+        }
+    }
+
+    public boolean isNonBlocking(){
+        return nonBlocking;
+    }
+
+    public void setNonBlocking(boolean nonBlocking){
+        this.nonBlocking = nonBlocking;
+    }
+
+    public int getEventLoops(){
+        return eventLoops;
+    }
+
+    public void setEventLoops(int eventLoops){
+        this.eventLoops = Math.max(1, eventLoops);
+    }
+
+    public int getPort(){
+        return port;
+    }
+
+    public void setPort(int port){
+        this.port = port;
+    }
+
+    public int getMaxSessions(){
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions){
+        this.maxSessions = Math.max(1, maxSessions);
+    }
+
+    public ThreadMode getThreadMode(){
+        return threadMode;
+    }
+
+    public void setThreadMode(ThreadMode threadMode){
+        this.threadMode = threadMode;
+    }
+
+    public int getTickRate(){
+        return tickRate;
+    }
+
+    public void setTickRate(int tickRate){
+        this.tickRate = Math.max(1, Math.min(1000, tickRate));
+    }
+}
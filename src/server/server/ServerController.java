@@ -1,11 +1,15 @@
 package server.server;
 
 import common.ServerShutDownException;
+import server.nio.ChannelPlayerConnection;
+import server.nio.NioServer;
+import server.session.TickScheduler;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class that acts as the the controller for {@link Server} and {@link ServerPanel}.
@@ -104,7 +108,7 @@ public class ServerController {
          * <pre>
          * While(Server Running)
          * {
-         *     if ((Server is not max sessions) and (Session 1 is full))
+         *     if ((Server is not max sessions) and (No session has space))
          *     {
          *        Create new Session ({@link Server#createSession()})
          *        and update GUI.
@@ -133,6 +137,10 @@ public class ServerController {
          * and breaks from loop.
          * Catches IOException sets {@link Server#isRunning} to false
          * and breaks from loop.
+         *
+         * If the non-blocking engine is configured the loop is not used. The engines
+         * event loops are started instead and each accepted player is passed to
+         * {@link ChannelAcceptor}.
          */
         public void run() {
 
@@ -142,10 +150,19 @@ public class ServerController {
                 server.setRunning(false);
             }
 
+            if (server.isRunning() && server.isNonBlocking()) {
+                try {
+                    server.startEventLoops(new ChannelAcceptor());
+                } catch (IOException e) {
+                    server.setRunning(false);
+                }
+                return;
+            }
+
             while (server.isRunning()) {
 
                 try {
-                    if(!server.isMaxSessions() && server.sessionFull(0)){
+                    if(!server.isMaxSessions() && !server.hasOpenSession()){
                         if (server.createSession()) {
                             serverPanel.appendServerLog(new Date() + ": Session "
                                     + (numOfSessions+1) + " Created");
@@ -187,6 +204,76 @@ public class ServerController {
         }
     }
 
+    /**
+     * Inner class that accepts players for the non-blocking engine. Follows the same
+     * steps as the loop in {@link StartServerListener#run()}, but is invoked by an
+     * event loop each time a player connects.
+     *
+     * @author Robert Wells
+     * @version 1.0
+     *
+     */
+    private class ChannelAcceptor implements NioServer.AcceptHandler {
+
+        /**
+         * Creates a new session if required, then connects the player to a session
+         * or rejects them if all sessions are full.
+         *
+         * @param player the accepted player.
+         */
+        public void playerAccepted(ChannelPlayerConnection player) {
+            try {
+                if(!server.isMaxSessions() && !server.hasOpenSession()){
+                    if (server.createSession()) {
+                        serverPanel.appendServerLog(new Date() + ": Session "
+                                + (numOfSessions+1) + " Created");
+                        numOfSessions++;
+
+                        if(server.isMaxSessions()){
+                            serverPanel.appendServerLog(new Date() +
+                                    ": Max Number of Sessions Reached");
+                        }
+                    }
+                }
+
+                if(!server.isSessionsFull()) {
+
+                    server.connectPlayer(player);
+
+                    if(server.isSessionsFull()){
+                        serverPanel.appendServerLog(new Date() +
+                                ": Max Number of Players Reached");
+                    }
+                } else {
+                    server.rejectPlayer(player);
+                    serverPanel.appendServerLog(new Date() + ": User Rejected");
+                }
+
+            } catch (ServerShutDownException she){
+                server.rejectPlayer(player);
+            }
+        }
+    }
+
+    /**
+     * Logs the number of session ticks run, how many finished after their deadline or were
+     * skipped as the previous tick was still running, how many failed, and the average
+     * and longest tick.
+     *
+     */
+    private void appendTickStatistics(){
+        TickScheduler tickScheduler = server.getTickScheduler();
+
+        serverPanel.appendServerLog(new Date() + ": Ticks " + tickScheduler.getTicks()
+                + ", overruns " + tickScheduler.getOverruns()
+                + ", skipped " + tickScheduler.getSkippedTicks()
+                + ", failed " + tickScheduler.getFailedTicks()
+                + ", average " + TimeUnit.NANOSECONDS.toMicros(tickScheduler.getAverageTickNanos())
+                + "us, max " + TimeUnit.NANOSECONDS.toMicros(tickScheduler.getMaxTickNanos()) + "us");
+
+        tickScheduler.resetMetrics();
+    }
+
     /**
      * Inner class that is the actionlistener for {@link ServerPanel#stop}.
      *
@@ -197,14 +284,15 @@ public class ServerController {
     private class StopServerListener implements ActionListener {
 
         /**
-         * Stops the server. GUI updated with "Server Stopped",
-         * {@link #numOfSessions} set to zero, {@link Server#stopServer()}
+         * Stops the server. GUI updated with "Server Stopped" and the tick
+         * statistics of {@link server.session.TickScheduler}, {@link #numOfSessions} set to zero, {@link Server#stopServer()}
          * invoked, {@link ServerPanel#start} button enabled, and
          * {@link ServerPanel#stop} button disabled.
          *
          */
         public void actionPerformed(ActionEvent actionEvent) {
             serverPanel.appendServerLog(new Date() + ": Server Stopped");
+            appendTickStatistics();
             numOfSessions = 0;
             server.stopServer();
             serverPanel.setStartEnabled(true);
@@ -0,0 +1,170 @@
+package server.server;
+
+import server.session.SessionController;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the sessions currently hosted by {@link Server}, keyed by session number.
+ * Sessions are added as players arrive, up to the configured maximum, and removed
+ * once their last player has left, so the pool grows and shrinks with demand.
+ *
+ * Sessions with a free seat are indexed in {@link #openSessions}, so finding a session
+ * for a new player and checking whether the server is full take constant time however
+ * many sessions are hosted. A session is queued when it is added and whenever a player
+ * leaves it, and is dropped from the head of the queue once it is found to be full or
+ * removed, so each session is examined a constant number of times per seat.
+ *
+ * Lookups by number and iteration may happen from any thread without locking. Adding a
+ * player to a session, changes to {@link #openSessions} and removing an empty session
+ * all synchronise on the pool, so a player can never join a session that is being removed.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SessionPool {
+
+    private ConcurrentHashMap<Integer, SessionController> sessions;
+    private ArrayDeque<SessionController> openSessions;
+    private HashSet<Integer> queuedSessionIds;
+    private AtomicInteger nextSessionId;
+    private int maxSessions;
+
+    /**
+     * Initialises an empty pool.
+     *
+     * @param maxSessions the maximum number of sessions hosted at once.
+     */
+    public SessionPool(int maxSessions){
+        this.maxSessions = maxSessions;
+        sessions = new ConcurrentHashMap<Integer, SessionController>();
+        openSessions = new ArrayDeque<SessionController>();
+        queuedSessionIds = new HashSet<Integer>();
+        nextSessionId = new AtomicInteger(1);
+    }
+
+    /**
+     * Reserves a number for a new session. Numbers are not reused until the pool is cleared.
+     *
+     * @return the session number.
+     */
+    public int nextSessionId(){
+        return nextSessionId.getAndIncrement();
+    }
+
+    /**
+     * Adds a session if {@link #maxSessions} has not been reached and queues it
+     * in {@link #openSessions}.
+     *
+     * @param sessionController the session to be added.
+     * @return true if the session was added.
+     */
+    public synchronized boolean add(SessionController sessionController){
+        if (isMaxSessions()) return false;
+
+        int sessionId = sessionController.getGameSession().getSessionId();
+
+        sessions.put(sessionId, sessionController);
+        queue(sessionId, sessionController);
+        return true;
+    }
+
+    /**
+     * Queues a session in {@link #openSessions} after a player has left it,
+     * unless it is already queued.
+     *
+     * @param sessionId the number of the session.
+     */
+    public synchronized void seatReleased(int sessionId){
+        SessionController sessionController = sessions.get(sessionId);
+
+        if (sessionController != null) {
+            queue(sessionId, sessionController);
+        }
+    }
+
+    private void queue(int sessionId, SessionController sessionController){
+        if (queuedSessionIds.add(sessionId)) {
+            openSessions.addLast(sessionController);
+        }
+    }
+
+    /**
+     * Removes a session if it no longer contains any players. The session is left in
+     * {@link #openSessions} and dropped when it reaches the head of the queue.
+     *
+     * @param sessionId the number of the session.
+     * @return the removed session, or null if it was not removed.
+     */
+    public synchronized SessionController removeIfEmpty(int sessionId){
+        SessionController sessionController = sessions.get(sessionId);
+
+        if (sessionController == null
+                || sessionController.getGameSession().getNumOfPlayers() > 0){
+            return null;
+        }
+
+        sessions.remove(sessionId);
+        return sessionController;
+    }
+
+    /**
+     * Returns the session at the head of {@link #openSessions}, first dropping any
+     * sessions that have filled up or been removed since they were queued.
+     *
+     * @return a session with space for a player, or null if all sessions are full.
+     */
+    public synchronized SessionController findOpenSession(){
+        SessionController sessionController;
+
+        while ((sessionController = openSessions.peekFirst()) != null) {
+            int sessionId = sessionController.getGameSession().getSessionId();
+
+            if (!sessionController.isGameSessionFull()
+                    && sessions.get(sessionId) == sessionController){
+                return sessionController;
+            }
+
+            openSessions.pollFirst();
+            queuedSessionIds.remove(sessionId);
+        }
+
+        return null;
+    }
+
+    public boolean hasOpenSession(){
+        return findOpenSession() != null;
+    }
+
+    public boolean isMaxSessions(){
+        return sessions.size() >= maxSessions;
+    }
+
+    /**
+     * Removes every session and restarts the session numbers.
+     *
+     */
+    public synchronized void clear(){
+        sessions.clear();
+        openSessions.clear();
+        queuedSessionIds.clear();
+        nextSessionId.set(1);
+    }
+
+    public Collection<SessionController> getSessions(){
+        return sessions.values();
+    }
+
+    public int size(){
+        return sessions.size();
+    }
+
+    public int getMaxSessions(){
+        return maxSessions;
+    }
+}
@@ -0,0 +1,28 @@
+package server.session;
+
+import java.io.IOException;
+
+/**
+ * Provides an interface for a players connection to the server. A {@link Session} sends
+ * data to players through this interface, so it does not need to know whether the player
+ * is served by a thread per socket ({@link SocketPlayerConnection}) or by the
+ * non-blocking engine ({@link server.nio.ChannelPlayerConnection}).
+ *
+ * Data is sent as frames of four ints, as described by {@link common.GameConstants}.
+ * Depending on the {@link common.FlushPolicy} frames may be buffered until
+ * {@link #flush()} is invoked.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public interface PlayerConnection {
+
+    public void sendFrame(int[] data) throws IOException;
+
+    public void flush() throws IOException;
+
+    public void close();
+
+    public String getHostAddress();
+}
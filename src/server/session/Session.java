@@ -1,8 +1,7 @@
 package server.session;
 
 import java.io.*;
-import java.net.Socket;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import common.PlayerQuitException;
 import common.GameConstants;
@@ -19,22 +18,21 @@ import server.server.Server;
 public class Session implements GameConstants, SessionModel {
 
     private boolean isRunning;
-    private TreeMap<Integer, Socket> players;
-    private TreeMap<Integer, DataInputStream> fromPlayers;
-    private TreeMap<Integer, DataOutputStream> toPlayers;
+    private ConcurrentSkipListMap<Integer, PlayerConnection> players;
     private Server server;
+    private int sessionId;
     //private Cell[][] cells = new Cell[MAPSIZE][MAPSIZE];
 
     /**
-     *  Initialises {@link #players}, {@link #fromPlayers}, {@link #toPlayers}
-     *  and sets {@link #isRunning} to true
+     *  Initialises {@link #players} and sets {@link #isRunning} to true
+     *
+     *  @param server the server hosting this session.
+     *  @param sessionId the number of this session on the server.
      */
-    public Session(Server server){
+    public Session(Server server, int sessionId){
         this.server = server;
-        players = new TreeMap<Integer, Socket>();
-
-        fromPlayers = new TreeMap<Integer, DataInputStream>();
-        toPlayers = new TreeMap<Integer, DataOutputStream>();
+        this.sessionId = sessionId;
+        players = new ConcurrentSkipListMap<Integer, PlayerConnection>();
 
         isRunning = true;
     }
@@ -64,43 +62,24 @@ public class Session implements GameConstants, SessionModel {
     }
 
     /**
-     * Creates Input and Output stream based on socket,
-     * adds socket to {@link #players}, and adds streams to
-     * {@link #fromPlayers} and {@link #toPlayers}.
+     * Adds the players connection to {@link #players}.
      *
-     * if(players contains a socket in index 0)
-     *      add player socket to index 1 (i.e. it becomes player two)
+     * if(players contains a connection in index 0)
+     *      add player connection to index 1 (i.e. it becomes player two)
      * else
-     *      add player socket to index 0 (i.e. it becomes player one)
+     *      add player connection to index 0 (i.e. it becomes player one)
      *
      * This allows for a player to join a game if player one has previously left.
      *
-     * @param player Socket used to send and recieve data from player.
-     * @throws IOException if message sending to players was unsuccessful.
+     * @param player connection used to send data to the player.
      *
      */
-    public void addPlayer(Socket player) throws IOException{
-
-
-        InputStream playerInputStream = player.getInputStream();
-        OutputStream playerOutputStream = player.getOutputStream();
+    public void addPlayer(PlayerConnection player){
 
         if(players.containsKey(new Integer(0))){
             players.put(1, player);
-            toPlayers.put(1, new DataOutputStream(playerOutputStream));
-
-            fromPlayers.put(1, new DataInputStream(playerInputStream));
-
-
         } else  {
-
             players.put(0, player);
-
-            toPlayers.put(0, new DataOutputStream(playerOutputStream));
-
-            fromPlayers.put(0, new DataInputStream(playerInputStream));
-
-
         }
 
         //System.out.println("Added player: " + (playerNum + 1));
@@ -128,31 +107,23 @@ public class Session implements GameConstants, SessionModel {
     }
 
     /**
-     *  Returns true if {@link #players} size is greater than or equal to two
-     *  i.e. only two players allowed per session.
+     *  Returns true if {@link #players} size is greater than or equal to
+     *  {@link GameConstants#PLAYERSPERSESSION}.
      *
      *  @return true if maximum players for a session
      */
     public boolean isMaxPlayers(){
-        return players.size() >= 2;
+        return players.size() >= PLAYERSPERSESSION;
     }
 
     /**
-     * Creates new int array and reads from {@link #fromPlayers} based on playerNum.
+     * Checks a frame read from a player.
      *
-     * @param playerNum the player whose input is to be received.
+     * @param playerData the four ints read from the player.
      * @return returns player input as an array of ints
      * @throws PlayerQuitException to signify a player has quit
      */
-    public int[] getPlayerInput(int playerNum) throws PlayerQuitException,
-        IndexOutOfBoundsException, IOException, NullPointerException, EOFException {
-
-        int playerData[] = new int[4];
-
-        playerData[0] = fromPlayers.get(playerNum).readInt();
-        playerData[1] = fromPlayers.get(playerNum).readInt();
-        playerData[2] = fromPlayers.get(playerNum).readInt();
-        playerData[3] = fromPlayers.get(playerNum).readInt();
+    public int[] getPlayerInput(int[] playerData) throws PlayerQuitException {
 
         for (int aPlayerData : playerData) {
             if (aPlayerData == PLAYERLEFTSESSION) {
@@ -166,34 +137,47 @@ public class Session implements GameConstants, SessionModel {
     }
 
     /**
-     * Sends data to player using {@link #toPlayers} based on playerNum.
+     * Sends data to player using {@link #players} based on playerNum.
      *
      * @param data the data to be sent to the player
      * @param playerNum the player whose is to receive the output.
      *
      */
     public void sendPlayerData(int[] data, int playerNum){
+        PlayerConnection player = players.get(playerNum);
+
+        if (player == null) return;
 
         try {
-            toPlayers.get(playerNum).writeInt(data[0]);
-            toPlayers.get(playerNum).writeInt(data[1]);
-            toPlayers.get(playerNum).writeInt(data[2]);
-            toPlayers.get(playerNum).writeInt(data[3]);
+            player.sendFrame(data);
         } catch (IOException e) {
             //Program logic deals with this.
         }
     }
 
     /**
-     * Removes player from session by removing item from {@link #players},
-     * {@link #fromPlayers}, and {@link #toPlayers} based on playerNum.
+     * Flushes the frames buffered for each player in {@link #players}.
+     * Invoked once all the frames for an update have been sent.
+     *
+     */
+    public void flushPlayers(){
+        for (PlayerConnection player : players.values()) {
+            try {
+                player.flush();
+            } catch (IOException e) {
+                //Program logic deals with this.
+            }
+        }
+    }
+
+    /**
+     * Removes player from session by removing item from {@link #players}
+     * based on playerNum.
      *
      * @param playerNum the player whose is to be removed from the session.
      */
     public void removePlayer(int playerNum) {
         players.remove(playerNum);
-        fromPlayers.remove(playerNum);
-        toPlayers.remove(playerNum);
         //System.out.println("Removed player: " + players.size());
     }
 
@@ -209,10 +193,23 @@ public class Session implements GameConstants, SessionModel {
 
     }
 
+    /**
+     * Informs the server that a player has left using {@link Server#releaseSeat(int)},
+     * which removes this session if it is now empty.
+     *
+     */
+    public void releaseSeat(){
+        server.releaseSeat(sessionId);
+    }
+
     public int getNumOfPlayers(){
         return players.size();
     }
 
+    public int getSessionId(){
+        return sessionId;
+    }
+
     public boolean isRunning(){
         return isRunning;
     }
@@ -2,13 +2,18 @@ package server.session;
 
 import common.GameConstants;
 import common.PlayerQuitException;
+import server.nio.ChannelPlayerConnection;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.EOFException;
 import java.io.IOException;
+import java.net.ProtocolException;
 import java.net.Socket;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * Class that acts as the the controller for {@link Session} and {@link SessionPanel}.
@@ -22,21 +27,32 @@ public class SessionController implements GameConstants {
 
     private SessionPanel sessionOverview;
     private Session gameSession;
-    private boolean sessionRunning;
+    private volatile boolean sessionRunning;
+    private List<ChannelInput> channelInputs;
+    private Executor playerExecutor;
+    private SessionSimulation simulation;
 
     /**
      *  Appends "Sessions started" to session log
      *  by invoking {@link SessionPanel#appendSessionLog(String)}.
-     *  Invokes {@link #addListeners()}.
+     *  Invokes {@link #addListeners()}. A failed tick of the simulation is reported
+     *  to the session log.
      *
      *  @param sessionOverview {@link SessionPanel}
      *  @param gameSession {@link Session}
+     *  @param playerExecutor runs a {@link PlayerInput} for each player served by a thread.
+     *  @param simulation runs the game, players input is passed to it.
      */
     public SessionController(SessionPanel sessionOverview,
-                             Session gameSession){
+                             Session gameSession, Executor playerExecutor,
+                             SessionSimulation simulation){
 
         this.sessionOverview = sessionOverview;
         this.gameSession = gameSession;
+        this.playerExecutor = playerExecutor;
+        this.simulation = simulation;
+        channelInputs = new CopyOnWriteArrayList<ChannelInput>();
+        simulation.setSessionLog(sessionOverview);
 
         sessionOverview.appendSessionLog(new Date() + ": Session Started");
         sessionRunning = true;
@@ -55,10 +71,16 @@ public class SessionController implements GameConstants {
     }
 
     /**
-     *  Sets {@link #sessionRunning} to false.
+     *  Sets {@link #sessionRunning} to false. Players served by a thread are sent
+     *  {@link GameConstants#KICKED} by that thread, players served by the non-blocking
+     *  engine have no thread of their own so are kicked straight away.
      */
     public void disconnectPlayers(){
         sessionRunning = false;
+
+        for (ChannelInput channelInput : channelInputs) {
+            channelInput.kickPlayer();
+        }
         /*try {
             gameSession.stopSession();
         } catch (IOException e) {
@@ -67,21 +89,61 @@ public class SessionController implements GameConstants {
     }
 
     /**
-     *  Adds socket to game session by invoking {@link Session#addPlayer(java.net.Socket)},
-     *  updates GUI with player data including IP address and number of players in session.
-     *
-     *  Checks if gamesession contains maximum number of players, if yes the GUI is updated with
-     *  "Maximum Players" and "Game started".
+     *  Adds socket to game session by invoking {@link #joinSession(PlayerConnection, int)}.
      *
-     *  Creates and starts a new new thread passing {@link PlayerInput} and returns player number.
+     *  Runs a new {@link PlayerInput} using {@link #playerExecutor}, which starts a
+     *  platform or virtual thread depending on the {@link common.ThreadMode}. The
+     *  connection also writes to the player on a thread of its own from the executor.
      *
      *  @param player the socket of the player being added to the session.
+     *  @param playerNum the number of the player in the session.
      */
     public void addPlayer(Socket player, int playerNum) throws IOException{
+        SocketPlayerConnection connection = new SocketPlayerConnection(player, playerExecutor);
+
+        joinSession(connection, playerNum);
+
+        playerExecutor.execute(new PlayerInput(playerNum, connection, this));
+
+
+
+
+    }
+
+    /**
+     *  Adds a player accepted by the non-blocking engine to the game session by invoking
+     *  {@link #joinSession(PlayerConnection, int)}. Rather than starting a thread, a
+     *  {@link ChannelInput} is set as the connections listener and is invoked by the
+     *  engine for each frame the player sends.
+     *
+     *  @param player the connection of the player being added to the session.
+     *  @param playerNum the number of the player in the session.
+     */
+    public void addPlayer(ChannelPlayerConnection player, int playerNum){
+        joinSession(player, playerNum);
+
+        ChannelInput channelInput = new ChannelInput(playerNum, player);
+        channelInputs.add(channelInput);
+        player.setFrameListener(channelInput);
+    }
+
+    /**
+     *  Adds connection to game session by invoking {@link Session#addPlayer(PlayerConnection)}
+     *  and to {@link #simulation}, updates GUI with player data including IP address and
+     *  number of players in session.
+     *
+     *  Checks if gamesession contains maximum number of players, if yes the GUI is updated with
+     *  "Maximum Players" and "Game started".
+     *
+     *  @param player the connection of the player being added to the session.
+     *  @param playerNum the number of the player in the session.
+     */
+    private void joinSession(PlayerConnection player, int playerNum){
         gameSession.addPlayer(player);
+        simulation.playerJoined(playerNum);
         sessionOverview.appendSessionLog(new Date() + ": Player " + (playerNum+1) + " Joined");
         sessionOverview.appendSessionLog("Player IP address: "
-                + player.getInetAddress().getHostAddress());
+                + player.getHostAddress());
         sessionOverview.setNumOfPlayersLabel("" + gameSession.getNumOfPlayers());
 
 
@@ -89,12 +151,6 @@ public class SessionController implements GameConstants {
             sessionOverview.appendSessionLog(new Date() + ": Maximum Players");
             sessionOverview.appendSessionLog(new Date() + ": Game Started");
         }
-
-        new Thread(new PlayerInput(playerNum, this)).start();
-
-
-
-
     }
 
     public int getPlayerNum(){
@@ -102,24 +158,39 @@ public class SessionController implements GameConstants {
     }
 
     /**
-     *  The method is passed data received from the one player, which is then sent
-     *  to the other player.
+     *  Handles a frame received from a player by queueing it in {@link #simulation},
+     *  which applies it and replies at its next tick.
      *
-     *  if (playerNum == 0)
-     *      send data to player 2
-     *  else
-     *      send data to player 1
+     *  @param playerUpdate the frame received.
+     *  @param playerNum the number of the player the frame was received from.
+     */
+    private void handlePlayerInput(int[] playerUpdate, int playerNum){
+        simulation.queueInput(playerNum, playerUpdate);
+    }
+
+    /**
+     *  Removes a player who has quit from the session and {@link #simulation}, which
+     *  informs the other player, and updates the GUI. The server is told the seat is
+     *  free, and removes the session if it is now empty.
      *
-     *  @param data player data to be sent.
-     *  @param playerNum the number of the player whose data has been previously received.
+     *  @param playerNum the number of the player who quit.
      */
-    public void handlePlayerData(int[] data, int playerNum){
-        if(playerNum == 0){
-            gameSession.sendPlayerData(data, 1);
-        } else if (playerNum == 1) {
-            gameSession.sendPlayerData(data, 0);
+    private void disconnectPlayer(int playerNum){
+        boolean maxPlayers = gameSession.isMaxPlayers();
+
+        simulation.playerLeft(playerNum);
+
+        sessionOverview.appendSessionLog(new Date() +
+                ": Player " + (playerNum + 1) + " quit");
+
+        if (maxPlayers){
+            sessionOverview.appendSessionLog(new Date() + ": Game Stopped");
         }
 
+        gameSession.removePlayer(playerNum);
+        sessionOverview.setNumOfPlayersLabel("" + gameSession.getNumOfPlayers());
+
+        gameSession.releaseSeat();
     }
 
     public boolean isGameSessionFull(){
@@ -130,6 +201,10 @@ public class SessionController implements GameConstants {
         return gameSession;
     }
 
+    public SessionSimulation getSimulation(){
+        return simulation;
+    }
+
     public SessionPanel getSessionOverview(){
         return sessionOverview;
     }
@@ -175,16 +250,20 @@ public class SessionController implements GameConstants {
     private class PlayerInput implements Runnable
     {
         private int playerNum;
+        private SocketPlayerConnection connection;
         private SessionController sessionController;
 
         /**
-         * Sets player number and session controller.
+         * Sets player number, connection and session controller.
          *
          * @param playerNum the number of the player in the session whose data will be handled by this thread.
+         * @param connection the connection the players data is read from.
          * @param sessionController {@link SessionController}
          */
-        public PlayerInput(int playerNum, SessionController sessionController){
+        public PlayerInput(int playerNum, SocketPlayerConnection connection,
+                           SessionController sessionController){
             this.playerNum = playerNum;
+            this.connection = connection;
             this.sessionController = sessionController;
         }
 
@@ -197,19 +276,11 @@ public class SessionController implements GameConstants {
                 try{
 
 
-                    playerUpdate = gameSession.getPlayerInput(playerNum);
-
-
+                    playerUpdate = gameSession.getPlayerInput(connection.readFrame());
 
 
 
-                    if (gameSession.isMaxPlayers())
-                            sessionController.handlePlayerData(playerUpdate, playerNum);
-                    else{
-                        int[] temp = new int[]{OTHERPLAYERNOTREADY, OTHERPLAYERNOTREADY,
-                                 OTHERPLAYERNOTREADY, OTHERPLAYERNOTREADY};
-                                 gameSession.sendPlayerData(temp, playerNum);
-                    }
+                    sessionController.handlePlayerInput(playerUpdate, playerNum);
 
                     if (!sessionRunning){
 
@@ -219,14 +290,21 @@ public class SessionController implements GameConstants {
 
 
                 } catch (PlayerQuitException pqe){
-                    disconnectPlayer();
+                    disconnectPlayer(playerNum);
                     break;
                 } catch (IndexOutOfBoundsException ignored){
                     //program logic deals with this
                 } catch (EOFException eof){
                     break;
+                } catch (ProtocolException pe){
+                    //The stream can no longer be followed, so the player is treated as having left.
+                    disconnectPlayer(playerNum);
+                    connection.close();
+                    break;
                 }catch (IOException ioe) {
-                    //program logic deals with this
+                    if (connection.isClosed()) {
+                        break;
+                    }
                 }
 
 
@@ -238,50 +316,93 @@ public class SessionController implements GameConstants {
             if (!sessionRunning){
                         int[] temp = new int[]{KICKED, KICKED, KICKED, KICKED};
                         gameSession.sendPlayerData(temp, playerNum);
+                        gameSession.flushPlayers();
                         gameSession.stopSession(playerNum);
 
 
             } else if (gameSession.containsPlayer(playerNum)) {
-                disconnectPlayer();
+                disconnectPlayer(playerNum);
             }
 
+            connection.close();
+
 
         }
+    }
 
-        private void disconnectPlayer(){
-            boolean maxPlayers = false;
-            if(gameSession.isMaxPlayers()){
-                handlePlayerData(new int[]{GameConstants.PLAYERLEFTSESSION,
-                        GameConstants.PLAYERLEFTSESSION, GameConstants.PLAYERLEFTSESSION,
-                        GameConstants.PLAYERLEFTSESSION}, playerNum);
-                maxPlayers = true;
-            }
+    /**
+     * Inner class that handles game session logic for a player served by the
+     * non-blocking engine. Performs the same steps as {@link PlayerInput}, but is
+     * invoked by an event loop for each frame instead of running a thread.
+     *
+     * @author Robert Wells
+     * @version 1.0
+     *
+     */
+    private class ChannelInput implements ChannelPlayerConnection.FrameListener
+    {
+        private int playerNum;
+        private ChannelPlayerConnection connection;
+        private boolean hasLeft;
 
-            sessionOverview.appendSessionLog(new Date() +
-                    ": Player " + (playerNum + 1) + " quit");
+        /**
+         * Sets player number and connection.
+         *
+         * @param playerNum the number of the player in the session whose data will be handled.
+         * @param connection the connection the players data is read from.
+         */
+        public ChannelInput(int playerNum, ChannelPlayerConnection connection){
+            this.playerNum = playerNum;
+            this.connection = connection;
+            hasLeft = false;
+        }
 
-            if (maxPlayers){
-                sessionOverview.appendSessionLog(new Date() + ": Game Stopped");
+        public synchronized void frameReceived(int[] frame) {
+            if (hasLeft) return;
+
+            try {
+                handlePlayerInput(gameSession.getPlayerInput(frame), playerNum);
+            } catch (PlayerQuitException pqe){
+                leave();
+                disconnectPlayer(playerNum);
+                connection.close();
+                return;
             }
 
-            gameSession.removePlayer(playerNum);
-            sessionOverview.setNumOfPlayersLabel("" + gameSession.getNumOfPlayers());
+            if (!sessionRunning){
+                kickPlayer();
+            }
+        }
 
+        public synchronized void connectionClosed() {
+            if (hasLeft) return;
 
-        }
+            leave();
 
-        private void disconnectPlayerNoOutput(){
-            if(gameSession.isMaxPlayers()){
-                handlePlayerData(new int[]{GameConstants.PLAYERLEFTSESSION,
-                        GameConstants.PLAYERLEFTSESSION, GameConstants.PLAYERLEFTSESSION,
-                        GameConstants.PLAYERLEFTSESSION}, playerNum);
+            if (gameSession.containsPlayer(playerNum)) {
+                disconnectPlayer(playerNum);
             }
+        }
 
+        /**
+         * Sends {@link GameConstants#KICKED} to the player, removes them from
+         * the session and closes the connection once the message has been written.
+         *
+         */
+        public synchronized void kickPlayer(){
+            if (hasLeft) return;
 
-            gameSession.removePlayer(playerNum);
-            sessionOverview.setNumOfPlayersLabel("" + gameSession.getNumOfPlayers());
+            leave();
 
+            int[] temp = new int[]{KICKED, KICKED, KICKED, KICKED};
+            gameSession.sendPlayerData(temp, playerNum);
+            gameSession.stopSession(playerNum);
+            connection.close();
+        }
 
+        private void leave(){
+            hasLeft = true;
+            channelInputs.remove(this);
         }
     }
 
@@ -2,10 +2,6 @@ package server.session;
 
 import common.PlayerQuitException;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.net.Socket;
-
 /**
  * Provides an interface for the model component of the Session. Classes that conform to
  * this interface can act as the model i.e. hold and process data relating to updating clients
@@ -21,13 +17,16 @@ public interface SessionModel {
 
     public void closeServerSocket();
 
-    public void addPlayer(Socket player) throws IOException;
+    public void addPlayer(PlayerConnection player);
 
-    public int[] getPlayerInput(int playerNum) throws PlayerQuitException,
-            IndexOutOfBoundsException, IOException, NullPointerException, EOFException;
+    public int[] getPlayerInput(int[] playerData) throws PlayerQuitException;
 
     public void sendPlayerData(int[] data, int playerNum);
 
+    public void flushPlayers();
+
+    public void releaseSeat();
+
     public void removePlayer(int playerNum);
 
 
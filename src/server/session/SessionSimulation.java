@@ -0,0 +1,796 @@
+package server.session;
+
+import common.GameConstants;
+import common.GridBitSet;
+import common.ImageName;
+import common.MapLayout;
+import common.TileFlags;
+import common.TileGrid;
+import common.WorldSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs the game of a {@link Session} on the server at a fixed tick rate. The simulation
+ * owns the grid, the bombs and the players lives, so both players see the same game
+ * rather than each client deciding for itself who has been hit.
+ *
+ * Frames received from players are queued by {@link #queueInput(int, int[])} and applied
+ * at the start of the next tick. Each tick then advances the bombs, checks for hits and
+ * a winner, and answers each frame received from a player with one frame:
+ *
+ * <pre>
+ * 1) a queued event, i.e. {@link GameConstants#PLAYERHIT}, {@link GameConstants#PLAYERWON},
+ *    {@link GameConstants#OTHERPLAYERREADY} or {@link GameConstants#PLAYERLEFTSESSION}.
+ * 2) otherwise, during a game, the other players state: X, Y, bomb X, bomb Y
+ *    ({@link GameConstants#NOBOMB} if their bomb is not placed).
+ * 3) otherwise, if the player is waiting for a game to start, nothing yet.
+ * 4) otherwise {@link GameConstants#OTHERPLAYERNOTREADY}.
+ * </pre>
+ *
+ * Answering one frame with one frame keeps clients, which send a frame and then wait
+ * for one, in step with the tick without frames building up in the socket buffers.
+ *
+ * Clients that send {@link GameConstants#INPUTEVENTS} in the second int of their
+ * {@link GameConstants#OTHERPLAYERREADY} frame send their input as events instead, only
+ * when it changes: {PLAYERMOVED, X, Y, PLAYERMOVED} and {BOMBPLACED, X, Y, BOMBPLACED}.
+ * Events are not answered. Instead, at the end of each tick these players are sent every
+ * queued event and, during a game, the other players state if it has changed since it was
+ * last sent to them. An idle game therefore costs no traffic in either direction.
+ *
+ * Clients that also send {@link GameConstants#SNAPSHOTS} in the third int are sent the
+ * world as {@link WorldSnapshot}s instead of the other players state: at the end of each
+ * tick in which anything has changed, the changes since the last snapshot they
+ * acknowledged with {SNAPSHOTACK, sequence, SNAPSHOTACK, SNAPSHOTACK}, see
+ * {@link SnapshotHistory}. Acknowledgements are events, so they are not answered. The
+ * entity of each player counts the moves received from them this game, accepted or not,
+ * so a client can tell once the server has applied its last move and correct its player.
+ *
+ * A player who has sent {@link GameConstants#OTHERPLAYERREADY} is not answered until the
+ * game starts or the other player leaves, when the {@link GameConstants#OTHERPLAYERREADY}
+ * or {@link GameConstants#PLAYERLEFTSESSION} queued for them is sent once. A client waiting
+ * for an opponent therefore sends one frame and blocks reading the reply, and neither it
+ * nor the server does any work until the reply is due.
+ *
+ * Event frames carry the player concerned in the second int, so they read
+ * {PLAYERHIT, player, lives left, PLAYERHIT} and {PLAYERWON, winner, PLAYERWON, PLAYERWON},
+ * where the player is {@link GameConstants#PLAYER1} or {@link GameConstants#PLAYER2} and the
+ * winner may also be {@link GameConstants#DRAW}. PLAYERHIT and PLAYERWON frames sent by
+ * clients are ignored.
+ *
+ * All game state is only touched by the thread running the tick.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SessionSimulation implements Runnable, GameConstants {
+
+    /**
+     * The number of cells a player may have moved between two frames.
+     */
+    private static final int MAXSTEPS = 3;
+
+    private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    /**
+     * Sent to players outside of a game who are not waiting for one. Shared, as frames
+     * are written out when they are sent.
+     */
+    private static final int[] NOTREADY = {OTHERPLAYERNOTREADY, OTHERPLAYERNOTREADY,
+            OTHERPLAYERNOTREADY, OTHERPLAYERNOTREADY};
+
+    private Session gameSession;
+    private int tickRate;
+    private int fuseTicks;
+    private int explosionTicks;
+    private ConcurrentLinkedQueue<Input> inputs;
+    private TickScheduler scheduler;
+
+    private TileGrid grid;
+    private PlayerState[] players;
+    private boolean isGameRunning;
+    private SnapshotHistory snapshotHistory;
+    private int[] entities;
+    private GridBitSet visitedCells;
+    private int[] searchQueue;
+    private int[] searchSteps;
+
+    private SessionView sessionLog;
+    private boolean isFailing;
+
+    /**
+     * Initialises the simulation. Bomb timings are converted from
+     * {@link GameConstants#BOMBFUSEMILLIS} and {@link GameConstants#EXPLOSIONMILLIS} to ticks.
+     *
+     * @param gameSession the session whose players are sent the game state.
+     * @param tickRate the number of ticks per second.
+     */
+    public SessionSimulation(Session gameSession, int tickRate){
+        this.gameSession = gameSession;
+        this.tickRate = tickRate;
+
+        fuseTicks = toTicks(BOMBFUSEMILLIS);
+        explosionTicks = toTicks(EXPLOSIONMILLIS);
+
+        inputs = new ConcurrentLinkedQueue<Input>();
+        players = new PlayerState[PLAYERSPERSESSION];
+        grid = MapLayout.createGrid();
+        isGameRunning = false;
+        snapshotHistory = new SnapshotHistory(grid);
+        entities = new int[WorldSnapshot.ENTITIES * WorldSnapshot.ENTITYSIZE];
+        visitedCells = new GridBitSet(grid.getSize());
+        searchQueue = new int[grid.getSize() * grid.getSize()];
+        searchSteps = new int[searchQueue.length];
+        isFailing = false;
+    }
+
+    private int toTicks(int millis){
+        return Math.max(1, (millis * tickRate + 999) / 1000);
+    }
+
+    /**
+     * Sets the log that a failed tick is reported to.
+     *
+     * @param sessionLog the log of the session.
+     */
+    public void setSessionLog(SessionView sessionLog){
+        this.sessionLog = sessionLog;
+    }
+
+    /**
+     * Registers the simulation with the scheduler shared by all sessions.
+     *
+     * @param scheduler runs the ticks of every session.
+     */
+    public void start(TickScheduler scheduler){
+        this.scheduler = scheduler;
+        scheduler.register(this);
+    }
+
+    /**
+     * Stops the tick. Any frames not yet sent are dropped.
+     *
+     */
+    public void stop(){
+        if (scheduler != null) {
+            scheduler.unregister(this);
+        }
+    }
+
+    public void playerJoined(int playerNum){
+        inputs.add(new Input(playerNum, null, true));
+    }
+
+    public void playerLeft(int playerNum){
+        inputs.add(new Input(playerNum, null, false));
+    }
+
+    /**
+     * Queues a frame received from a player to be applied at the next tick.
+     *
+     * @param playerNum the number of the player in the session, starting from 0.
+     * @param frame the four ints received.
+     */
+    public void queueInput(int playerNum, int[] frame){
+        inputs.add(new Input(playerNum, frame, false));
+    }
+
+    /**
+     * Runs one tick. Exceptions are caught as they would otherwise cancel the tick, and
+     * are counted by the scheduler and reported to the session log, once until a tick
+     * succeeds again so a failure repeated every tick does not flood the log.
+     *
+     */
+    public void run(){
+        try {
+            tick();
+            isFailing = false;
+        } catch (RuntimeException e) {
+            if (scheduler != null) {
+                scheduler.recordFailure();
+            }
+
+            if (!isFailing && sessionLog != null) {
+                sessionLog.appendSessionLog(new Date() + ": Tick failed: " + e);
+            }
+
+            isFailing = true;
+        }
+
+        if (!gameSession.isRunning() && gameSession.getNumOfPlayers() == 0) {
+            stop();
+        }
+    }
+
+    /**
+     * Applies queued input, advances the game by one tick, records any change to the
+     * world and sends each player the frames they are owed in a single flush.
+     *
+     */
+    private void tick(){
+        processInputs();
+
+        if (isGameRunning) {
+            updateBombs();
+            checkForWinner();
+        }
+
+        updateEntities();
+        snapshotHistory.commit(entities);
+
+        sendUpdates();
+
+        gameSession.flushPlayers();
+    }
+
+    private void processInputs(){
+        Input input;
+
+        while ((input = inputs.poll()) != null) {
+            if (input.playerNum < 0 || input.playerNum >= players.length) continue;
+
+            if (input.frame != null) {
+                PlayerState player = players[input.playerNum];
+
+                if (player != null) {
+                    if (!isInputEvent(input.frame)) {
+                        player.credits++;
+                    }
+
+                    handleFrame(player, input.frame);
+                }
+            } else if (input.joined) {
+                players[input.playerNum] = new PlayerState(input.playerNum);
+            } else {
+                removePlayer(input.playerNum);
+            }
+        }
+    }
+
+    private static boolean isInputEvent(int[] frame){
+        return frame[0] == PLAYERMOVED || frame[0] == BOMBPLACED || frame[0] == SNAPSHOTACK;
+    }
+
+    /**
+     * Applies a frame received from a player. A {@link GameConstants#OTHERPLAYERREADY}
+     * frame outside of a game marks the player as ready, and whether they send input
+     * events and receive snapshots, and a game is started once both players are ready.
+     * During a game, a frame holding a position moves the player and places their bomb,
+     * as do input events. Any other frame is ignored.
+     *
+     */
+    private void handleFrame(PlayerState player, int[] frame){
+        if (frame[0] == OTHERPLAYERREADY) {
+            if (!isGameRunning) {
+                player.ready = true;
+                player.sendsInputEvents = frame[1] == INPUTEVENTS;
+                player.receivesSnapshots = player.sendsInputEvents && frame[2] == SNAPSHOTS;
+
+                if (isSessionFull() && players[0].ready && players[1].ready) {
+                    startGame();
+                }
+            }
+        } else if (frame[0] >= 0 && isGameRunning) {
+            int previousX = player.positionX;
+            int previousY = player.positionY;
+
+            movePlayer(player, frame[0], frame[1]);
+
+            if (frame[2] != NOBOMB) {
+                placeBomb(player, frame[2], frame[3], previousX, previousY);
+            }
+        } else if (frame[0] == PLAYERMOVED && isGameRunning) {
+            player.movesReceived++;
+            movePlayer(player, frame[1], frame[2]);
+        } else if (frame[0] == BOMBPLACED && isGameRunning) {
+            placeBomb(player, frame[1], frame[2], player.positionX, player.positionY);
+        } else if (frame[0] == SNAPSHOTACK) {
+            player.baselines.acknowledge(frame[1]);
+        }
+    }
+
+    /**
+     * Removes a player who has left. A game in progress is ended and the other player
+     * is sent {@link GameConstants#PLAYERLEFTSESSION} in place of any queued frames.
+     *
+     */
+    private void removePlayer(int playerNum){
+        boolean wasFull = isSessionFull();
+
+        players[playerNum] = null;
+
+        endGame();
+
+        PlayerState otherPlayer = players[1 - playerNum];
+
+        if (wasFull && otherPlayer != null) {
+            otherPlayer.pendingFrames.clear();
+            otherPlayer.pendingFrames.add(new int[]{PLAYERLEFTSESSION, PLAYERLEFTSESSION,
+                    PLAYERLEFTSESSION, PLAYERLEFTSESSION});
+        }
+    }
+
+    /**
+     * Resets the grid and the players and sends {@link GameConstants#OTHERPLAYERREADY}
+     * to both players, which starts the game on the clients.
+     *
+     */
+    private void startGame(){
+        MapLayout.resetGrid(grid);
+
+        for (PlayerState player : players) {
+            int[] startPosition = MapLayout.getStartPosition(player.playerConstant);
+
+            player.positionX = startPosition[0];
+            player.positionY = startPosition[1];
+            player.lives = PLAYERLIVES;
+            player.movesReceived = 0;
+            player.bomb = null;
+            player.ready = false;
+            player.isStateSent = false;
+            player.baselines.clear();
+            player.pendingFrames.add(new int[]{OTHERPLAYERREADY, OTHERPLAYERREADY,
+                    OTHERPLAYERREADY, OTHERPLAYERREADY});
+        }
+
+        isGameRunning = true;
+    }
+
+    private void endGame(){
+        isGameRunning = false;
+
+        for (PlayerState player : players) {
+            if (player != null) {
+                player.bomb = null;
+                player.ready = false;
+            }
+        }
+    }
+
+    /**
+     * Moves a player to the position they sent, if it is a legal move
+     * i.e. it can be reached from their current position, see {@link #isReachable(PlayerState, int, int, int, int)}.
+     *
+     */
+    private void movePlayer(PlayerState player, int positionX, int positionY){
+        if (!grid.isOnGrid(positionX, positionY)) return;
+
+        if (isReachable(player, player.positionX, player.positionY, positionX, positionY)) {
+            player.positionX = positionX;
+            player.positionY = positionY;
+        }
+    }
+
+    /**
+     * Places a players bomb, if they have no active bomb and the cell is one they
+     * could have stood in since their last frame.
+     *
+     */
+    private void placeBomb(PlayerState player, int positionX, int positionY,
+                           int previousX, int previousY){
+        if (player.bomb != null || !grid.isOnGrid(positionX, positionY)) return;
+
+        if (!grid.is(positionX, positionY, ImageName.EMPTY) || isBombAt(positionX, positionY)) return;
+
+        if (isReachable(player, previousX, previousY, positionX, positionY)) {
+            player.bomb = new SimBomb(positionX, positionY, fuseTicks);
+        }
+    }
+
+    /**
+     * Checks whether a cell can be reached from another cell within {@link #MAXSTEPS}
+     * moves, only passing through cells the player could walk into. The search reuses
+     * {@link #visitedCells} and a queue of cell indexes, so a move allocates nothing.
+     *
+     * @return true if the move is legal.
+     */
+    private boolean isReachable(PlayerState player, int fromX, int fromY, int toX, int toY){
+        if (fromX == toX && fromY == toY) return true;
+
+        int size = grid.getSize();
+        int head = 0;
+        int tail = 0;
+
+        visitedCells.clear();
+        visitedCells.set(fromX, fromY);
+        searchQueue[tail] = fromX * size + fromY;
+        searchSteps[tail++] = 0;
+
+        while (head < tail) {
+            int cellX = searchQueue[head] / size;
+            int cellY = searchQueue[head] % size;
+            int steps = searchSteps[head++];
+
+            if (steps == MAXSTEPS) continue;
+
+            for (int[] direction : DIRECTIONS) {
+                int x = cellX + direction[0];
+                int y = cellY + direction[1];
+
+                if (!grid.isOnGrid(x, y) || visitedCells.get(x, y) || !canMove(player, x, y)) continue;
+
+                if (x == toX && y == toY) return true;
+
+                visitedCells.set(x, y);
+                searchQueue[tail] = x * size + y;
+                searchSteps[tail++] = steps + 1;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether a player can move into a cell, i.e. it is empty (or exploding) and
+     * does not contain a bomb or the other player.
+     *
+     */
+    private boolean canMove(PlayerState player, int positionX, int positionY){
+        if (!grid.hasFlag(positionX, positionY, TileFlags.WALKABLE) || isBombAt(positionX, positionY)) {
+            return false;
+        }
+
+        for (PlayerState otherPlayer : players) {
+            if (otherPlayer != null && otherPlayer != player
+                    && otherPlayer.positionX == positionX && otherPlayer.positionY == positionY) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether a cell contains a bomb that has not yet exploded.
+     *
+     */
+    private boolean isBombAt(int positionX, int positionY){
+        for (PlayerState player : players) {
+            if (player != null && player.bomb != null && !player.bomb.exploded
+                    && player.bomb.positionX == positionX && player.bomb.positionY == positionY) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Counts down each bomb. Once its fuse has run out a bomb explodes; once its
+     * explosion has run out it is removed so the player can place another. Players
+     * standing in an explosion are hit.
+     *
+     */
+    private void updateBombs(){
+        for (PlayerState player : players) {
+            if (player == null || player.bomb == null) continue;
+
+            SimBomb bomb = player.bomb;
+            bomb.ticksLeft--;
+
+            if (!bomb.exploded) {
+                if (bomb.ticksLeft <= 0) {
+                    explode(bomb);
+                }
+            } else if (bomb.ticksLeft <= 0) {
+                player.bomb = null;
+                continue;
+            }
+
+            if (bomb.exploded) {
+                checkForHits(bomb);
+            }
+        }
+    }
+
+    /**
+     * Explodes a bomb. The explosion reaches {@link GameConstants#EXPLOSIONRANGE} cells in
+     * each direction and is stopped by permanent terrain. Destroyable terrain in the
+     * explosion is removed.
+     *
+     */
+    private void explode(SimBomb bomb){
+        bomb.exploded = true;
+        bomb.ticksLeft = explosionTicks;
+        bomb.explodedCells.set(bomb.positionX, bomb.positionY);
+        grid.setImageName(bomb.positionX, bomb.positionY, ImageName.EMPTY);
+
+        for (int[] direction : DIRECTIONS) {
+            for (int i = 1; i <= EXPLOSIONRANGE; i++) {
+                int x = bomb.positionX + direction[0] * i;
+                int y = bomb.positionY + direction[1] * i;
+
+                if (!grid.isOnGrid(x, y) || grid.hasFlag(x, y, TileFlags.BLOCKSBLAST)) break;
+
+                bomb.explodedCells.set(x, y);
+                grid.setImageName(x, y, ImageName.EMPTY);
+            }
+        }
+    }
+
+    /**
+     * Removes a life from each player standing in the explosion, once per bomb, and
+     * informs both players.
+     *
+     */
+    private void checkForHits(SimBomb bomb){
+        for (PlayerState player : players) {
+            if (player == null || bomb.hitPlayers[player.playerNum] || player.lives == 0) continue;
+
+            if (bomb.explodedCells.get(player.positionX, player.positionY)) {
+                bomb.hitPlayers[player.playerNum] = true;
+                player.lives--;
+
+                queueForAll(new int[]{PLAYERHIT, player.playerConstant, player.lives, PLAYERHIT});
+            }
+        }
+    }
+
+    /**
+     * Ends the game once a player has no lives left. If both players lost their last
+     * life in the same tick the game is a {@link GameConstants#DRAW}.
+     *
+     */
+    private void checkForWinner(){
+        if (!isSessionFull()) return;
+
+        boolean playerOneLost = players[0].lives == 0;
+        boolean playerTwoLost = players[1].lives == 0;
+
+        if (!playerOneLost && !playerTwoLost) return;
+
+        int winner;
+
+        if (playerOneLost && playerTwoLost) {
+            winner = DRAW;
+        } else if (playerOneLost) {
+            winner = players[1].playerConstant;
+        } else {
+            winner = players[0].playerConstant;
+        }
+
+        queueForAll(new int[]{PLAYERWON, winner, PLAYERWON, PLAYERWON});
+
+        endGame();
+    }
+
+    private void queueForAll(int[] frame){
+        for (PlayerState player : players) {
+            if (player != null) {
+                player.pendingFrames.add(frame);
+            }
+        }
+    }
+
+    /**
+     * Sends each player one frame for each frame received from them, see the class description.
+     * A player waiting for a game to start keeps their frame owed until an event is queued.
+     * Players who send input events are then sent the rest of their queued events and any
+     * change in the other players state, or in the world if they receive snapshots.
+     *
+     */
+    private void sendUpdates(){
+        for (PlayerState player : players) {
+            if (player == null) continue;
+
+            while (player.credits > 0) {
+                int[] frame = player.pendingFrames.poll();
+
+                if (frame == null) {
+                    if (isGameRunning) {
+                        frame = getState(players[1 - player.playerNum], player.replyState);
+                    } else if (player.ready) {
+                        break;
+                    } else {
+                        frame = NOTREADY;
+                    }
+                }
+
+                gameSession.sendPlayerData(frame, player.playerNum);
+                player.credits--;
+            }
+
+            if (player.sendsInputEvents) {
+                int[] frame;
+
+                while ((frame = player.pendingFrames.poll()) != null) {
+                    gameSession.sendPlayerData(frame, player.playerNum);
+                }
+
+                if (!isGameRunning) {
+                    continue;
+                } else if (player.receivesSnapshots) {
+                    sendSnapshot(player);
+                } else {
+                    sendStateIfChanged(player, players[1 - player.playerNum]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a player the other players state, unless it is the same as the last state
+     * sent to them. The state is written into {@link PlayerState#sentState} rather than
+     * a new frame, as frames are written out when they are sent.
+     *
+     */
+    private void sendStateIfChanged(PlayerState player, PlayerState otherPlayer){
+        int bombX = NOBOMB;
+        int bombY = NOBOMB;
+
+        if (otherPlayer.bomb != null && !otherPlayer.bomb.exploded) {
+            bombX = otherPlayer.bomb.positionX;
+            bombY = otherPlayer.bomb.positionY;
+        }
+
+        int[] sentState = player.sentState;
+
+        if (player.isStateSent && sentState[0] == otherPlayer.positionX
+                && sentState[1] == otherPlayer.positionY
+                && sentState[2] == bombX && sentState[3] == bombY) {
+            return;
+        }
+
+        sentState[0] = otherPlayer.positionX;
+        sentState[1] = otherPlayer.positionY;
+        sentState[2] = bombX;
+        sentState[3] = bombY;
+        player.isStateSent = true;
+
+        gameSession.sendPlayerData(sentState, player.playerNum);
+    }
+
+    /**
+     * Sends a player the changes to the world since the last snapshot they acknowledged,
+     * unless they have already been sent the current one.
+     *
+     */
+    private void sendSnapshot(PlayerState player){
+        int frames = snapshotHistory.encode(player.baselines);
+
+        for (int i = 0; i < frames; i++) {
+            gameSession.sendPlayerData(snapshotHistory.getFrame(i), player.playerNum);
+        }
+    }
+
+    /**
+     * Writes the players and their bombs into {@link #entities}, as described by
+     * {@link WorldSnapshot}. A player who has left is all zeros.
+     *
+     */
+    private void updateEntities(){
+        Arrays.fill(entities, 0);
+
+        for (PlayerState player : players) {
+            if (player == null) continue;
+
+            int start = WorldSnapshot.getPlayerEntity(player.playerConstant) * WorldSnapshot.ENTITYSIZE;
+            entities[start] = player.positionX;
+            entities[start + 1] = player.positionY;
+            entities[start + 2] = player.lives;
+            entities[start + 3] = player.movesReceived;
+
+            SimBomb bomb = player.bomb;
+
+            if (bomb != null) {
+                start = WorldSnapshot.getBombEntity(player.playerConstant) * WorldSnapshot.ENTITYSIZE;
+                entities[start] = bomb.exploded ? WorldSnapshot.BOMBEXPLODED : WorldSnapshot.BOMBLIT;
+                entities[start + 1] = bomb.positionX;
+                entities[start + 2] = bomb.positionY;
+            }
+        }
+    }
+
+    /**
+     * Writes the frame describing a player: X, Y, bomb X, bomb Y. The frame is written
+     * into a buffer of the player it is sent to rather than a new frame, as frames are
+     * written out when they are sent.
+     *
+     * @param player the player described.
+     * @param state the buffer the frame is written into.
+     * @return the buffer.
+     */
+    private int[] getState(PlayerState player, int[] state){
+        state[0] = player.positionX;
+        state[1] = player.positionY;
+
+        if (player.bomb != null && !player.bomb.exploded) {
+            state[2] = player.bomb.positionX;
+            state[3] = player.bomb.positionY;
+        } else {
+            state[2] = NOBOMB;
+            state[3] = NOBOMB;
+        }
+
+        return state;
+    }
+
+    private boolean isSessionFull(){
+        return players[0] != null && players[1] != null;
+    }
+
+    /**
+     * Inner class holding a frame, or a player joining or leaving, queued for the next tick.
+     *
+     */
+    private static class Input {
+        private int playerNum;
+        private int[] frame;
+        private boolean joined;
+
+        public Input(int playerNum, int[] frame, boolean joined){
+            this.playerNum = playerNum;
+            this.frame = frame;
+            this.joined = joined;
+        }
+    }
+
+    /**
+     * Inner class holding the state of a player on the server.
+     *
+     */
+    private static class PlayerState {
+        private int playerNum;
+        private int playerConstant;
+        private int positionX, positionY;
+        private int lives;
+        private int movesReceived;
+        private boolean ready;
+        private boolean sendsInputEvents;
+        private boolean receivesSnapshots;
+        private SnapshotHistory.Baselines baselines;
+        private int credits;
+        private int[] sentState;
+        private int[] replyState;
+        private boolean isStateSent;
+        private SimBomb bomb;
+        private ArrayDeque<int[]> pendingFrames;
+
+        public PlayerState(int playerNum){
+            this.playerNum = playerNum;
+            playerConstant = playerNum == 0 ? PLAYER1 : PLAYER2;
+
+            int[] startPosition = MapLayout.getStartPosition(playerConstant);
+            positionX = startPosition[0];
+            positionY = startPosition[1];
+
+            lives = PLAYERLIVES;
+            movesReceived = 0;
+            ready = false;
+            sendsInputEvents = false;
+            receivesSnapshots = false;
+            baselines = new SnapshotHistory.Baselines();
+            credits = 0;
+            sentState = new int[4];
+            replyState = new int[4];
+            isStateSent = false;
+            pendingFrames = new ArrayDeque<int[]>();
+        }
+    }
+
+    /**
+     * Inner class holding the state of a bomb on the server. Counts down the fuse,
+     * then the explosion.
+     *
+     */
+    private static class SimBomb {
+        private int positionX, positionY;
+        private int ticksLeft;
+        private boolean exploded;
+        private GridBitSet explodedCells;
+        private boolean[] hitPlayers;
+
+        public SimBomb(int positionX, int positionY, int fuseTicks){
+            this.positionX = positionX;
+            this.positionY = positionY;
+            ticksLeft = fuseTicks;
+            exploded = false;
+            explodedCells = new GridBitSet();
+            hitPlayers = new boolean[PLAYERSPERSESSION];
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package server.session;
+
+import common.GridBitSet;
+import common.SnapshotCodec;
+import common.TileGrid;
+import common.WorldSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Records how the world of a {@link SessionSimulation} changes from tick to tick, so each
+ * player can be sent a {@link WorldSnapshot} holding only what has changed since the last
+ * snapshot they acknowledged, see {@link SnapshotCodec}.
+ *
+ * The history listens to the grid and, at the end of each tick, {@link #commit(int[])} gives
+ * the world a new sequence number if a tile or an entity has changed. The tiles changed
+ * at each of the last {@link #HISTORYSIZE} sequences are kept, so the tiles changed since a
+ * baseline are found by combining a few small sets rather than comparing the whole grid.
+ *
+ * Each player has a {@link Baselines}, a small ring of the snapshots sent to them that
+ * they may acknowledge. A player whose baseline is too old, or who has acknowledged none,
+ * is sent the whole world.
+ *
+ * Only used by the thread running the tick.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SnapshotHistory implements TileGrid.TileListener {
+
+    public static final int HISTORYSIZE = 16;
+
+    private TileGrid grid;
+    private int sequence;
+    private GridBitSet tickTiles;
+    private GridBitSet[] changedTiles;
+    private int[] entities;
+    private GridBitSet deltaTiles;
+    private SnapshotCodec snapshotCodec;
+
+    /**
+     * Creates a history and starts listening to the grid.
+     *
+     * @param grid the grid of the simulation.
+     */
+    public SnapshotHistory(TileGrid grid){
+        this.grid = grid;
+
+        sequence = 0;
+        tickTiles = new GridBitSet(grid.getSize());
+        changedTiles = new GridBitSet[HISTORYSIZE];
+
+        for (int i = 0; i < HISTORYSIZE; i++) {
+            changedTiles[i] = new GridBitSet(grid.getSize());
+        }
+
+        entities = new int[WorldSnapshot.ENTITIES * WorldSnapshot.ENTITYSIZE];
+        deltaTiles = new GridBitSet(grid.getSize());
+        snapshotCodec = new SnapshotCodec(grid.getSize());
+
+        grid.addTileListener(this);
+    }
+
+    public void tileChanged(int positionX, int positionY){
+        tickTiles.set(positionX, positionY);
+    }
+
+    /**
+     * Ends a tick, giving the world a new sequence if anything has changed.
+     *
+     * @param tickEntities the ints of every entity at the end of the tick, see {@link WorldSnapshot}.
+     */
+    public void commit(int[] tickEntities){
+        if (Arrays.equals(entities, tickEntities) && tickTiles.isEmpty()) return;
+
+        sequence++;
+        System.arraycopy(tickEntities, 0, entities, 0, entities.length);
+
+        GridBitSet tiles = changedTiles[sequence % HISTORYSIZE];
+        tiles.clear();
+        tiles.or(tickTiles);
+        tickTiles.clear();
+    }
+
+    /**
+     * Encodes the current snapshot for a player, as the changes since the newest snapshot
+     * they have acknowledged, and records it as a baseline they may acknowledge.
+     *
+     * @param baselines the snapshots sent to the player.
+     * @return the number of frames to be sent, see {@link SnapshotCodec#getFrame(int)},
+     * 0 if the player already has the current snapshot.
+     */
+    public int encode(Baselines baselines){
+        if (sequence == 0 || baselines.getLatestSent() == sequence) return 0;
+
+        int baseline = baselines.getAcknowledged();
+        int[] baselineEntities = null;
+
+        if (baseline > 0 && sequence - baseline < HISTORYSIZE) {
+            baselineEntities = baselines.getEntities(baseline);
+        }
+
+        deltaTiles.clear();
+
+        if (baselineEntities == null) {
+            baseline = 0;
+            deltaTiles.setAll();
+        } else {
+            for (int i = baseline + 1; i <= sequence; i++) {
+                deltaTiles.or(changedTiles[i % HISTORYSIZE]);
+            }
+        }
+
+        baselines.add(sequence, entities);
+
+        return snapshotCodec.encode(sequence, baseline, deltaTiles, grid, entities, baselineEntities);
+    }
+
+    /**
+     * @return a frame of the snapshot last encoded, see {@link SnapshotCodec#getFrame(int)}.
+     */
+    public int[] getFrame(int index){
+        return snapshotCodec.getFrame(index);
+    }
+
+    public int getSequence(){
+        return sequence;
+    }
+
+    /**
+     * Inner class holding the last {@link #SIZE} snapshots sent to a player, by sequence,
+     * and the newest of them the player has acknowledged.
+     *
+     */
+    public static class Baselines {
+
+        public static final int SIZE = 8;
+
+        private int[] sequences;
+        private int[][] entities;
+        private int latestSent;
+        private int acknowledged;
+
+        public Baselines(){
+            sequences = new int[SIZE];
+            entities = new int[SIZE][WorldSnapshot.ENTITIES * WorldSnapshot.ENTITYSIZE];
+        }
+
+        /**
+         * Forgets every snapshot sent, so the next is sent whole, e.g. at the start of a game.
+         *
+         */
+        public void clear(){
+            Arrays.fill(sequences, 0);
+            latestSent = 0;
+            acknowledged = 0;
+        }
+
+        private void add(int sequence, int[] snapshotEntities){
+            int slot = sequence % SIZE;
+
+            sequences[slot] = sequence;
+            System.arraycopy(snapshotEntities, 0, entities[slot], 0, snapshotEntities.length);
+            latestSent = sequence;
+        }
+
+        /**
+         * @return the entities of a snapshot sent, or null if it is no longer held.
+         */
+        private int[] getEntities(int sequence){
+            int slot = sequence % SIZE;
+
+            return sequences[slot] == sequence ? entities[slot] : null;
+        }
+
+        /**
+         * Records that the player has received a snapshot. Acknowledgements of snapshots
+         * no longer held, or older than one already acknowledged, are ignored.
+         *
+         * @param sequence the sequence of the snapshot.
+         */
+        public void acknowledge(int sequence){
+            if (sequence > acknowledged && sequence > 0 && getEntities(sequence) != null) {
+                acknowledged = sequence;
+            }
+        }
+
+        public int getAcknowledged(){
+            return acknowledged;
+        }
+
+        public int getLatestSent(){
+            return latestSent;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package server.session;
+
+import common.FrameCodec;
+import common.FrameWriter;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link PlayerConnection} backed by a blocking socket. Frames are read by the
+ * {@link SessionController} player thread using {@link #readFrame()}, which also answers
+ * the hello of a client asking for a newer version of the protocol, see {@link FrameCodec}.
+ *
+ * Frames are sent from the threads running session ticks, which are shared by every
+ * session, so they must never block on the network. Frames are encoded into
+ * {@link #pending} and written to the socket by a writer thread of the player's own,
+ * started on the player executor. A player who stops reading is disconnected once
+ * {@link #MAXPENDING} bytes are waiting, rather than holding frames without limit.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class SocketPlayerConnection implements PlayerConnection {
+
+    /**
+     * The most bytes waiting to be written before the player is disconnected.
+     */
+    private static final int MAXPENDING = FrameWriter.FRAMESIZE * 4096;
+
+    private Socket socket;
+    private InputStream fromPlayer;
+    private OutputStream socketOutput;
+    private FrameWriter toPlayer;
+    private FrameCodec codec;
+
+    private ReentrantLock pendingLock;
+    private Condition writeDue;
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+    private boolean isWriteDue;
+    private boolean closing;
+    private volatile boolean closed;
+
+    /**
+     * Creates the input and output streams used to communicate with the player and
+     * starts the thread writing to the player.
+     *
+     * @param socket the players socket.
+     * @param writerExecutor runs the thread writing to the player.
+     * @throws IOException if the streams cannot be created.
+     */
+    public SocketPlayerConnection(Socket socket, Executor writerExecutor) throws IOException {
+        this.socket = socket;
+        fromPlayer = new BufferedInputStream(socket.getInputStream());
+        socketOutput = socket.getOutputStream();
+        toPlayer = new FrameWriter(new PendingOutput());
+        codec = FrameCodec.LEGACY;
+
+        pendingLock = new ReentrantLock();
+        writeDue = pendingLock.newCondition();
+        pending = ByteBuffer.allocate(FrameWriter.FRAMESIZE * 64);
+        writing = ByteBuffer.allocate(pending.capacity());
+        isWriteDue = false;
+        closing = false;
+        closed = false;
+
+        writerExecutor.execute(new Writer());
+    }
+
+    /**
+     * Blocks until a frame of four ints has been read from the player. A hello is
+     * answered and the version agreed used from the next frame, in both directions.
+     *
+     * @return the frame read.
+     * @throws EOFException if the player closed the connection.
+     * @throws IOException if the frame could not be read.
+     */
+    public int[] readFrame() throws IOException, EOFException {
+        int[] frame = codec.read(fromPlayer);
+
+        while (codec == FrameCodec.LEGACY && FrameCodec.isHello(frame)) {
+            FrameCodec agreed = FrameCodec.negotiate(frame);
+
+            toPlayer.switchCodec(FrameCodec.createHelloReply(frame, agreed.getVersion()), agreed);
+            toPlayer.flush();
+            codec = agreed;
+
+            frame = codec.read(fromPlayer);
+        }
+
+        return frame;
+    }
+
+    /**
+     * Buffers a frame for the player using {@link #toPlayer}, which is synchronised
+     * as frames for one player can be sent from several threads.
+     *
+     * @param data the four ints to be sent.
+     * @throws IOException if the connection has been closed.
+     */
+    public void sendFrame(int[] data) throws IOException {
+        toPlayer.writeFrame(data);
+    }
+
+    /**
+     * Passes any buffered frames to the writer thread. Never blocks on the network.
+     *
+     * @throws IOException if the connection has been closed.
+     */
+    public void flush() throws IOException {
+        toPlayer.flush();
+    }
+
+    /**
+     * Closes the connection once any frames waiting have been written. This allows
+     * a final message such as {@link common.GameConstants#KICKED} to reach the player.
+     *
+     */
+    public void close(){
+        pendingLock.lock();
+        try {
+            closing = true;
+            writeDue.signal();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the socket straight away, dropping any frames waiting. The thread reading
+     * from the player sees the connection closed and the player leaves the session.
+     *
+     */
+    private void closeNow(){
+        pendingLock.lock();
+        try {
+            closed = true;
+            pending.clear();
+            writeDue.signal();
+        } finally {
+            pendingLock.unlock();
+        }
+
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            //Program logic deals with this.
+        }
+    }
+
+    public boolean isClosed(){
+        return closed;
+    }
+
+    public String getHostAddress(){
+        return socket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * Inner class that is the stream {@link #toPlayer} writes to. Bytes are copied
+     * into {@link #pending} and a flush wakes the {@link Writer}.
+     *
+     */
+    private class PendingOutput extends OutputStream {
+
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            boolean isOverflowing;
+
+            pendingLock.lock();
+            try {
+                if (closed || closing) throw new IOException("Connection closed");
+
+                isOverflowing = pending.position() + length > MAXPENDING;
+
+                if (!isOverflowing) {
+                    if (pending.remaining() < length) {
+                        ByteBuffer larger = ByteBuffer.allocate(
+                                Math.max(pending.capacity() * 2, pending.position() + length));
+                        pending.flip();
+                        larger.put(pending);
+                        pending = larger;
+                    }
+
+                    pending.put(bytes, offset, length);
+                }
+            } finally {
+                pendingLock.unlock();
+            }
+
+            if (isOverflowing) {
+                closeNow();
+                throw new IOException("Player is not reading");
+            }
+        }
+
+        public void flush(){
+            pendingLock.lock();
+            try {
+                isWriteDue = true;
+                writeDue.signal();
+            } finally {
+                pendingLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inner class that writes the bytes in {@link #pending} to the socket each time
+     * they are flushed, and closes the socket once the connection is closed.
+     *
+     */
+    private class Writer implements Runnable {
+
+        public void run() {
+            try {
+                while (takePending()) {
+                    socketOutput.write(writing.array(), 0, writing.position());
+                    socketOutput.flush();
+                }
+            } catch (IOException ignored) {
+                //The player has gone, the thread reading from them deals with this.
+            } catch (InterruptedException ignored) {
+                //Program logic deals with this.
+            }
+
+            closeNow();
+        }
+
+        /**
+         * Waits until bytes are due to be written and swaps them into {@link #writing}.
+         *
+         * @return false once the connection is closed and every byte has been written.
+         */
+        private boolean takePending() throws InterruptedException {
+            pendingLock.lock();
+            try {
+                while (!closed && !closing && !(isWriteDue && pending.position() > 0)) {
+                    writeDue.await();
+                }
+
+                if (closed || pending.position() == 0) return false;
+
+                ByteBuffer taken = pending;
+                writing.clear();
+                pending = writing;
+                writing = taken;
+                isWriteDue = false;
+
+                return true;
+            } finally {
+                pendingLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package server.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the tick of every active {@link SessionSimulation} on the server. A single clock
+ * thread fires at the tick rate and submits one task per registered session to a
+ * work-stealing {@link ForkJoinPool} sized to the number of cores, so the CPU used
+ * scales with the cores available rather than the number of sessions or threads.
+ *
+ * Each tick has a deadline, the time the next tick is due. A session whose tick finishes
+ * after the deadline is counted as an overrun. A session whose previous tick is still
+ * running when the clock fires is not ticked again, so a simulation never runs on two
+ * threads at once, and the tick is counted as skipped.
+ *
+ * A tick that throws is counted as failed, see {@link #recordFailure()}.
+ *
+ * The counters can be read at any time using {@link #getTicks()}, {@link #getOverruns()},
+ * {@link #getSkippedTicks()}, {@link #getFailedTicks()}, {@link #getMaxTickNanos()} and
+ * {@link #getAverageTickNanos()}.
+ *
+ * All threads are daemon threads, so the scheduler does not keep the server running.
+ * They are stopped by {@link #shutdown()} once the server stops.
+ *
+ * @author Robert Wells
+ * @version 1.0
+ *
+ */
+public class TickScheduler {
+
+    private int tickRate;
+    private long periodNanos;
+    private ForkJoinPool workers;
+    private ScheduledExecutorService clock;
+    private ConcurrentHashMap<SessionSimulation, AtomicBoolean> simulations;
+
+    private AtomicLong ticks;
+    private AtomicLong overruns;
+    private AtomicLong skippedTicks;
+    private AtomicLong failedTicks;
+    private AtomicLong totalTickNanos;
+    private AtomicLong maxTickNanos;
+
+    /**
+     * Initialises the worker pool and starts the clock.
+     *
+     * @param tickRate the number of ticks per second.
+     * @param parallelism the number of worker threads, usually the number of cores.
+     */
+    public TickScheduler(int tickRate, int parallelism){
+        this.tickRate = tickRate;
+        periodNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+
+        simulations = new ConcurrentHashMap<SessionSimulation, AtomicBoolean>();
+        ticks = new AtomicLong();
+        overruns = new AtomicLong();
+        skippedTicks = new AtomicLong();
+        failedTicks = new AtomicLong();
+        totalTickNanos = new AtomicLong();
+        maxTickNanos = new AtomicLong();
+
+        workers = new ForkJoinPool(Math.max(1, parallelism), new WorkerThreadFactory(),
+                null, true);
+
+        clock = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TickScheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        clock.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                dispatch();
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a scheduler with one worker thread per core.
+     *
+     * @param tickRate the number of ticks per second.
+     */
+    public TickScheduler(int tickRate){
+        this(tickRate, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Adds a simulation, which is ticked from the next tick onwards.
+     *
+     * @param simulation the simulation to be ticked.
+     */
+    public void register(SessionSimulation simulation){
+        simulations.putIfAbsent(simulation, new AtomicBoolean(false));
+    }
+
+    /**
+     * Removes a simulation. A tick already running is allowed to finish.
+     *
+     * @param simulation the simulation to be removed.
+     */
+    public void unregister(SessionSimulation simulation){
+        simulations.remove(simulation);
+    }
+
+    /**
+     * Stops the clock and the worker threads. Ticks already running are allowed to
+     * finish, but no simulation is ticked again.
+     *
+     */
+    public void shutdown(){
+        clock.shutdownNow();
+        simulations.clear();
+        workers.shutdown();
+    }
+
+    /**
+     * Invoked by the clock thread once per tick. Submits a task to {@link #workers}
+     * for each simulation that is not still running its previous tick.
+     *
+     */
+    private void dispatch(){
+        long deadline = System.nanoTime() + periodNanos;
+
+        for (SessionSimulation simulation : simulations.keySet()) {
+            AtomicBoolean isTicking = simulations.get(simulation);
+
+            if (isTicking == null) continue;
+
+            if (isTicking.compareAndSet(false, true)) {
+                workers.execute(new TickTask(simulation, isTicking, deadline));
+            } else {
+                skippedTicks.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Records how long a tick took and whether it finished after its deadline.
+     *
+     */
+    private void recordTick(long startNanos, long endNanos, long deadline){
+        long tickNanos = endNanos - startNanos;
+
+        ticks.incrementAndGet();
+        totalTickNanos.addAndGet(tickNanos);
+
+        if (endNanos > deadline) {
+            overruns.incrementAndGet();
+        }
+
+        long max;
+        while (tickNanos > (max = maxTickNanos.get())
+                && !maxTickNanos.compareAndSet(max, tickNanos)) {
+            // Another worker updated the maximum first, try again.
+        }
+    }
+
+    /**
+     * Invoked by a simulation whose tick has thrown an exception.
+     *
+     */
+    public void recordFailure(){
+        failedTicks.incrementAndGet();
+    }
+
+    /**
+     * Sets all counters back to zero.
+     *
+     */
+    public void resetMetrics(){
+        ticks.set(0);
+        overruns.set(0);
+        skippedTicks.set(0);
+        failedTicks.set(0);
+        totalTickNanos.set(0);
+        maxTickNanos.set(0);
+    }
+
+    public int getTickRate(){
+        return tickRate;
+    }
+
+    public int getParallelism(){
+        return workers.getParallelism();
+    }
+
+    public int getNumOfSimulations(){
+        return simulations.size();
+    }
+
+    public long getTicks(){
+        return ticks.get();
+    }
+
+    public long getOverruns(){
+        return overruns.get();
+    }
+
+    public long getSkippedTicks(){
+        return skippedTicks.get();
+    }
+
+    public long getFailedTicks(){
+        return failedTicks.get();
+    }
+
+    public long getMaxTickNanos(){
+        return maxTickNanos.get();
+    }
+
+    public long getAverageTickNanos(){
+        long tickCount = ticks.get();
+
+        return tickCount == 0 ? 0 : totalTickNanos.get() / tickCount;
+    }
+
+    /**
+     * Inner class that runs one tick of a simulation on a worker thread.
+     *
+     */
+    private class TickTask implements Runnable {
+        private SessionSimulation simulation;
+        private AtomicBoolean isTicking;
+        private long deadline;
+
+        public TickTask(SessionSimulation simulation, AtomicBoolean isTicking, long deadline){
+            this.simulation = simulation;
+            this.isTicking = isTicking;
+            this.deadline = deadline;
+        }
+
+        public void run() {
+            long startNanos = System.nanoTime();
+
+            try {
+                simulation.run();
+            } finally {
+                recordTick(startNanos, System.nanoTime(), deadline);
+                isTicking.set(false);
+            }
+        }
+    }
+
+    /**
+     * Inner class that creates numbered daemon worker threads.
+     *
+     */
+    private static class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private AtomicLong threadNum = new AtomicLong();
+
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) { };
+            thread.setName("SessionTick-" + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
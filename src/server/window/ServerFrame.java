@@ -6,40 +6,43 @@ import server.server.ServerPanel;
 import server.session.Session;
 import server.session.SessionController;
 
-import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Holds the data used by {@link ServerFrameView}. Controlled by {@link ServerViewController}.
+ * Sessions are added and removed by the threads accepting and serving players, so they
+ * are held by session number in a concurrent map.
  *
  * @author Robert Wells
  * @version 1.0
  *
  */
 public class ServerFrame implements ServerViewModel {
-    private ArrayList<Session> gameSessions;
+    private ConcurrentHashMap<Integer, Session> gameSessions;
     private ServerController serverController;
     private ServerPanel serverPanel;
 
     /**
-     * Initialises {@link server.session.Session} ArrayList and
+     * Initialises {@link server.session.Session} map and
      * {@link server.server.ServerPanel}
      *
      */
     public ServerFrame(){
-        gameSessions = new ArrayList<Session>();
+        gameSessions = new ConcurrentHashMap<Integer, Session>();
         serverPanel = new ServerPanel();
     }
 
     /**
      * Retrieves game session from session controller using
      * {@link server.session.SessionController#getGameSession()}
-     * Add to gameSessions ArrayList
+     * Add to gameSessions by session number
      *
      * @param sessionController {@link SessionController}
      *
      */
     public void addGameSession(SessionController sessionController){
-        gameSessions.add(sessionController.getGameSession());
+        Session gameSession = sessionController.getGameSession();
+        gameSessions.put(gameSession.getSessionId(), gameSession);
 
     }
 
@@ -66,6 +69,16 @@ public class ServerFrame implements ServerViewModel {
     }
 
 
+    /**
+     * Removes the game session of the session controller from gameSessions
+     *
+     * @param sessionController {@link SessionController}
+     *
+     */
+    public void removeGameSession(SessionController sessionController){
+        gameSessions.remove(sessionController.getGameSession().getSessionId());
+    }
+
     public void clearGameSessions(){
         gameSessions.clear();
     }
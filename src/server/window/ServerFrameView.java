@@ -11,6 +11,8 @@ import java.awt.event.WindowAdapter;
 /**
  * Class that acts as the window for the man GUI. Data contained {@link ServerFrame}.
  * The Server View provides the main GUI server-side. Controlled by {@link ServerViewController}.
+ * Sessions are added and removed from the threads serving players, so their tabs are
+ * changed on the event dispatch thread.
  *
  * @author Robert Wells
  * @version 1.0
@@ -67,14 +69,32 @@ public class ServerFrameView extends JFrame implements ServerView {
      * which provides the GUI for the session tab
      *
      * @param sessionController {@link SessionController}
-     * @param gameSessionSize used to output the game session number to the GUI
+     * @param gameSessionSize the game session number output to the GUI
      * @see server.session.SessionPanel
      *
      */
-    public void addGameSession(SessionController sessionController,
-                               int gameSessionSize) {
-        pane.addTab("Session "
-                + gameSessionSize, sessionController.getSessionOverview());
+    public void addGameSession(final SessionController sessionController,
+                               final int gameSessionSize) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                pane.addTab("Session "
+                        + gameSessionSize, sessionController.getSessionOverview());
+            }
+        });
+    }
+
+    /**
+     * Removes the tab of one game session from {@link #pane}
+     *
+     * @param sessionController {@link SessionController}
+     *
+     */
+    public void removeGameSession(final SessionController sessionController){
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                pane.remove(sessionController.getSessionOverview());
+            }
+        });
     }
 
     /**
@@ -82,11 +102,15 @@ public class ServerFrameView extends JFrame implements ServerView {
      *
      */
     public void removeGameSessions(){
-        int numOfPanes = pane.getTabCount();
-
-        for (int i = 1; i < numOfPanes; i++){
-            pane.remove(1);
-        }
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                int numOfPanes = pane.getTabCount();
+
+                for (int i = 1; i < numOfPanes; i++){
+                    pane.remove(1);
+                }
+            }
+        });
     }
 
     public void addWindowCloser(WindowAdapter windowAdapter){
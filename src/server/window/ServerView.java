@@ -20,6 +20,8 @@ public interface ServerView {
     public void addGameSession(SessionController sessionController,
                                int gameSessionSize);
 
+    public void removeGameSession(SessionController sessionController);
+
     public void removeGameSessions();
 
     public void addWindowCloser(WindowAdapter windowAdapter);
@@ -58,7 +58,7 @@ public class ServerViewController {
     public void addGameSession(SessionController sessionController){
         serverFrame.addGameSession(sessionController);
         serverView.addGameSession(sessionController,
-                serverFrame.getGameSessionSize());
+                sessionController.getGameSession().getSessionId());
     }
 
     /**
@@ -72,6 +72,18 @@ public class ServerViewController {
         serverView.addTab(serverFrame.getServerPanel());
     }
 
+    /**
+     * Removes the tab of a single game session from main GUI, used once the
+     * session has been removed from the server.
+     *
+     * @param sessionController {@link SessionController}
+     *
+     */
+    public void removeGameSession(SessionController sessionController){
+        serverView.removeGameSession(sessionController);
+        serverFrame.removeGameSession(sessionController);
+    }
+
     /**
      * Removes Game session tab from main GUI
      *
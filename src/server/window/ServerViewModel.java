@@ -14,6 +14,8 @@ public interface ServerViewModel {
 
     public void addGameSession(SessionController sessionController);
 
+    public void removeGameSession(SessionController sessionController);
+
     public void createServerController(ServerViewController serverViewController);
 
     public void cleanUpServer();